@@ -0,0 +1,83 @@
+package com.unknownloner.lonelib.animation;
+
+/**
+ * An animation made of channels, each of which moves one object (or bone) with a translation, rotation, and scale track.
+ * <br>Animations only hold keyframe data and can be shared. Use an {@link AnimationSampler} for each playing instance.
+ */
+public class Animation {
+
+	private final KeyframeTrack[] translations;
+	private final KeyframeTrack[] rotations;
+	private final KeyframeTrack[] scales;
+	private final int channels;
+	private final float startTime;
+	private final float endTime;
+
+	/**
+	 * Creates an animation from one track of each kind per channel. The arrays must have the same length.
+	 * Any track may be null, which leaves that part of the channel at no translation, no rotation, or a scale of 1.
+	 * @param translations Translation track of each channel, with 3 components
+	 * @param rotations Rotation track of each channel, with 4 components holding normalized quaternions
+	 * @param scales Scale track of each channel, with 3 components
+	 */
+	public Animation(KeyframeTrack[] translations, KeyframeTrack[] rotations, KeyframeTrack[] scales) {
+		if(translations.length != rotations.length || translations.length != scales.length) {
+			throw new IllegalArgumentException("Every channel needs a translation, rotation and scale track, or null");
+		}
+		this.translations = translations.clone();
+		this.rotations = rotations.clone();
+		this.scales = scales.clone();
+		this.channels = translations.length;
+		float start = Float.POSITIVE_INFINITY;
+		float end = Float.NEGATIVE_INFINITY;
+		for(int i = 0; i < channels; i++) {
+			checkTrack(translations[i], 3);
+			checkTrack(rotations[i], 4);
+			checkTrack(scales[i], 3);
+			KeyframeTrack[] tracks = { translations[i], rotations[i], scales[i] };
+			for(KeyframeTrack track : tracks) {
+				if(track != null) {
+					start = Math.min(start, track.getStartTime());
+					end = Math.max(end, track.getEndTime());
+				}
+			}
+		}
+		this.startTime = start == Float.POSITIVE_INFINITY ? 0 : start;
+		this.endTime = end == Float.NEGATIVE_INFINITY ? 0 : end;
+	}
+
+	private static void checkTrack(KeyframeTrack track, int components) {
+		if(track != null && track.getComponents() != components) {
+			throw new IllegalArgumentException("Expected a track with " + components + " components, got " + track.getComponents());
+		}
+	}
+
+	public int getChannelCount() {
+		return channels;
+	}
+
+	public float getStartTime() {
+		return startTime;
+	}
+
+	public float getEndTime() {
+		return endTime;
+	}
+
+	public float getDuration() {
+		return endTime - startTime;
+	}
+
+	KeyframeTrack getTranslation(int channel) {
+		return translations[channel];
+	}
+
+	KeyframeTrack getRotation(int channel) {
+		return rotations[channel];
+	}
+
+	KeyframeTrack getScale(int channel) {
+		return scales[channel];
+	}
+
+}
@@ -0,0 +1,163 @@
+package com.unknownloner.lonelib.animation;
+
+import java.nio.FloatBuffer;
+
+import com.unknownloner.lonelib.math.Mat4;
+
+/**
+ * Plays an {@link Animation} for one object, sampling every channel at once into flat float arrays.
+ * <br>The sampler keeps a cursor per track, so sampling at increasing times finds each key in constant time,
+ * and it reuses its output arrays, so sampling never allocates.
+ * <br>Sampled channels are stored as 10 floats each: translation x, y, z, rotation x, y, z, w, and scale x, y, z.
+ * They can also be converted to one column-major translation * rotation * scale matrix per channel.
+ */
+public class AnimationSampler {
+
+	/**
+	 * Number of floats per channel in {@link #getTRS()}
+	 */
+	public static final int TRS_FLOATS = 10;
+
+	private final Animation animation;
+	private final int[] cursors;
+	private final float[] trs;
+	private final float[] matrices;
+	private boolean looping;
+	private boolean slerp = true;
+
+	public AnimationSampler(Animation animation) {
+		this.animation = animation;
+		int channels = animation.getChannelCount();
+		this.cursors = new int[channels * 3];
+		this.trs = new float[channels * TRS_FLOATS];
+		this.matrices = new float[channels * 16];
+	}
+
+	public Animation getAnimation() {
+		return animation;
+	}
+
+	public boolean isLooping() {
+		return looping;
+	}
+
+	/**
+	 * @param looping true to wrap times outside the animation back into it, false to hold the first or last key
+	 */
+	public void setLooping(boolean looping) {
+		this.looping = looping;
+	}
+
+	/**
+	 * @param slerp true to interpolate rotations with slerp, false to use the cheaper nlerp
+	 */
+	public void setSlerp(boolean slerp) {
+		this.slerp = slerp;
+	}
+
+	/**
+	 * Samples every channel of the animation
+	 * @param time Time to sample at
+	 * @return this
+	 */
+	public AnimationSampler sample(float time) {
+		Animation animation = this.animation;
+		if(looping) {
+			float duration = animation.getDuration();
+			if(duration > 0) {
+				float start = animation.getStartTime();
+				time = (time - start) % duration;
+				if(time < 0) {
+					time += duration;
+				}
+				time += start;
+			}
+		}
+		int channels = animation.getChannelCount();
+		float[] trs = this.trs;
+		int[] cursors = this.cursors;
+		for(int c = 0; c < channels; c++) {
+			int o = c * TRS_FLOATS;
+			int k = c * 3;
+
+			KeyframeTrack track = animation.getTranslation(c);
+			if(track != null) {
+				int key = track.findKey(time, cursors[k]);
+				cursors[k] = key;
+				track.sampleLinear(time, key, trs, o);
+			} else {
+				trs[o] = trs[o + 1] = trs[o + 2] = 0;
+			}
+
+			track = animation.getRotation(c);
+			if(track != null) {
+				int key = track.findKey(time, cursors[k + 1]);
+				cursors[k + 1] = key;
+				track.sampleRotation(time, key, slerp, trs, o + 3);
+			} else {
+				trs[o + 3] = trs[o + 4] = trs[o + 5] = 0;
+				trs[o + 6] = 1;
+			}
+
+			track = animation.getScale(c);
+			if(track != null) {
+				int key = track.findKey(time, cursors[k + 2]);
+				cursors[k + 2] = key;
+				track.sampleLinear(time, key, trs, o + 7);
+			} else {
+				trs[o + 7] = trs[o + 8] = trs[o + 9] = 1;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * return the raw sampled channels, TRS_FLOATS floats per channel.
+	 * The array is overwritten by the next call to {@link #sample(float)}
+	 * @return trs array
+	 */
+	public float[] getTRS() {
+		return trs;
+	}
+
+	/**
+	 * Stores the sampled channels in the float buffer, TRS_FLOATS floats per channel
+	 * @param dest Buffer for data storage
+	 * @return this
+	 */
+	public AnimationSampler storeTRS(FloatBuffer dest) {
+		dest.put(trs, 0, trs.length);
+		return this;
+	}
+
+	/**
+	 * Converts the sampled channels to matrices with {@link Mat4#makeTRS(float, float, float, float, float, float, float, float, float, float, float[], int)}
+	 * @return The matrices, 16 floats per channel in column-major order.
+	 * The array is overwritten by the next call to this method
+	 */
+	public float[] getMatrices() {
+		float[] trs = this.trs;
+		float[] matrices = this.matrices;
+		int channels = animation.getChannelCount();
+		for(int c = 0; c < channels; c++) {
+			int o = c * TRS_FLOATS;
+			Mat4.makeTRS(trs[o], trs[o + 1], trs[o + 2],
+					trs[o + 3], trs[o + 4], trs[o + 5], trs[o + 6],
+					trs[o + 7], trs[o + 8], trs[o + 9], matrices, c * 16);
+		}
+		return matrices;
+	}
+
+	/**
+	 * Stores the sampled channels in the float buffer as matrices, 16 floats per channel in column-major order,
+	 * ready to be uploaded as a uniform array or an instance buffer
+	 * @param dest Buffer for data storage
+	 * @return this
+	 */
+	public AnimationSampler storeMatrices(FloatBuffer dest) {
+		float[] matrices = getMatrices();
+		dest.put(matrices, 0, matrices.length);
+		return this;
+	}
+
+}
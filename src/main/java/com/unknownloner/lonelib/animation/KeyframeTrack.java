@@ -0,0 +1,146 @@
+package com.unknownloner.lonelib.animation;
+
+import java.util.Arrays;
+
+import com.unknownloner.lonelib.math.Quat;
+
+/**
+ * A sequence of keyframes for one property of an animated object, such as its translation, rotation, or scale.
+ * <br>Key times and values are stored in flat float arrays, with the values of each key one after another
+ * (3 floats for vectors, 4 floats x, y, z, w for rotations). Tracks are immutable and can be shared by any number
+ * of objects, the playback position of each object is kept in a cursor owned by the caller.
+ */
+public class KeyframeTrack {
+
+	private final int components;
+	private final float[] times;
+	private final float[] values;
+	private final int count;
+
+	/**
+	 * Creates a track from the given arrays. The arrays are not copied, so they should not be changed afterwards.
+	 * @param components Number of floats per value, 3 for vectors and 4 for rotations
+	 * @param times Time of each key, in increasing order
+	 * @param values Value of each key, components floats per key
+	 */
+	public KeyframeTrack(int components, float[] times, float[] values) {
+		if(times.length == 0) {
+			throw new IllegalArgumentException("A track needs at least one key");
+		}
+		if(values.length < times.length * components) {
+			throw new IllegalArgumentException("Expected " + times.length * components + " values, got " + values.length);
+		}
+		for(int i = 1; i < times.length; i++) {
+			if(times[i] < times[i - 1]) {
+				throw new IllegalArgumentException("Key times must be in increasing order");
+			}
+		}
+		this.components = components;
+		this.times = times;
+		this.values = values;
+		this.count = times.length;
+	}
+
+	public int getComponents() {
+		return components;
+	}
+
+	public int getKeyCount() {
+		return count;
+	}
+
+	public float getStartTime() {
+		return times[0];
+	}
+
+	public float getEndTime() {
+		return times[count - 1];
+	}
+
+	/**
+	 * Finds the key at or before time.
+	 * <br>The key found last time is checked first, then the one after it, so playing forward only
+	 * falls back to a binary search when the time jumps.
+	 * @param time Time to find the key for
+	 * @param cursor The key returned by the previous call for this object, or 0
+	 * @return The index of the last key at or before time, clamped so the key after it exists if there is more than one key
+	 */
+	public int findKey(float time, int cursor) {
+		int last = count - 2;
+		if(last < 0) {
+			return 0;
+		}
+		if(cursor >= 0 && cursor <= last && times[cursor] <= time) {
+			if(time < times[cursor + 1]) {
+				return cursor;
+			}
+			if(cursor < last && time < times[cursor + 2]) {
+				return cursor + 1;
+			}
+		}
+		if(time < times[0]) {
+			return 0;
+		}
+		if(time >= times[last + 1]) {
+			return last;
+		}
+		int index = Arrays.binarySearch(times, 0, count, time);
+		if(index < 0) {
+			index = -index - 2;
+		}
+		return Math.min(index, last);
+	}
+
+	/**
+	 * @return How far time is between key and the key after it, from 0 to 1
+	 */
+	private float factor(float time, int key) {
+		if(key + 1 >= count) {
+			return 0;
+		}
+		float start = times[key];
+		float length = times[key + 1] - start;
+		if(length <= 0) {
+			return 1;
+		}
+		float t = (time - start) / length;
+		return t < 0 ? 0 : (t > 1 ? 1 : t);
+	}
+
+	/**
+	 * Linearly interpolates each component between key and the next key
+	 * @param time Time to sample at
+	 * @param key Key returned by {@link #findKey(float, int)} for time
+	 * @param dest Array to store the components in
+	 * @param offset Offset in dest to store the components at
+	 */
+	public void sampleLinear(float time, int key, float[] dest, int offset) {
+		float t = factor(time, key);
+		int a = key * components;
+		int b = Math.min(key + 1, count - 1) * components;
+		for(int i = 0; i < components; i++) {
+			float from = values[a + i];
+			dest[offset + i] = from + (values[b + i] - from) * t;
+		}
+	}
+
+	/**
+	 * Interpolates the rotation between key and the next key. The track must have 4 components
+	 * @param time Time to sample at
+	 * @param key Key returned by {@link #findKey(float, int)} for time
+	 * @param slerp true for {@link Quat#slerp}, false for the cheaper {@link Quat#nlerp}
+	 * @param dest Array to store the x, y, z, w of the rotation in
+	 * @param offset Offset in dest to store the rotation at
+	 */
+	public void sampleRotation(float time, int key, boolean slerp, float[] dest, int offset) {
+		float t = factor(time, key);
+		int a = key * 4;
+		int b = Math.min(key + 1, count - 1) * 4;
+		if(slerp) {
+			Quat.slerp(values, a, values, b, t, dest, offset);
+		} else {
+			Quat.nlerp(values, a, values, b, t, dest, offset);
+		}
+	}
+
+}
@@ -0,0 +1,673 @@
+package com.unknownloner.lonelib.collision;
+
+import java.util.Arrays;
+
+import com.unknownloner.lonelib.math.AABB;
+import com.unknownloner.lonelib.math.Vec3;
+
+/**
+ * A dynamic bounding volume hierarchy for broadphase collision and picking.
+ * <br>Each object is inserted as a proxy with a fattened copy of its bounds, so small movements
+ * do not touch the tree at all. Leaves are inserted next to the sibling which least increases the
+ * total surface area of the tree, and AVL rotations keep the tree balanced as proxies come and go.
+ * <br>Nodes are stored in primitive arrays indexed by node id, and a proxy id is the id of its leaf node.
+ * The arrays only grow when the tree outgrows them, so a tree in steady use never allocates.
+ * Queries are reentrant, a callback may start another query on the same tree, but the tree is not thread safe.
+ */
+public class DynamicAABBTree {
+
+	public static final int NULL_NODE = -1;
+
+	/**
+	 * How far a moving proxy's bounds are extended in the direction of its displacement,
+	 * as a multiple of the displacement
+	 */
+	private static final float DISPLACEMENT_MULTIPLIER = 2F;
+
+	private float[] minx;
+	private float[] miny;
+	private float[] minz;
+	private float[] maxx;
+	private float[] maxy;
+	private float[] maxz;
+	/**
+	 * Parent of each node, or the next free node for nodes in the free list
+	 */
+	private int[] parent;
+	private int[] child1;
+	private int[] child2;
+	/**
+	 * 0 for leaves, -1 for free nodes
+	 */
+	private int[] height;
+	private int[] userData;
+
+	private int root = NULL_NODE;
+	private int freeList = NULL_NODE;
+	private int nodeCount;
+	private int proxyCount;
+	private final float margin;
+
+	private int[] stack = new int[64];
+	private float[] stackDist = new float[64];
+	private int stackTop;
+	private float rayHitDist;
+
+	/**
+	 * Creates a tree which fattens bounds by 0.1 on each side
+	 */
+	public DynamicAABBTree() {
+		this(0.1F, 16);
+	}
+
+	/**
+	 * @param margin Amount the bounds of each proxy are expanded by on each side
+	 * @param initialCapacity Number of nodes to allocate room for. A tree of n proxies uses 2n - 1 nodes
+	 */
+	public DynamicAABBTree(float margin, int initialCapacity) {
+		this.margin = margin;
+		int capacity = Math.max(initialCapacity, 2);
+		minx = new float[capacity];
+		miny = new float[capacity];
+		minz = new float[capacity];
+		maxx = new float[capacity];
+		maxy = new float[capacity];
+		maxz = new float[capacity];
+		parent = new int[capacity];
+		child1 = new int[capacity];
+		child2 = new int[capacity];
+		height = new int[capacity];
+		userData = new int[capacity];
+		linkFreeNodes(0, capacity);
+	}
+
+	private void linkFreeNodes(int start, int end) {
+		for(int i = start; i < end - 1; i++) {
+			parent[i] = i + 1;
+			height[i] = -1;
+		}
+		parent[end - 1] = freeList;
+		height[end - 1] = -1;
+		freeList = start;
+	}
+
+	private int allocateNode() {
+		if(freeList == NULL_NODE) {
+			int oldCapacity = parent.length;
+			int capacity = oldCapacity * 2;
+			minx = Arrays.copyOf(minx, capacity);
+			miny = Arrays.copyOf(miny, capacity);
+			minz = Arrays.copyOf(minz, capacity);
+			maxx = Arrays.copyOf(maxx, capacity);
+			maxy = Arrays.copyOf(maxy, capacity);
+			maxz = Arrays.copyOf(maxz, capacity);
+			parent = Arrays.copyOf(parent, capacity);
+			child1 = Arrays.copyOf(child1, capacity);
+			child2 = Arrays.copyOf(child2, capacity);
+			height = Arrays.copyOf(height, capacity);
+			userData = Arrays.copyOf(userData, capacity);
+			linkFreeNodes(oldCapacity, capacity);
+		}
+		int node = freeList;
+		freeList = parent[node];
+		parent[node] = NULL_NODE;
+		child1[node] = NULL_NODE;
+		child2[node] = NULL_NODE;
+		height[node] = 0;
+		userData[node] = 0;
+		nodeCount++;
+		return node;
+	}
+
+	private void freeNode(int node) {
+		parent[node] = freeList;
+		height[node] = -1;
+		freeList = node;
+		nodeCount--;
+	}
+
+	/**
+	 * Adds a proxy for an object to the tree
+	 * @param bounds Bounds of the object
+	 * @param data A value to associate with the proxy, for example an index into a list of objects
+	 * @return The id of the new proxy
+	 */
+	public int createProxy(AABB bounds, int data) {
+		return createProxy(bounds.getMinx(), bounds.getMiny(), bounds.getMinz(),
+				bounds.getMaxx(), bounds.getMaxy(), bounds.getMaxz(), data);
+	}
+
+	/**
+	 * Adds a proxy for an object to the tree
+	 * @param data A value to associate with the proxy, for example an index into a list of objects
+	 * @return The id of the new proxy
+	 */
+	public int createProxy(float bMinx, float bMiny, float bMinz, float bMaxx, float bMaxy, float bMaxz, int data) {
+		int proxy = allocateNode();
+		minx[proxy] = bMinx - margin;
+		miny[proxy] = bMiny - margin;
+		minz[proxy] = bMinz - margin;
+		maxx[proxy] = bMaxx + margin;
+		maxy[proxy] = bMaxy + margin;
+		maxz[proxy] = bMaxz + margin;
+		userData[proxy] = data;
+		insertLeaf(proxy);
+		proxyCount++;
+		return proxy;
+	}
+
+	/**
+	 * Removes a proxy from the tree. Its id may be reused by a later proxy
+	 * @param proxyId Id returned by createProxy
+	 */
+	public void destroyProxy(int proxyId) {
+		checkProxy(proxyId);
+		removeLeaf(proxyId);
+		freeNode(proxyId);
+		proxyCount--;
+	}
+
+	public boolean moveProxy(int proxyId, AABB bounds, Vec3 displacement) {
+		return moveProxy(proxyId, bounds.getMinx(), bounds.getMiny(), bounds.getMinz(),
+				bounds.getMaxx(), bounds.getMaxy(), bounds.getMaxz(),
+				displacement.getX(), displacement.getY(), displacement.getZ());
+	}
+
+	/**
+	 * Updates the bounds of a proxy after its object moved.
+	 * <br>Nothing happens while the new bounds still fit in the fattened bounds of the proxy.
+	 * Otherwise the proxy is reinserted with bounds fattened by the margin and stretched in the direction it is moving.
+	 * @param dx Distance the object moved along the x axis since the last update, used to predict the next movement
+	 * @param dy Distance the object moved along the y axis since the last update
+	 * @param dz Distance the object moved along the z axis since the last update
+	 * @return true if the proxy was reinserted
+	 */
+	public boolean moveProxy(int proxyId, float bMinx, float bMiny, float bMinz, float bMaxx, float bMaxy, float bMaxz,
+			float dx, float dy, float dz) {
+		checkProxy(proxyId);
+		if(minx[proxyId] <= bMinx && miny[proxyId] <= bMiny && minz[proxyId] <= bMinz
+				&& maxx[proxyId] >= bMaxx && maxy[proxyId] >= bMaxy && maxz[proxyId] >= bMaxz) {
+			return false;
+		}
+		removeLeaf(proxyId);
+
+		float fMinx = bMinx - margin;
+		float fMiny = bMiny - margin;
+		float fMinz = bMinz - margin;
+		float fMaxx = bMaxx + margin;
+		float fMaxy = bMaxy + margin;
+		float fMaxz = bMaxz + margin;
+		dx *= DISPLACEMENT_MULTIPLIER;
+		dy *= DISPLACEMENT_MULTIPLIER;
+		dz *= DISPLACEMENT_MULTIPLIER;
+		if(dx < 0) {
+			fMinx += dx;
+		} else {
+			fMaxx += dx;
+		}
+		if(dy < 0) {
+			fMiny += dy;
+		} else {
+			fMaxy += dy;
+		}
+		if(dz < 0) {
+			fMinz += dz;
+		} else {
+			fMaxz += dz;
+		}
+		minx[proxyId] = fMinx;
+		miny[proxyId] = fMiny;
+		minz[proxyId] = fMinz;
+		maxx[proxyId] = fMaxx;
+		maxy[proxyId] = fMaxy;
+		maxz[proxyId] = fMaxz;
+
+		insertLeaf(proxyId);
+		return true;
+	}
+
+	private void checkProxy(int proxyId) {
+		if(proxyId < 0 || proxyId >= height.length || height[proxyId] != 0) {
+			throw new IllegalArgumentException("Invalid proxy id " + proxyId);
+		}
+	}
+
+	/**
+	 * @return The value passed to createProxy for this proxy
+	 */
+	public int getUserData(int proxyId) {
+		return userData[proxyId];
+	}
+
+	/**
+	 * @return The fattened bounds stored for this proxy
+	 */
+	public AABB getFatAABB(int proxyId) {
+		return new AABB(minx[proxyId], miny[proxyId], minz[proxyId], maxx[proxyId], maxy[proxyId], maxz[proxyId]);
+	}
+
+	/**
+	 * @return Whether the fattened bounds of two proxies overlap
+	 */
+	public boolean testFatOverlap(int proxyA, int proxyB) {
+		return overlaps(proxyA, proxyB);
+	}
+
+	public int getProxyCount() {
+		return proxyCount;
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * @return The height of the tree, 0 for a single leaf and -1 for an empty tree
+	 */
+	public int getHeight() {
+		return root == NULL_NODE ? -1 : height[root];
+	}
+
+	private boolean isLeaf(int node) {
+		return child1[node] == NULL_NODE;
+	}
+
+	private boolean overlaps(int a, int b) {
+		return maxx[b] > minx[a] && minx[b] < maxx[a]
+				&& maxy[b] > miny[a] && miny[b] < maxy[a]
+				&& maxz[b] > minz[a] && minz[b] < maxz[a];
+	}
+
+	private float area(int node) {
+		float x = maxx[node] - minx[node];
+		float y = maxy[node] - miny[node];
+		float z = maxz[node] - minz[node];
+		return 2F * (x * y + y * z + z * x);
+	}
+
+	/**
+	 * @return The surface area of the box containing both nodes
+	 */
+	private float unionArea(int a, int b) {
+		float x = Math.max(maxx[a], maxx[b]) - Math.min(minx[a], minx[b]);
+		float y = Math.max(maxy[a], maxy[b]) - Math.min(miny[a], miny[b]);
+		float z = Math.max(maxz[a], maxz[b]) - Math.min(minz[a], minz[b]);
+		return 2F * (x * y + y * z + z * x);
+	}
+
+	/**
+	 * Sets the bounds of dest to the box containing a and b
+	 */
+	private void setUnion(int dest, int a, int b) {
+		minx[dest] = Math.min(minx[a], minx[b]);
+		miny[dest] = Math.min(miny[a], miny[b]);
+		minz[dest] = Math.min(minz[a], minz[b]);
+		maxx[dest] = Math.max(maxx[a], maxx[b]);
+		maxy[dest] = Math.max(maxy[a], maxy[b]);
+		maxz[dest] = Math.max(maxz[a], maxz[b]);
+	}
+
+	private void insertLeaf(int leaf) {
+		if(root == NULL_NODE) {
+			root = leaf;
+			parent[leaf] = NULL_NODE;
+			return;
+		}
+
+		//Descend towards the sibling with the lowest cost, where cost is the surface area added to the tree
+		int index = root;
+		while(!isLeaf(index)) {
+			int c1 = child1[index];
+			int c2 = child2[index];
+
+			float area = area(index);
+			float combinedArea = unionArea(index, leaf);
+			//Cost of creating a new parent for this node and the leaf
+			float cost = 2F * combinedArea;
+			//Minimum cost of pushing the leaf further down the tree
+			float inheritanceCost = 2F * (combinedArea - area);
+
+			float cost1 = unionArea(c1, leaf) + inheritanceCost;
+			if(!isLeaf(c1)) {
+				cost1 -= area(c1);
+			}
+			float cost2 = unionArea(c2, leaf) + inheritanceCost;
+			if(!isLeaf(c2)) {
+				cost2 -= area(c2);
+			}
+
+			if(cost < cost1 && cost < cost2) {
+				break;
+			}
+			index = cost1 < cost2 ? c1 : c2;
+		}
+		int sibling = index;
+
+		int oldParent = parent[sibling];
+		int newParent = allocateNode();
+		parent[newParent] = oldParent;
+		userData[newParent] = 0;
+		setUnion(newParent, leaf, sibling);
+		height[newParent] = height[sibling] + 1;
+		child1[newParent] = sibling;
+		child2[newParent] = leaf;
+		parent[sibling] = newParent;
+		parent[leaf] = newParent;
+		if(oldParent != NULL_NODE) {
+			if(child1[oldParent] == sibling) {
+				child1[oldParent] = newParent;
+			} else {
+				child2[oldParent] = newParent;
+			}
+		} else {
+			root = newParent;
+		}
+
+		refit(parent[leaf]);
+	}
+
+	private void removeLeaf(int leaf) {
+		if(leaf == root) {
+			root = NULL_NODE;
+			return;
+		}
+		int p = parent[leaf];
+		int grandParent = parent[p];
+		int sibling = child1[p] == leaf ? child2[p] : child1[p];
+
+		if(grandParent != NULL_NODE) {
+			if(child1[grandParent] == p) {
+				child1[grandParent] = sibling;
+			} else {
+				child2[grandParent] = sibling;
+			}
+			parent[sibling] = grandParent;
+			freeNode(p);
+			refit(grandParent);
+		} else {
+			root = sibling;
+			parent[sibling] = NULL_NODE;
+			freeNode(p);
+		}
+	}
+
+	/**
+	 * Walks from index to the root, rebalancing and recalculating the bounds and height of each node
+	 */
+	private void refit(int index) {
+		while(index != NULL_NODE) {
+			index = balance(index);
+			int c1 = child1[index];
+			int c2 = child2[index];
+			height[index] = 1 + Math.max(height[c1], height[c2]);
+			setUnion(index, c1, c2);
+			index = parent[index];
+		}
+	}
+
+	/**
+	 * Performs a left or right rotation if node a is imbalanced
+	 * @return The node which took the place of a
+	 */
+	private int balance(int a) {
+		if(isLeaf(a) || height[a] < 2) {
+			return a;
+		}
+		int b = child1[a];
+		int c = child2[a];
+		int balance = height[c] - height[b];
+
+		if(balance > 1) {
+			//Rotate c up
+			int f = child1[c];
+			int g = child2[c];
+			child1[c] = a;
+			parent[c] = parent[a];
+			parent[a] = c;
+			replaceChild(parent[c], a, c);
+			if(height[f] > height[g]) {
+				child2[c] = f;
+				child2[a] = g;
+				parent[g] = a;
+				setUnion(a, b, g);
+				setUnion(c, a, f);
+				height[a] = 1 + Math.max(height[b], height[g]);
+				height[c] = 1 + Math.max(height[a], height[f]);
+			} else {
+				child2[c] = g;
+				child2[a] = f;
+				parent[f] = a;
+				setUnion(a, b, f);
+				setUnion(c, a, g);
+				height[a] = 1 + Math.max(height[b], height[f]);
+				height[c] = 1 + Math.max(height[a], height[g]);
+			}
+			return c;
+		}
+
+		if(balance < -1) {
+			//Rotate b up
+			int d = child1[b];
+			int e = child2[b];
+			child1[b] = a;
+			parent[b] = parent[a];
+			parent[a] = b;
+			replaceChild(parent[b], a, b);
+			if(height[d] > height[e]) {
+				child2[b] = d;
+				child1[a] = e;
+				parent[e] = a;
+				setUnion(a, c, e);
+				setUnion(b, a, d);
+				height[a] = 1 + Math.max(height[c], height[e]);
+				height[b] = 1 + Math.max(height[a], height[d]);
+			} else {
+				child2[b] = e;
+				child1[a] = d;
+				parent[d] = a;
+				setUnion(a, c, d);
+				setUnion(b, a, e);
+				height[a] = 1 + Math.max(height[c], height[d]);
+				height[b] = 1 + Math.max(height[a], height[e]);
+			}
+			return b;
+		}
+		return a;
+	}
+
+	private void replaceChild(int node, int oldChild, int newChild) {
+		if(node == NULL_NODE) {
+			root = newChild;
+		} else if(child1[node] == oldChild) {
+			child1[node] = newChild;
+		} else {
+			child2[node] = newChild;
+		}
+	}
+
+	private void push(int node, float dist) {
+		if(stackTop == stack.length) {
+			stack = Arrays.copyOf(stack, stackTop * 2);
+			stackDist = Arrays.copyOf(stackDist, stackTop * 2);
+		}
+		stack[stackTop] = node;
+		stackDist[stackTop] = dist;
+		stackTop++;
+	}
+
+	public void query(AABB bounds, ProxyCallback callback) {
+		query(bounds.getMinx(), bounds.getMiny(), bounds.getMinz(),
+				bounds.getMaxx(), bounds.getMaxy(), bounds.getMaxz(), callback);
+	}
+
+	/**
+	 * Finds every proxy whose fattened bounds overlap a box, using the same rules as {@link AABB#intersects(AABB)}
+	 * @param callback Called for each proxy found
+	 */
+	public void query(float qMinx, float qMiny, float qMinz, float qMaxx, float qMaxy, float qMaxz, ProxyCallback callback) {
+		if(root == NULL_NODE) {
+			return;
+		}
+		int base = stackTop;
+		push(root, 0);
+		try {
+			while(stackTop > base) {
+				int node = stack[--stackTop];
+				if(maxx[node] > qMinx && minx[node] < qMaxx
+						&& maxy[node] > qMiny && miny[node] < qMaxy
+						&& maxz[node] > qMinz && minz[node] < qMaxz) {
+					if(isLeaf(node)) {
+						if(!callback.reportProxy(node)) {
+							return;
+						}
+					} else {
+						push(child1[node], 0);
+						push(child2[node], 0);
+					}
+				}
+			}
+		} finally {
+			stackTop = base;
+		}
+	}
+
+	/**
+	 * Finds the nearest proxy hit by a ray
+	 * @see #rayCast(float, float, float, float, float, float, float, RayCastCallback)
+	 */
+	public int rayCast(Vec3 pos, Vec3 dir, float maxDist, RayCastCallback callback) {
+		return rayCast(pos.getX(), pos.getY(), pos.getZ(), dir.getX(), dir.getY(), dir.getZ(), maxDist, callback);
+	}
+
+	/**
+	 * Finds the nearest proxy hit by a ray. Nodes are visited nearest first and skipped once they
+	 * are further away than the nearest hit so far.
+	 * <br>Distances are measured in multiples of the length of the direction, pass a normalized direction to get world units.
+	 * @param ox X coordinate of the start of the ray
+	 * @param oy Y coordinate of the start of the ray
+	 * @param oz Z coordinate of the start of the ray
+	 * @param dx X component of the direction of the ray
+	 * @param dy Y component of the direction of the ray
+	 * @param dz Z component of the direction of the ray
+	 * @param maxDist Length of the ray
+	 * @param callback Tests the ray against the object of each proxy whose bounds are hit.
+	 * If null, the distance to the fattened bounds of the proxy is used instead
+	 * @return The id of the nearest proxy hit, or NULL_NODE if none were hit.
+	 * The distance of the hit is returned by {@link #getRayHitDistance()}
+	 */
+	public int rayCast(float ox, float oy, float oz, float dx, float dy, float dz, float maxDist, RayCastCallback callback) {
+		//A huge finite inverse for zero components keeps the slab distances from becoming 0 * infinity = NaN
+		float invx = dx == 0 ? Float.MAX_VALUE : 1F / dx;
+		float invy = dy == 0 ? Float.MAX_VALUE : 1F / dy;
+		float invz = dz == 0 ? Float.MAX_VALUE : 1F / dz;
+		float best = maxDist;
+		int bestProxy = NULL_NODE;
+		if(root == NULL_NODE) {
+			return NULL_NODE;
+		}
+		float rootDist = slab(root, ox, oy, oz, invx, invy, invz, best);
+		if(rootDist == Float.POSITIVE_INFINITY) {
+			return NULL_NODE;
+		}
+		int base = stackTop;
+		push(root, rootDist);
+		try {
+			while(stackTop > base) {
+				stackTop--;
+				int node = stack[stackTop];
+				if(stackDist[stackTop] >= best) {
+					continue;
+				}
+				if(isLeaf(node)) {
+					float dist = callback == null ? stackDist[stackTop] : callback.rayCast(node, best);
+					if(dist >= 0 && dist < best) {
+						best = dist;
+						bestProxy = node;
+					}
+				} else {
+					int c1 = child1[node];
+					int c2 = child2[node];
+					float d1 = slab(c1, ox, oy, oz, invx, invy, invz, best);
+					float d2 = slab(c2, ox, oy, oz, invx, invy, invz, best);
+					//Push the further child first so the nearer one is visited first
+					if(d1 < d2) {
+						if(d2 != Float.POSITIVE_INFINITY) {
+							push(c2, d2);
+						}
+						push(c1, d1);
+					} else {
+						if(d1 != Float.POSITIVE_INFINITY) {
+							push(c1, d1);
+						}
+						if(d2 != Float.POSITIVE_INFINITY) {
+							push(c2, d2);
+						}
+					}
+				}
+			}
+		} finally {
+			stackTop = base;
+		}
+		rayHitDist = best;
+		return bestProxy;
+	}
+
+	/**
+	 * @return The distance of the hit found by the last successful ray cast
+	 */
+	public float getRayHitDistance() {
+		return rayHitDist;
+	}
+
+	/**
+	 * @return The distance along the ray where it enters the node, clamped to 0,
+	 * or positive infinity if the ray misses the node before maxDist
+	 */
+	private float slab(int node, float ox, float oy, float oz, float invx, float invy, float invz, float maxDist) {
+		float tx1 = (minx[node] - ox) * invx;
+		float tx2 = (maxx[node] - ox) * invx;
+		float ty1 = (miny[node] - oy) * invy;
+		float ty2 = (maxy[node] - oy) * invy;
+		float tz1 = (minz[node] - oz) * invz;
+		float tz2 = (maxz[node] - oz) * invz;
+		float tmin = Math.max(Math.max(Math.min(tx1, tx2), Math.min(ty1, ty2)), Math.max(Math.min(tz1, tz2), 0F));
+		float tmax = Math.min(Math.min(Math.max(tx1, tx2), Math.max(ty1, ty2)), Math.min(Math.max(tz1, tz2), maxDist));
+		return tmin <= tmax ? tmin : Float.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Finds every pair of proxies whose fattened bounds overlap. Each pair is reported once, with the lower id first
+	 * @param callback Called for each pair
+	 */
+	public void queryPairs(PairCallback callback) {
+		if(root == NULL_NODE) {
+			return;
+		}
+		int base = stackTop;
+		try {
+			for(int leaf = 0; leaf < height.length; leaf++) {
+				if(height[leaf] != 0) {
+					continue;
+				}
+				push(root, 0);
+				while(stackTop > base) {
+					int node = stack[--stackTop];
+					if(node == leaf || !overlaps(node, leaf)) {
+						continue;
+					}
+					if(isLeaf(node)) {
+						if(node > leaf) {
+							callback.reportPair(leaf, node);
+						}
+					} else {
+						push(child1[node], 0);
+						push(child2[node], 0);
+					}
+				}
+			}
+		} finally {
+			stackTop = base;
+		}
+	}
+
+}
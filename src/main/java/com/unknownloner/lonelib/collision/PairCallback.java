@@ -0,0 +1,11 @@
+package com.unknownloner.lonelib.collision;
+
+public interface PairCallback {
+
+	/**
+	 * Called once for each pair of proxies whose bounds overlap
+	 * @param proxyA The proxy with the lower id
+	 * @param proxyB The proxy with the higher id
+	 */
+	public void reportPair(int proxyA, int proxyB);
+}
@@ -0,0 +1,11 @@
+package com.unknownloner.lonelib.collision;
+
+public interface ProxyCallback {
+
+	/**
+	 * Called for each proxy found by a query
+	 * @param proxyId The proxy whose bounds overlap the query
+	 * @return true to continue the query, false to stop it
+	 */
+	public boolean reportProxy(int proxyId);
+}
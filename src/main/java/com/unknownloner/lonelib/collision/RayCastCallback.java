@@ -0,0 +1,13 @@
+package com.unknownloner.lonelib.collision;
+
+public interface RayCastCallback {
+
+	/**
+	 * Called for each proxy whose bounds are hit by the ray, nearest bounds first.
+	 * Use this to test the ray against the actual object of the proxy.
+	 * @param proxyId The proxy whose bounds are hit
+	 * @param maxDist The distance of the nearest hit found so far. Hits further than this are ignored
+	 * @return The distance along the ray of the hit with the object, or a negative value if it is missed
+	 */
+	public float rayCast(int proxyId, float maxDist);
+}
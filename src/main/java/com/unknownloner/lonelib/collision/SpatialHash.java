@@ -0,0 +1,393 @@
+package com.unknownloner.lonelib.collision;
+
+import java.util.Arrays;
+
+import com.unknownloner.lonelib.math.AABB;
+import com.unknownloner.lonelib.math.Vec3;
+
+/**
+ * A broadphase which sorts boxes into the cells of a uniform grid, for worlds where most boxes move every frame.
+ * <br>Boxes are added as handles. Moving boxes only replaces their bounds, the grid is rebuilt once
+ * before the next query, so updating every box in a frame costs a single rebuild.
+ * <br>Cells are found through an open addressing table keyed by the packed integer cell coordinates,
+ * and the boxes in each cell are chained through primitive arrays. Nothing is allocated once the
+ * tables have grown to fit the world. Cell coordinates are clamped to +-2^20 on each axis, so boxes past that
+ * share the outermost cells, which is still correct but slower. Bounds must be finite.
+ * <br>Queries are not reentrant and the hash is not thread safe.
+ */
+public class SpatialHash {
+
+	private static final long EMPTY = -1L;
+	private static final int COORD_MASK = 0x1FFFFF;
+	private static final int MAX_CELL = (1 << 20) - 1;
+
+	private final float cellSize;
+	private final float invCellSize;
+
+	private AABB[] bounds;
+	private int handleCount;
+	private int[] freeHandles;
+	private int freeCount;
+	private int[] marks;
+	private int epoch;
+
+	private long[] cellKeys;
+	private int[] cellHeads;
+	private int cellCount;
+	private int shift;
+
+	private int[] entryHandle;
+	private int[] entryNext;
+	private int entryCount;
+
+	private boolean dirty;
+	private int[] candidates = new int[64];
+
+	/**
+	 * @param cellSize Size of the grid cells, ideally a little larger than a typical box
+	 * @param initialCapacity Number of boxes to allocate room for
+	 */
+	public SpatialHash(float cellSize, int initialCapacity) {
+		this.cellSize = cellSize;
+		this.invCellSize = 1F / cellSize;
+		int capacity = Math.max(initialCapacity, 16);
+		bounds = new AABB[capacity];
+		freeHandles = new int[capacity];
+		marks = new int[capacity];
+		entryHandle = new int[capacity * 2];
+		entryNext = new int[capacity * 2];
+		int tableSize = Integer.highestOneBit(capacity * 4 - 1) << 1;
+		cellKeys = new long[tableSize];
+		cellHeads = new int[tableSize];
+		shift = 64 - Integer.numberOfTrailingZeros(tableSize);
+		Arrays.fill(cellKeys, EMPTY);
+	}
+
+	public float getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * Adds a box to the hash
+	 * @return The handle of the box
+	 */
+	public int add(AABB box) {
+		checkBounds(box);
+		int handle;
+		if(freeCount > 0) {
+			handle = freeHandles[--freeCount];
+		} else {
+			if(handleCount == bounds.length) {
+				int capacity = handleCount * 2;
+				bounds = Arrays.copyOf(bounds, capacity);
+				freeHandles = Arrays.copyOf(freeHandles, capacity);
+				marks = Arrays.copyOf(marks, capacity);
+			}
+			handle = handleCount++;
+		}
+		bounds[handle] = box;
+		dirty = true;
+		return handle;
+	}
+
+	/**
+	 * Removes a box from the hash. Its handle may be reused by a later box
+	 */
+	public void remove(int handle) {
+		if(bounds[handle] == null) {
+			throw new IllegalArgumentException("Invalid handle " + handle);
+		}
+		bounds[handle] = null;
+		freeHandles[freeCount++] = handle;
+		dirty = true;
+	}
+
+	/**
+	 * Replaces the bounds of a box. The grid is updated before the next query
+	 */
+	public void update(int handle, AABB box) {
+		if(bounds[handle] == null) {
+			throw new IllegalArgumentException("Invalid handle " + handle);
+		}
+		checkBounds(box);
+		bounds[handle] = box;
+		dirty = true;
+	}
+
+	/**
+	 * @return The current bounds of a box
+	 */
+	public AABB get(int handle) {
+		return bounds[handle];
+	}
+
+	/**
+	 * @return The number of boxes in the hash
+	 */
+	public int size() {
+		return handleCount - freeCount;
+	}
+
+	/**
+	 * @return The cell coordinate of a position, clamped to the range keys can hold
+	 */
+	private int cell(float pos) {
+		return Math.max(-MAX_CELL - 1, Math.min(MAX_CELL, (int)Math.floor(pos * invCellSize)));
+	}
+
+	private static void checkBounds(AABB box) {
+		checkBounds(box.getMinx(), box.getMiny(), box.getMinz(), box.getMaxx(), box.getMaxy(), box.getMaxz());
+	}
+
+	/**
+	 * Rejects bounds which are infinite or NaN, since they have no cells
+	 */
+	private static void checkBounds(float minx, float miny, float minz, float maxx, float maxy, float maxz) {
+		//abs(NaN) <= MAX_VALUE is false as well
+		if(!(Math.abs(minx) <= Float.MAX_VALUE && Math.abs(miny) <= Float.MAX_VALUE && Math.abs(minz) <= Float.MAX_VALUE
+				&& Math.abs(maxx) <= Float.MAX_VALUE && Math.abs(maxy) <= Float.MAX_VALUE && Math.abs(maxz) <= Float.MAX_VALUE)) {
+			throw new IllegalArgumentException("Bounds must be finite: (" + minx + ", " + miny + ", " + minz
+					+ ") to (" + maxx + ", " + maxy + ", " + maxz + ")");
+		}
+	}
+
+	private static long key(int cx, int cy, int cz) {
+		return ((long)(cx & COORD_MASK) << 42) | ((long)(cy & COORD_MASK) << 21) | (cz & COORD_MASK);
+	}
+
+	/**
+	 * @return The slot of the cell in the table, or the empty slot where it would go
+	 */
+	private int findSlot(long key) {
+		int mask = cellKeys.length - 1;
+		int slot = (int)((key * 0x9E3779B97F4A7C15L) >>> shift);
+		while(cellKeys[slot] != EMPTY && cellKeys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Sorts every box into the cells it overlaps.
+	 * This is done automatically before a query if any box was added, removed or updated
+	 */
+	public void rebuild() {
+		Arrays.fill(cellKeys, EMPTY);
+		cellCount = 0;
+		entryCount = 0;
+		for(int handle = 0; handle < handleCount; handle++) {
+			AABB box = bounds[handle];
+			if(box == null) {
+				continue;
+			}
+			int x1 = cell(box.getMinx()), y1 = cell(box.getMiny()), z1 = cell(box.getMinz());
+			int x2 = cell(box.getMaxx()), y2 = cell(box.getMaxy()), z2 = cell(box.getMaxz());
+			for(int cx = x1; cx <= x2; cx++) {
+				for(int cy = y1; cy <= y2; cy++) {
+					for(int cz = z1; cz <= z2; cz++) {
+						insert(key(cx, cy, cz), handle);
+					}
+				}
+			}
+		}
+		dirty = false;
+	}
+
+	private void insert(long key, int handle) {
+		int slot = findSlot(key);
+		if(cellKeys[slot] == EMPTY) {
+			if((cellCount + 1) * 2 > cellKeys.length) {
+				growTable();
+				slot = findSlot(key);
+			}
+			cellKeys[slot] = key;
+			cellHeads[slot] = -1;
+			cellCount++;
+		}
+		if(entryCount == entryHandle.length) {
+			entryHandle = Arrays.copyOf(entryHandle, entryCount * 2);
+			entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+		}
+		int entry = entryCount++;
+		entryHandle[entry] = handle;
+		entryNext[entry] = cellHeads[slot];
+		cellHeads[slot] = entry;
+	}
+
+	private void growTable() {
+		long[] oldKeys = cellKeys;
+		int[] oldHeads = cellHeads;
+		cellKeys = new long[oldKeys.length * 2];
+		cellHeads = new int[oldKeys.length * 2];
+		shift--;
+		Arrays.fill(cellKeys, EMPTY);
+		for(int i = 0; i < oldKeys.length; i++) {
+			if(oldKeys[i] != EMPTY) {
+				int slot = findSlot(oldKeys[i]);
+				cellKeys[slot] = oldKeys[i];
+				cellHeads[slot] = oldHeads[i];
+			}
+		}
+	}
+
+	private void nextEpoch() {
+		if(++epoch == 0) {
+			Arrays.fill(marks, 0);
+			epoch = 1;
+		}
+	}
+
+	public void query(AABB box, ProxyCallback callback) {
+		query(box.getMinx(), box.getMiny(), box.getMinz(), box.getMaxx(), box.getMaxy(), box.getMaxz(), -1, callback);
+	}
+
+	/**
+	 * Finds every other box overlapping a box in the hash
+	 * @param handle The box to find the neighbors of
+	 * @param callback Called with the handle of each neighbor
+	 */
+	public void queryNeighbors(int handle, ProxyCallback callback) {
+		if(dirty) {
+			rebuild();
+		}
+		AABB box = bounds[handle];
+		query(box.getMinx(), box.getMiny(), box.getMinz(), box.getMaxx(), box.getMaxy(), box.getMaxz(), handle, callback);
+	}
+
+	/**
+	 * Finds every box overlapping a box, using the same rules as {@link AABB#intersects(AABB)}.
+	 * Each box is reported once, even if it shares several cells with the query box
+	 * @param ignore A handle to leave out of the results, or -1
+	 * @param callback Called with the handle of each box found
+	 */
+	public void query(float qMinx, float qMiny, float qMinz, float qMaxx, float qMaxy, float qMaxz, int ignore, ProxyCallback callback) {
+		int count = collect(qMinx, qMiny, qMinz, qMaxx, qMaxy, qMaxz, ignore);
+		int[] candidates = this.candidates;
+		for(int i = 0; i < count; i++) {
+			int handle = candidates[i];
+			AABB box = bounds[handle];
+			if(box.getMaxx() > qMinx && box.getMinx() < qMaxx
+					&& box.getMaxy() > qMiny && box.getMiny() < qMaxy
+					&& box.getMaxz() > qMinz && box.getMinz() < qMaxz) {
+				if(!callback.reportProxy(handle)) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds every pair of overlapping boxes, with the lower handle first.
+	 * <br>A pair sharing several cells is only reported by the cell holding the minimum corner of their overlap,
+	 * so each pair is reported exactly once.
+	 * @param callback Called for each pair
+	 */
+	public void queryPairs(PairCallback callback) {
+		if(dirty) {
+			rebuild();
+		}
+		for(int slot = 0; slot < cellKeys.length; slot++) {
+			long key = cellKeys[slot];
+			if(key == EMPTY) {
+				continue;
+			}
+			for(int e1 = cellHeads[slot]; e1 != -1; e1 = entryNext[e1]) {
+				int a = entryHandle[e1];
+				AABB boxA = bounds[a];
+				for(int e2 = entryNext[e1]; e2 != -1; e2 = entryNext[e2]) {
+					int b = entryHandle[e2];
+					AABB boxB = bounds[b];
+					if(!boxA.intersects(boxB)) {
+						continue;
+					}
+					int cx = cell(Math.max(boxA.getMinx(), boxB.getMinx()));
+					int cy = cell(Math.max(boxA.getMiny(), boxB.getMiny()));
+					int cz = cell(Math.max(boxA.getMinz(), boxB.getMinz()));
+					if(key(cx, cy, cz) != key) {
+						continue;
+					}
+					if(a < b) {
+						callback.reportPair(a, b);
+					} else {
+						callback.reportPair(b, a);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Clips the movement of a box against the boxes in the hash, using {@link AABB#calcYOffset},
+	 * {@link AABB#calcXOffset} and {@link AABB#calcZOffset} against only the boxes near the path of the mover.
+	 * The movement is resolved along the y axis first, then x, then z.
+	 * @param mover Bounds of the moving box
+	 * @param motion The movement the box wants to make
+	 * @param ignore The handle of the mover if it is in the hash, or -1
+	 * @return The movement the box can make without entering another box
+	 */
+	public Vec3 clipMovement(AABB mover, Vec3 motion, int ignore) {
+		AABB swept = mover.add(motion);
+		int count = collect(swept.getMinx(), swept.getMiny(), swept.getMinz(),
+				swept.getMaxx(), swept.getMaxy(), swept.getMaxz(), ignore);
+		int[] candidates = this.candidates;
+
+		float dy = motion.getY();
+		for(int i = 0; i < count; i++) {
+			dy = bounds[candidates[i]].calcYOffset(mover, dy);
+		}
+		mover = mover.offset(new Vec3(0, dy, 0));
+
+		float dx = motion.getX();
+		for(int i = 0; i < count; i++) {
+			dx = bounds[candidates[i]].calcXOffset(mover, dx);
+		}
+		mover = mover.offset(new Vec3(dx, 0, 0));
+
+		float dz = motion.getZ();
+		for(int i = 0; i < count; i++) {
+			dz = bounds[candidates[i]].calcZOffset(mover, dz);
+		}
+		return new Vec3(dx, dy, dz);
+	}
+
+	/**
+	 * Collects the handles of every box touching the cells of a box into candidates
+	 * @return The number of handles collected
+	 */
+	private int collect(float qMinx, float qMiny, float qMinz, float qMaxx, float qMaxy, float qMaxz, int ignore) {
+		checkBounds(qMinx, qMiny, qMinz, qMaxx, qMaxy, qMaxz);
+		if(dirty) {
+			rebuild();
+		}
+		nextEpoch();
+		if(ignore >= 0) {
+			marks[ignore] = epoch;
+		}
+		int count = 0;
+		int x1 = cell(qMinx), y1 = cell(qMiny), z1 = cell(qMinz);
+		int x2 = cell(qMaxx), y2 = cell(qMaxy), z2 = cell(qMaxz);
+		for(int cx = x1; cx <= x2; cx++) {
+			for(int cy = y1; cy <= y2; cy++) {
+				for(int cz = z1; cz <= z2; cz++) {
+					int slot = findSlot(key(cx, cy, cz));
+					if(cellKeys[slot] == EMPTY) {
+						continue;
+					}
+					for(int entry = cellHeads[slot]; entry != -1; entry = entryNext[entry]) {
+						int handle = entryHandle[entry];
+						if(marks[handle] == epoch) {
+							continue;
+						}
+						marks[handle] = epoch;
+						if(count == candidates.length) {
+							candidates = Arrays.copyOf(candidates, count * 2);
+						}
+						candidates[count++] = handle;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+}
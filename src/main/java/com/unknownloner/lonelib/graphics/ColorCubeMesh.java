@@ -1,10 +1,6 @@
 package com.unknownloner.lonelib.graphics;
 
-import java.nio.FloatBuffer;
-import java.nio.IntBuffer;
-
 import com.unknownloner.lonelib.graphics.buffers.VertexAttribIPointer;
-import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL15;
 
@@ -12,6 +8,8 @@ import com.unknownloner.lonelib.graphics.buffers.VertexArrayObject;
 import com.unknownloner.lonelib.graphics.buffers.VertexAttribPointer;
 import com.unknownloner.lonelib.graphics.buffers.VertexBufferObject;
 import com.unknownloner.lonelib.math.Vec3;
+import com.unknownloner.lonelib.util.IntBufferBuilder;
+import com.unknownloner.lonelib.util.VertexBufferBuilder;
 import org.lwjgl.opengl.GL31;
 
 /**
@@ -38,9 +36,8 @@ public class ColorCubeMesh implements Mesh {
     private final VertexBufferObject indexBuffer;
     private final VertexArrayObject vao;
 
-    private final FloatBuffer verts;
-    private final IntBuffer indices;
-    private int index = 0;
+    private final VertexBufferBuilder verts;
+    private final IntBufferBuilder indices;
     private int numIndices = 0;
 
     public static final short BYTES_PER_VERT = 28; // 7 values * 4 bytes;
@@ -49,9 +46,17 @@ public class ColorCubeMesh implements Mesh {
     public static final int RESET_INDEX = Integer.MAX_VALUE;
 
     /**
-     * Construct a mesh for use at the given world position, with the number of maximum triangles
+     * Construct a mesh for use at the given world position. The mesh grows to fit any number of cubes
+     * @param position
+     */
+    public ColorCubeMesh(Vec3 position) {
+        this(position, 0);
+    }
+
+    /**
+     * Construct a mesh for use at the given world position, with room for a number of cubes up front
      * @param position
-     * @param maxCubes to render
+     * @param maxCubes expected number of cubes. More can be added, at the cost of growing the buffers
      */
     public ColorCubeMesh(Vec3 position, int maxCubes) {
         this.position = position;
@@ -62,8 +67,8 @@ public class ColorCubeMesh implements Mesh {
                 new VertexAttribPointer(vertBuffer, 1, 3, GL11.GL_FLOAT, false, BYTES_PER_VERT, (3 * 4)), // 3 normals per vertex
                 new VertexAttribIPointer(vertBuffer, 2, 1, GL11.GL_UNSIGNED_INT, BYTES_PER_VERT, (3 + 3) * 4) // 1 packed int for color data
         );
-        verts = BufferUtils.createFloatBuffer(maxCubes * FLOATS_PER_CUBE);
-        indices = BufferUtils.createIntBuffer(maxCubes * 18); // 16 indices per Cube + 2 reset calls
+        verts = new VertexBufferBuilder(BYTES_PER_VERT, maxCubes * 8);
+        indices = new IntBufferBuilder(maxCubes * 18); // 16 indices per Cube + 2 reset calls
     }
 
     /**
@@ -95,8 +100,8 @@ public class ColorCubeMesh implements Mesh {
      * @return index it was added at
      */
     private int addVertex(float x, float y, float z, int abgr, float normX, float normY, float normZ) {
-        verts.put(new float[] {x, y, z, normX, normY, normZ, Float.intBitsToFloat(abgr)});
-        return index++;
+        verts.put(x, y, z).put(normX, normY, normZ).putInt(abgr);
+        return verts.endVertex();
     }
 
     private void addCubeStrip(int[] indices) {
@@ -106,17 +111,15 @@ public class ColorCubeMesh implements Mesh {
 
     @Override
     public void finalizeMesh() {
-        verts.flip();
-        indices.flip();
-        vertBuffer.bufferData(verts, GL15.GL_STATIC_DRAW);
-        indexBuffer.bufferData(indices, GL15.GL_STATIC_DRAW);
+        vertBuffer.bufferData(verts.flip(), GL15.GL_STATIC_DRAW);
+        indexBuffer.bufferData(indices.flip(), GL15.GL_STATIC_DRAW);
     }
 
     @Override
     public void reset() {
-        verts.clear();
-        indices.clear();
-        index = numIndices = 0;
+        verts.reset();
+        indices.reset();
+        numIndices = 0;
    }
 
     @Override
@@ -135,6 +138,8 @@ public class ColorCubeMesh implements Mesh {
         vertBuffer.delete();
         indexBuffer.delete();
         vao.delete();
+        verts.free();
+        indices.free();
     }
 
     @Override
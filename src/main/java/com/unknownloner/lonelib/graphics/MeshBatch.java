@@ -19,6 +19,12 @@ public class MeshBatch {
     private String modelLocation;
     private Vec3 scale;
     private final ShaderProgram program;
+    private final Mat4 model = Mat4.IDENTITY.copy();
+    private Mat4 view;
+    private Mat4 projection;
+    private final Mat4 viewProjection = Mat4.IDENTITY.copy();
+    private final Mat4 modelViewProjection = Mat4.IDENTITY.copy();
+    private final Mat3 normMatrix = Mat3.IDENTITY.copy();
 
     public MeshBatch(ShaderProgram program, String modelLocation, Vec3 scale) {
         this.program = program;
@@ -26,12 +32,55 @@ public class MeshBatch {
         this.scale = scale;
     }
 
+    /**
+     * Creates a batch which computes Projection * View * Model and the normal matrix of each mesh on the CPU,
+     * for use with the MVP shader variants such as /shaders/PrimaryShaderMVP.vert
+     * @see #setCamera(Mat4, Mat4)
+     */
+    public MeshBatch(ShaderProgram program, Vec3 scale, Mat4 view, Mat4 projection) {
+        this(program, null, scale);
+        setCamera(view, projection);
+    }
+
+    /**
+     * Switches the batch to computing {@link ShaderProgram#MODEL_VIEW_PROJECTION} and {@link ShaderProgram#NORM_MATRIX}
+     * once per mesh, instead of uploading only the model matrix and leaving the products to every vertex.
+     * <br>The matrices are read on every render, so they can be changed in place between frames.
+     * Passing null for both switches back to uploading the model matrix, which needs a model location
+     * @param view View matrix
+     * @param projection Projection matrix
+     */
+    public void setCamera(Mat4 view, Mat4 projection) {
+        if((view == null) != (projection == null)) {
+            throw new IllegalArgumentException("View and projection must both be set or both be null");
+        }
+        if(view == null && modelLocation == null) {
+            throw new IllegalStateException("No model location to upload the model matrix to");
+        }
+        this.view = view;
+        this.projection = projection;
+    }
+
     public void render() {
         program.assign();
+        boolean precomputed = view != null;
+        if (precomputed) {
+            Mat4.mul(projection, view, viewProjection);
+        }
 
         // render each mesh that's active
         for (Mesh mesh : displayList) {
-            program.setUniform(modelLocation, Mat4.IDENTITY.translate(mesh.getPosition()).scale(scale));
+            Vec3 pos = mesh.getPosition();
+            Mat4.makeTranslation(pos.getX(), pos.getY(), pos.getZ(), model);
+            Mat4.scale(scale, model, model);
+            // the matrices are reused for every mesh, so the uniforms have to be assigned before the next one is built
+            if (precomputed) {
+                Mat4.mul(viewProjection, model, modelViewProjection);
+                Mat3.toNormalMatrix(model, normMatrix);
+                program.setTransformUniforms(modelViewProjection, normMatrix);
+            } else {
+                program.setUniform(modelLocation, model);
+            }
             program.assignUniforms();
             mesh.render();
         }
@@ -0,0 +1,215 @@
+package com.unknownloner.lonelib.graphics.buffers;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.lwjgl.opengl.ContextCapabilities;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GLContext;
+import org.lwjgl.opengl.GLSync;
+
+/**
+ * A ring buffer over one large buffer object, for vertex data which is written by the CPU every frame,
+ * such as text or particles.
+ * <br>Each {@link #allocate(int, int)} hands out the next free range of the buffer, mapped for writing without
+ * synchronization, so the driver never has to wait for the GPU or reallocate the buffer. The ring is split into
+ * regions, and {@link #fence()} places a fence behind every region written since the last fence. Before the ring
+ * comes back around to a region it waits for that fence, so data the GPU may still be reading is never overwritten.
+ * <br>Without sync objects (OpenGL 3.2 or ARB_sync) the buffer is orphaned each time the ring wraps instead,
+ * and the driver takes care of data still in use.
+ * <br>Usage: allocate, write into the returned buffer, {@link #commit()}, draw using {@link #getOffset()},
+ * and call {@link #fence()} after the draws which read the data, at least once per frame.
+ */
+public class StreamingBuffer {
+
+	private static final int DEFAULT_REGIONS = 4;
+	/**
+	 * Nanoseconds to wait for a fence in one call before flushing and trying again
+	 */
+	private static final long WAIT_TIMEOUT = 1000000L;
+
+	private final VertexBufferObject buffer;
+	private final int target;
+	private final int size;
+	private final int regionSize;
+	private final boolean sync;
+
+	private final GLSync[] fences;
+	/**
+	 * Whether each region has been written since the last fence
+	 */
+	private final boolean[] written;
+	private int region = -1;
+	private int head;
+
+	private int offset;
+	private boolean mapped;
+
+	/**
+	 * @param target Buffer target, such as GL_ARRAY_BUFFER
+	 * @param size Size of the ring in bytes
+	 */
+	public StreamingBuffer(int target, int size) {
+		this(target, size, DEFAULT_REGIONS);
+	}
+
+	/**
+	 * @param target Buffer target, such as GL_ARRAY_BUFFER
+	 * @param size Size of the ring in bytes
+	 * @param regions Number of regions the ring is fenced in. More regions wait less but use more fences
+	 */
+	public StreamingBuffer(int target, int size, int regions) {
+		if(regions <= 0 || size < regions) {
+			throw new IllegalArgumentException("Can not split " + size + " bytes into " + regions + " regions");
+		}
+		this.target = target;
+		this.size = size;
+		this.regionSize = (size + regions - 1) / regions;
+		this.buffer = new VertexBufferObject(target, GL15.GL_STREAM_DRAW, size);
+		ContextCapabilities caps = GLContext.getCapabilities();
+		this.sync = caps.OpenGL32 || caps.GL_ARB_sync;
+		this.fences = new GLSync[regions];
+		this.written = new boolean[regions];
+	}
+
+	/**
+	 * @return The buffer object the ring lives in, to point vertex attributes at
+	 */
+	public VertexBufferObject getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * @return Whether fences are used, rather than orphaning the buffer
+	 */
+	public boolean isSynchronized() {
+		return sync;
+	}
+
+	/**
+	 * Gets the next range of the ring and maps it for writing. The buffer object is left bound to its target
+	 * @param bytes Size of the range
+	 * @param alignment The offset of the range is a multiple of this, such as the size of a vertex
+	 * @return The mapped range in native byte order, valid until {@link #commit()}
+	 */
+	public ByteBuffer allocate(int bytes, int alignment) {
+		if(mapped) {
+			throw new IllegalStateException("Previous allocation was not committed");
+		}
+		if(bytes <= 0 || bytes > size) {
+			throw new IllegalArgumentException("Can not allocate " + bytes + " bytes from a ring of " + size);
+		}
+		if(alignment <= 0) {
+			throw new IllegalArgumentException("Alignment must be positive: " + alignment);
+		}
+		int start = (head + alignment - 1) / alignment * alignment;
+		buffer.assign();
+		if(start > size - bytes) {
+			start = 0;
+			//Coming back around re-enters region 0 even if writing never left it, such as with a single region
+			region = -1;
+			if(!sync) {
+				//Give the old storage to the driver to free once the GPU is done with it
+				GL15.glBufferData(target, size, GL15.GL_STREAM_DRAW);
+			}
+		}
+		if(sync) {
+			int last = (start + bytes - 1) / regionSize;
+			for(int r = start / regionSize; r <= last; r++) {
+				if(r != region) {
+					enterRegion(r);
+				}
+			}
+		}
+		head = start + bytes;
+		offset = start;
+		mapped = true;
+		return GL30.glMapBufferRange(target, start, bytes,
+				GL30.GL_MAP_WRITE_BIT | GL30.GL_MAP_INVALIDATE_RANGE_BIT | GL30.GL_MAP_UNSYNCHRONIZED_BIT, null)
+				.order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Moves writing into region r, which holds data from the last time around the ring
+	 */
+	private void enterRegion(int r) {
+		if(written[r]) {
+			//Wrapped all the way around without a fence, so fence what has been drawn so far
+			fence();
+		}
+		GLSync fence = fences[r];
+		if(fence != null) {
+			int flags = GL32.GL_SYNC_FLUSH_COMMANDS_BIT;
+			int result;
+			while((result = GL32.glClientWaitSync(fence, flags, WAIT_TIMEOUT)) == GL32.GL_TIMEOUT_EXPIRED) {
+				flags = 0;
+			}
+			if(result == GL32.GL_WAIT_FAILED) {
+				throw new IllegalStateException("Waiting for a streaming buffer fence failed");
+			}
+			GL32.glDeleteSync(fence);
+			fences[r] = null;
+		}
+		written[r] = true;
+		region = r;
+	}
+
+	/**
+	 * Unmaps the last allocation, so it can be drawn
+	 */
+	public void commit() {
+		if(!mapped) {
+			throw new IllegalStateException("Nothing to commit");
+		}
+		buffer.assign();
+		GL15.glUnmapBuffer(target);
+		mapped = false;
+	}
+
+	/**
+	 * Places a fence behind every draw issued so far, protecting every region written since the last fence
+	 * until the GPU is done with it. Call after drawing from the committed allocations
+	 */
+	public void fence() {
+		if(!sync) {
+			return;
+		}
+		for(int r = 0; r < written.length; r++) {
+			if(written[r]) {
+				if(fences[r] != null) {
+					GL32.glDeleteSync(fences[r]);
+				}
+				fences[r] = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+				written[r] = false;
+			}
+		}
+		//The current region keeps being written after the fence, so it is marked as written again
+		if(region >= 0) {
+			written[region] = true;
+		}
+	}
+
+	/**
+	 * @return Byte offset of the last allocation in the buffer object
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public void delete() {
+		for(int r = 0; r < fences.length; r++) {
+			if(fences[r] != null) {
+				GL32.glDeleteSync(fences[r]);
+				fences[r] = null;
+			}
+		}
+		buffer.delete();
+	}
+
+}
@@ -9,11 +9,15 @@ import java.nio.FloatBuffer;
 import java.nio.ShortBuffer;
 
 import org.lwjgl.LWJGLException;
+import org.lwjgl.opengl.ContextCapabilities;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL13;
 import org.lwjgl.opengl.GL15;
-import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GLContext;
 
+import com.unknownloner.lonelib.graphics.buffers.StreamingBuffer;
 import com.unknownloner.lonelib.graphics.buffers.VertexArrayObject;
 import com.unknownloner.lonelib.graphics.buffers.VertexAttribPointer;
 import com.unknownloner.lonelib.graphics.buffers.VertexBufferObject;
@@ -29,10 +33,20 @@ public class FontRenderer {
 
 
     public static ShaderProgram globalFontProgram;
-	private static VertexBufferObject data = new VertexBufferObject(GL15.GL_ARRAY_BUFFER, GL15.GL_STREAM_DRAW, 128 * 9 * 4 * 4);
+	/**
+	 * Ring of vertex data for strings being drawn, room for 8192 characters of 144 bytes each
+	 */
+	private static StreamingBuffer stream = new StreamingBuffer(GL15.GL_ARRAY_BUFFER, 8192 * 144);
+	private static VertexBufferObject data = stream.getBuffer();
+	/**
+	 * Whether draws can start at a vertex offset into the ring, rather than moving the attribute pointers
+	 */
+	private static final boolean baseVertex;
 	private static VertexBufferObject inds = new VertexBufferObject(GL15.GL_ELEMENT_ARRAY_BUFFER, GL15.GL_STATIC_DRAW, 128 * 6 * 2);
 
     static {
+        ContextCapabilities caps = GLContext.getCapabilities();
+        baseVertex = caps.OpenGL32 || caps.GL_ARB_draw_elements_base_vertex;
         inds.assign();
         ShortBuffer indBuf = BufferUtil.createShortBuffer(128 * 6);
         for (short i = 0; i < 128 * 4; i += 4) {
@@ -62,6 +76,9 @@ public class FontRenderer {
 	private float[] texWidths = new float[256];
 	private float texHeight;
 	private float sizeOverPt;
+	private int posAttrib = 0;
+	private int colorAttrib = 1;
+	private int texCoordAttrib = 2;
 	private VertexArrayObject vao = new VertexArrayObject(
 			new VertexAttribPointer(data, 0, 3, GL11.GL_FLOAT, false, 9 * 4, 0),     //Position
 			new VertexAttribPointer(data, 1, 4, GL11.GL_FLOAT, false, 9 * 4, 3 * 4), //Color
@@ -102,6 +119,9 @@ public class FontRenderer {
 	
 	public void setShaderProgram(ShaderProgram prgm, int posAttrib, int colorAttrib, int texCoordAttrib) {
 		this.shaderProgram = prgm;
+		this.posAttrib = posAttrib;
+		this.colorAttrib = colorAttrib;
+		this.texCoordAttrib = texCoordAttrib;
 		vao.delete();
 		vao = new VertexArrayObject(
 				new VertexAttribPointer(data, posAttrib,      3, GL11.GL_FLOAT, false, 9 * 4, 0),     //Position
@@ -131,10 +151,12 @@ public class FontRenderer {
 		fontTexture.assign(GL13.GL_TEXTURE0);
 		shaderProgram.assign();
 		vao.assign();
-		data.assign();
 		inds.assign();
 		int strPos = 0;
 		char[] textChars = text.toCharArray();
+		if(textChars.length == 0) {
+			return;
+		}
 		float x = startPos.getX();
 		float y = startPos.getY();
 		float z = startPos.getZ();
@@ -147,11 +169,9 @@ public class FontRenderer {
 			int remaining = textChars.length - strPos;
 			int bytesToMap = remaining < 128 ? remaining * 144 /* 9 * 4 * 4 */ : 18432 /* 128 * 9 * 4 * 4 */;
 			
-			//Gets a ByteBuffer as a float buffer, the byte buffer being a java wrapper to a C pointer. This basically
-			//creates a memory map of the entire text rendering VBO, which will map directly to the GPU when it can
-			//GL_MAP_UNSYCNHRONIZED_BIT is used because it speeds up the process
-			FloatBuffer dataBuffer = GL30.glMapBufferRange(GL15.GL_ARRAY_BUFFER, 0, bytesToMap,
-					GL30.GL_MAP_WRITE_BIT | GL30.GL_MAP_UNSYNCHRONIZED_BIT, null).asFloatBuffer();
+			//Maps the next free range of the ring, which the GPU is not reading from, straight into memory the driver
+			//can upload from. The ring waits on a fence if it catches up with data still being drawn
+			FloatBuffer dataBuffer = stream.allocate(bytesToMap, 9 * 4).asFloatBuffer();
 			int charsToDisplay = 0;
 			for(int i = strPos, max = (remaining < 128 ? textChars.length : strPos + 128); i < max; i++) {
 				char c = textChars[i];
@@ -169,14 +189,26 @@ public class FontRenderer {
 					x += width;
 				}
 			}
-			GL15.glUnmapBuffer(GL15.GL_ARRAY_BUFFER);
-			GL11.glDrawElements(GL11.GL_TRIANGLES, charsToDisplay * 6, GL11.GL_UNSIGNED_SHORT, 0);
-			
-			//Orphans the buffer, allowing it to be filled with more data while the previous data renders (For consecutive string draws)
-			//More info can be found here http://www.opengl.org/wiki/Buffer_Object_Streaming
-			GL15.glBufferData(GL15.GL_ARRAY_BUFFER, 18432 /* 128*9*4*4 */, GL15.GL_STREAM_DRAW);
+			stream.commit();
+			if(baseVertex) {
+				GL32.glDrawElementsBaseVertex(GL11.GL_TRIANGLES, charsToDisplay * 6, GL11.GL_UNSIGNED_SHORT, 0, stream.getOffset() / (9 * 4));
+			} else {
+				pointAttribs(stream.getOffset());
+				GL11.glDrawElements(GL11.GL_TRIANGLES, charsToDisplay * 6, GL11.GL_UNSIGNED_SHORT, 0);
+			}
 			strPos += 128;
 		} while(strPos < textChars.length);
+		stream.fence();
+	}
+	
+	/**
+	 * Points the vertex attributes of the bound vao at vertices starting offset bytes into the ring
+	 */
+	private void pointAttribs(int offset) {
+		data.assign();
+		GL20.glVertexAttribPointer(posAttrib,      3, GL11.GL_FLOAT, false, 9 * 4, offset);
+		GL20.glVertexAttribPointer(colorAttrib,    4, GL11.GL_FLOAT, false, 9 * 4, offset + 3 * 4);
+		GL20.glVertexAttribPointer(texCoordAttrib, 2, GL11.GL_FLOAT, false, 9 * 4, offset + 7 * 4);
 	}
 	
 	/**
@@ -30,6 +30,16 @@ import com.unknownloner.lonelib.math.Vec4;
 
 public class ShaderProgram {
 	
+	/**
+	 * Name of the Projection * View * Model uniform read by the MVP shader variants, such as /shaders/PrimaryShaderMVP.vert
+	 */
+	public static final String MODEL_VIEW_PROJECTION = "ModelViewProjection";
+	
+	/**
+	 * Name of the 3x3 normal matrix uniform, the inverse transpose of the model matrix
+	 */
+	public static final String NORM_MATRIX = "NormMatrix";
+	
 	// openGL ID of the Shader Program
 	public final int programId;
 	
@@ -121,6 +131,18 @@ public class ShaderProgram {
 		uniformUpdates.add(new UniformMat2(getUniformLoc(varname), value));
 	}
 	
+	/**
+	 * Sets the {@link #MODEL_VIEW_PROJECTION} and {@link #NORM_MATRIX} uniforms of the MVP shader variants
+	 * from matrices computed on the CPU, so the shader does not multiply the matrices for every vertex.
+	 * <br>The matrices are read when the uniforms are assigned, not when this is called
+	 * @param modelViewProjection Projection * View * Model
+	 * @param normMatrix The inverse transpose of the upper 3x3 of Model, see {@link Mat3#toNormalMatrix(Mat4, Mat3)}
+	 */
+	public void setTransformUniforms(Mat4 modelViewProjection, Mat3 normMatrix) {
+		setUniform(MODEL_VIEW_PROJECTION, modelViewProjection);
+		setUniform(NORM_MATRIX, normMatrix);
+	}
+	
 	public void assign() {
 		GL20.glUseProgram(programId);
 		if(relinkProgram) {
@@ -5,7 +5,6 @@ import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 
-import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL12;
 import org.lwjgl.opengl.GL13;
@@ -34,7 +33,7 @@ public class Texture {
 		int height = srcImage.getHeight();
 		int[] data = new int[width * height];
 		srcImage.getRGB(0, 0, width, height, data, 0, width);
-		ByteBuffer dataBuffer = BufferUtils.createByteBuffer(width * height * 4);
+		ByteBuffer dataBuffer = BufferUtil.acquireByteBuffer(width * height * 4);
 		for(int color : data) {
 			dataBuffer.put((byte) (color >> 16 & 0xFF));
 			dataBuffer.put((byte) (color >> 8 & 0xFF));
@@ -43,6 +42,7 @@ public class Texture {
 		}
 		dataBuffer.flip();
 		bufferData(dataBuffer, width, height);
+		BufferUtil.release(dataBuffer);
 	}
 	
 	/**
@@ -62,11 +62,6 @@ public class Texture {
 	public Texture(ByteBuffer colorBytes, int width, int height, boolean smoothScale, boolean clamp) {
 		this.smoothScale = smoothScale;
 		this.clamp = clamp;
-		ByteBuffer dataBuffer = BufferUtil.createByteBuffer(width * height * 4);
-		for(int i = width * height * 4; i > 0; i--) {
-			dataBuffer.put(colorBytes.get());
-		}
-		dataBuffer.flip();
 		bufferData(colorBytes, width, height);
 	}
 	
@@ -78,12 +73,13 @@ public class Texture {
 	public Texture(FloatBuffer colorFloats, int width, int height, boolean smoothScale, boolean clamp) {
 		this.smoothScale = smoothScale;
 		this.clamp = clamp;
-		ByteBuffer dataBuffer = BufferUtils.createByteBuffer(width * height * 4);
+		ByteBuffer dataBuffer = BufferUtil.acquireByteBuffer(width * height * 4);
 		for(int i = width * height * 4; i > 0; i--) {
 			dataBuffer.put((byte) (colorFloats.get() * 0xFF));
 		}
 		dataBuffer.flip();
 		bufferData(dataBuffer, width, height);
+		BufferUtil.release(dataBuffer);
 	}
 	
 	/**
@@ -95,7 +91,7 @@ public class Texture {
 	public Texture(IntBuffer packedColorInts, int width, int height, boolean alpha, boolean smoothScale, boolean clamp) {
 		this.smoothScale = smoothScale;
 		this.clamp = clamp;
-		ByteBuffer dataBuffer = BufferUtils.createByteBuffer(width * height * 4);
+		ByteBuffer dataBuffer = BufferUtil.acquireByteBuffer(width * height * 4);
 		for(int i = width * height; i > 0; i--) {
 			int color = packedColorInts.get();
 			dataBuffer.put((byte) (color >> 16 & 0xFF));
@@ -108,6 +104,7 @@ public class Texture {
 		}
 		dataBuffer.flip();
 		bufferData(dataBuffer, width, height);
+		BufferUtil.release(dataBuffer);
 	}
 	
 	/**
@@ -122,9 +119,12 @@ public class Texture {
 				System.err.println("Error generating texture: Buffer is not direct and has no backing array");
 				return;
 			}
-			ByteBuffer directBuffer = BufferUtil.createByteBuffer(width * height * 4);
-			directBuffer.put(bytes.array(), bytes.position(), width * height * 4);
-			bytes = directBuffer;
+			ByteBuffer directBuffer = BufferUtil.acquireByteBuffer(width * height * 4);
+			directBuffer.put(bytes.array(), bytes.arrayOffset() + bytes.position(), width * height * 4);
+			directBuffer.flip();
+			bufferData(directBuffer, width, height);
+			BufferUtil.release(directBuffer);
+			return;
 		}
 		GL11.glBindTexture(GL11.GL_TEXTURE_2D, texID);
 		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, (smoothScale ? GL11.GL_LINEAR : GL11.GL_NEAREST));
@@ -153,9 +153,12 @@ public class Texture {
 				System.err.println("Error generating texture: Buffer is not direct and has no backing array");
 				return;
 			}
-			ByteBuffer directBuffer = BufferUtil.createByteBuffer(width * height * 4);
-			directBuffer.put(bytes.array(), bytes.position(), width * height * 4);
-			bytes = directBuffer;
+			ByteBuffer directBuffer = BufferUtil.acquireByteBuffer(width * height * 4);
+			directBuffer.put(bytes.array(), bytes.arrayOffset() + bytes.position(), width * height * 4);
+			directBuffer.flip();
+			bufferSubData(directBuffer, xOff, yOff, width, height);
+			BufferUtil.release(directBuffer);
+			return;
 		}
 		GL11.glBindTexture(GL11.GL_TEXTURE_2D, texID);
 		GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, xOff, yOff, width, height, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, bytes);
@@ -0,0 +1,296 @@
+package com.unknownloner.lonelib.math;
+
+/**
+ * A fixed capacity batch of axis aligned bounding boxes stored as separate min and max arrays for each axis.
+ * <br>The bulk operations run over the first {@link #size()} boxes with simple counted loops
+ * so the JIT can vectorize them.
+ * <br>The collision kernels test one box against every box in the batch. They follow the rules of
+ * {@link AABB#intersects(AABB)} and {@link AABB#calcXOffset(AABB, float)}: boxes which only touch do not overlap,
+ * and a box already overlapping the mover never blocks it.
+ */
+public class AABBArray {
+
+	private final float[] minx;
+	private final float[] miny;
+	private final float[] minz;
+	private final float[] maxx;
+	private final float[] maxy;
+	private final float[] maxz;
+	/**
+	 * Scratch space for the results of {@link VectorKernels#overlaps}
+	 */
+	private final boolean[] hits;
+	private int size;
+
+	/**
+	 * Creates an empty batch that can hold up to capacity boxes
+	 * @param capacity Maximum number of boxes
+	 */
+	public AABBArray(int capacity) {
+		minx = new float[capacity];
+		miny = new float[capacity];
+		minz = new float[capacity];
+		maxx = new float[capacity];
+		maxy = new float[capacity];
+		maxz = new float[capacity];
+		hits = new boolean[capacity];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return minx.length;
+	}
+
+	/**
+	 * Sets the number of boxes in use
+	 * @param size New size, no larger than the capacity
+	 */
+	public void setSize(int size) {
+		if(size < 0 || size > minx.length) {
+			throw new IndexOutOfBoundsException("Size " + size + " outside of capacity " + minx.length);
+		}
+		this.size = size;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * return the raw min x values, changes to the array will be reflected in the batch.
+	 * @return min x array
+	 */
+	public float[] getMinXData() {
+		return minx;
+	}
+
+	/**
+	 * return the raw min y values, changes to the array will be reflected in the batch.
+	 * @return min y array
+	 */
+	public float[] getMinYData() {
+		return miny;
+	}
+
+	/**
+	 * return the raw min z values, changes to the array will be reflected in the batch.
+	 * @return min z array
+	 */
+	public float[] getMinZData() {
+		return minz;
+	}
+
+	/**
+	 * return the raw max x values, changes to the array will be reflected in the batch.
+	 * @return max x array
+	 */
+	public float[] getMaxXData() {
+		return maxx;
+	}
+
+	/**
+	 * return the raw max y values, changes to the array will be reflected in the batch.
+	 * @return max y array
+	 */
+	public float[] getMaxYData() {
+		return maxy;
+	}
+
+	/**
+	 * return the raw max z values, changes to the array will be reflected in the batch.
+	 * @return max z array
+	 */
+	public float[] getMaxZData() {
+		return maxz;
+	}
+
+	/**
+	 * Appends a box to the end of the batch
+	 * @return The index of the new box
+	 */
+	public int add(float bMinx, float bMiny, float bMinz, float bMaxx, float bMaxy, float bMaxz) {
+		int i = size;
+		if(i == minx.length) {
+			throw new IndexOutOfBoundsException("AABBArray is full");
+		}
+		set(i, bMinx, bMiny, bMinz, bMaxx, bMaxy, bMaxz);
+		size = i + 1;
+		return i;
+	}
+
+	public int add(AABB bounds) {
+		return add(bounds.minx, bounds.miny, bounds.minz, bounds.maxx, bounds.maxy, bounds.maxz);
+	}
+
+	public void set(int index, float bMinx, float bMiny, float bMinz, float bMaxx, float bMaxy, float bMaxz) {
+		minx[index] = bMinx;
+		miny[index] = bMiny;
+		minz[index] = bMinz;
+		maxx[index] = bMaxx;
+		maxy[index] = bMaxy;
+		maxz[index] = bMaxz;
+	}
+
+	public void set(int index, AABB bounds) {
+		set(index, bounds.minx, bounds.miny, bounds.minz, bounds.maxx, bounds.maxy, bounds.maxz);
+	}
+
+	/**
+	 * Creates an AABB from the box at index
+	 */
+	public AABB get(int index) {
+		return new AABB(minx[index], miny[index], minz[index], maxx[index], maxy[index], maxz[index]);
+	}
+
+
+	/**
+	 * Finds every box overlapping a query box, using the same rules as {@link AABB#intersects(AABB)}.
+	 * <br>The boxes are tested by {@link VectorKernels#overlaps}, so the SIMD kernels are used where available.
+	 * The results go through scratch space in the batch, so one batch must not be queried from several threads at once
+	 * @param dest Receives the indices of the overlapping boxes in increasing order.
+	 * Must have room for {@link #size()} indices, as every index is written before it is known whether it is kept
+	 * @return The number of indices written to dest
+	 */
+	public int overlapping(float qMinx, float qMiny, float qMinz, float qMaxx, float qMaxy, float qMaxz, int[] dest) {
+		int n = size;
+		if(dest.length < n) {
+			throw new IndexOutOfBoundsException("Index array of length " + dest.length + " can not hold " + n + " indices");
+		}
+		boolean[] hits = this.hits;
+		VectorKernels.get().overlaps(qMinx, qMiny, qMinz, qMaxx, qMaxy, qMaxz, minx, miny, minz, maxx, maxy, maxz, n, hits);
+		int count = 0;
+		for(int i = 0; i < n; i++) {
+			dest[count] = i;
+			count += hits[i] ? 1 : 0;
+		}
+		return count;
+	}
+
+	public int overlapping(AABB query, int[] dest) {
+		return overlapping(query.minx, query.miny, query.minz, query.maxx, query.maxy, query.maxz, dest);
+	}
+
+	/**
+	 * Sweeps a moving box along a displacement and finds the first box it hits.
+	 * <br>Boxes the mover already overlaps, or only slides along, are ignored.
+	 * @param mover Bounds of the moving box at the start of the movement
+	 * @param dx X component of the displacement
+	 * @param dy Y component of the displacement
+	 * @param dz Z component of the displacement
+	 * @param dest Receives the time of impact at offset, as a fraction of the displacement from 0 to 1,
+	 * and the normal of the face that was hit at offset + 1 to offset + 3. Left unchanged if nothing is hit
+	 * @return The index of the first box hit, or -1 if the mover can make the full displacement
+	 */
+	public int sweep(AABB mover, float dx, float dy, float dz, float[] dest, int offset) {
+		float[] minx = this.minx, miny = this.miny, minz = this.minz;
+		float[] maxx = this.maxx, maxy = this.maxy, maxz = this.maxz;
+		float aMinx = mover.minx, aMiny = mover.miny, aMinz = mover.minz;
+		float aMaxx = mover.maxx, aMaxy = mover.maxy, aMaxz = mover.maxz;
+		//The faces of the mover and box which meet first on each axis, picked once from the direction
+		float leadx = dx > 0 ? aMaxx : aMinx, trailx = dx > 0 ? aMinx : aMaxx;
+		float leady = dy > 0 ? aMaxy : aMiny, traily = dy > 0 ? aMiny : aMaxy;
+		float leadz = dz > 0 ? aMaxz : aMinz, trailz = dz > 0 ? aMinz : aMaxz;
+		float[] nearX = dx > 0 ? minx : maxx, farX = dx > 0 ? maxx : minx;
+		float[] nearY = dy > 0 ? miny : maxy, farY = dy > 0 ? maxy : miny;
+		float[] nearZ = dz > 0 ? minz : maxz, farZ = dz > 0 ? maxz : minz;
+		float invx = 1F / dx, invy = 1F / dy, invz = 1F / dz;
+		boolean movex = dx != 0, movey = dy != 0, movez = dz != 0;
+		float inf = Float.POSITIVE_INFINITY;
+		int n = size;
+		int best = -1;
+		//Just above 1 so a box reached at the very end of the movement still counts
+		float bestTime = Math.nextUp(1F);
+		int bestAxis = 0;
+		for(int i = 0; i < n; i++) {
+			//An axis without movement overlaps for all time or never
+			float ex = movex ? (nearX[i] - leadx) * invx : (aMaxx > minx[i] & aMinx < maxx[i] ? -inf : inf);
+			float xx = movex ? (farX[i] - trailx) * invx : inf;
+			float ey = movey ? (nearY[i] - leady) * invy : (aMaxy > miny[i] & aMiny < maxy[i] ? -inf : inf);
+			float xy = movey ? (farY[i] - traily) * invy : inf;
+			float ez = movez ? (nearZ[i] - leadz) * invz : (aMaxz > minz[i] & aMinz < maxz[i] ? -inf : inf);
+			float xz = movez ? (farZ[i] - trailz) * invz : inf;
+			float enter = Math.max(ex, Math.max(ey, ez));
+			float exit = Math.min(xx, Math.min(xy, xz));
+			boolean hit = enter < exit & enter >= 0 & enter < bestTime;
+			if(hit) {
+				best = i;
+				bestTime = enter;
+				bestAxis = enter == ex ? 0 : (enter == ey ? 1 : 2);
+			}
+		}
+		if(best != -1) {
+			dest[offset] = bestTime;
+			dest[offset + 1] = bestAxis == 0 ? -Math.signum(dx) : 0;
+			dest[offset + 2] = bestAxis == 1 ? -Math.signum(dy) : 0;
+			dest[offset + 3] = bestAxis == 2 ? -Math.signum(dz) : 0;
+		}
+		return best;
+	}
+
+	/**
+	 * Clips a movement along the x axis against every box, giving the same result as calling
+	 * {@link AABB#calcXOffset(AABB, float)} of each box in turn
+	 * @param mover Bounds of the moving box
+	 * @param curOff The movement the box wants to make
+	 * @return The movement the box can make without entering a box
+	 */
+	public float calcXOffset(AABB mover, float curOff) {
+		return calcOffset(minx, maxx, miny, maxy, minz, maxz, mover.minx, mover.maxx, mover.miny, mover.maxy, mover.minz, mover.maxz, curOff);
+	}
+
+	/**
+	 * @see #calcXOffset(AABB, float)
+	 */
+	public float calcYOffset(AABB mover, float curOff) {
+		return calcOffset(miny, maxy, minx, maxx, minz, maxz, mover.miny, mover.maxy, mover.minx, mover.maxx, mover.minz, mover.maxz, curOff);
+	}
+
+	/**
+	 * @see #calcXOffset(AABB, float)
+	 */
+	public float calcZOffset(AABB mover, float curOff) {
+		return calcOffset(minz, maxz, minx, maxx, miny, maxy, mover.minz, mover.maxz, mover.minx, mover.maxx, mover.miny, mover.maxy, curOff);
+	}
+
+	/**
+	 * Clips a movement along one axis. min and max are the box bounds on that axis, the other arrays
+	 * are the bounds on the two axes the mover has to overlap for a box to block it
+	 */
+	private float calcOffset(float[] min, float[] max, float[] min1, float[] max1, float[] min2, float[] max2,
+			float aMin, float aMax, float aMin1, float aMax1, float aMin2, float aMax2, float curOff) {
+		int n = size;
+		float off = curOff;
+		if(curOff > 0) {
+			for(int i = 0; i < n; i++) {
+				boolean blocks = aMax1 > min1[i] & aMin1 < max1[i] & aMax2 > min2[i] & aMin2 < max2[i] & aMax <= min[i];
+				off = Math.min(off, blocks ? min[i] - aMax : off);
+			}
+		} else if(curOff < 0) {
+			for(int i = 0; i < n; i++) {
+				boolean blocks = aMax1 > min1[i] & aMin1 < max1[i] & aMax2 > min2[i] & aMin2 < max2[i] & aMin >= max[i];
+				off = Math.max(off, blocks ? max[i] - aMin : off);
+			}
+		}
+		return off;
+	}
+
+	/**
+	 * Clips the movement of a box against every box, resolving the y axis first, then x, then z,
+	 * the same as the calc*Offset methods of {@link AABB} are usually used
+	 * @param mover Bounds of the moving box
+	 * @param motion The movement the box wants to make
+	 * @return The movement the box can make without entering a box
+	 */
+	public Vec3 clipMovement(AABB mover, Vec3 motion) {
+		float dy = calcYOffset(mover, motion.y);
+		mover = mover.offset(new Vec3(0, dy, 0));
+		float dx = calcXOffset(mover, motion.x);
+		mover = mover.offset(new Vec3(dx, 0, 0));
+		float dz = calcZOffset(mover, motion.z);
+		return new Vec3(dx, dy, dz);
+	}
+
+}
@@ -0,0 +1,366 @@
+package com.unknownloner.lonelib.math;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The six clipping planes of a view volume, used to cull bounding volumes before drawing them.
+ * <br>The planes are extracted from a projection * view matrix (Gribb and Hartmann) and normalized,
+ * so distances to them are in world units. The planes point into the view volume.
+ * <br>A Frustum is mutable so it can be updated every frame with {@link #set(Mat4)} without allocating.
+ */
+public class Frustum {
+
+	/**
+	 * The volume is completely outside the frustum
+	 */
+	public static final int OUTSIDE = 0;
+	/**
+	 * The volume crosses at least one plane of the frustum
+	 */
+	public static final int INTERSECT = 1;
+	/**
+	 * The volume is completely inside the frustum
+	 */
+	public static final int INSIDE = 2;
+
+	public static final int LEFT = 0;
+	public static final int RIGHT = 1;
+	public static final int BOTTOM = 2;
+	public static final int TOP = 3;
+	public static final int NEAR = 4;
+	public static final int FAR = 5;
+
+	/**
+	 * Batches smaller than this are culled on the calling thread
+	 */
+	private static final int PARALLEL_THRESHOLD = 4096;
+
+	/**
+	 * a, b, c, d for each plane, where ax + by + cz + d is the signed distance of a point to the plane
+	 */
+	private final float[] planes = new float[24];
+	/**
+	 * |a|, |b|, |c| for each plane, used for the projected radius of a box
+	 */
+	private final float[] absNormals = new float[18];
+
+	/**
+	 * Creates a frustum which contains everything, call {@link #set(Mat4)} before using it
+	 */
+	public Frustum() {
+		for(int i = 0; i < 6; i++) {
+			planes[i * 4 + 3] = Float.POSITIVE_INFINITY;
+		}
+	}
+
+	/**
+	 * Creates the frustum of a projection * view matrix
+	 * @param viewProjection Projection matrix multiplied by the view matrix,
+	 * for example from {@link Mat4#perspective}, {@link Mat4#frustrum} or {@link Mat4#ortho}
+	 */
+	public Frustum(Mat4 viewProjection) {
+		set(viewProjection);
+	}
+
+	/**
+	 * Extracts the planes of a projection * view matrix
+	 * @param viewProjection Projection matrix multiplied by the view matrix
+	 * @return this
+	 */
+	public Frustum set(Mat4 viewProjection) {
+		float[] m = viewProjection.getData();
+		setPlane(LEFT, m[3] + m[0], m[7] + m[4], m[11] + m[8], m[15] + m[12]);
+		setPlane(RIGHT, m[3] - m[0], m[7] - m[4], m[11] - m[8], m[15] - m[12]);
+		setPlane(BOTTOM, m[3] + m[1], m[7] + m[5], m[11] + m[9], m[15] + m[13]);
+		setPlane(TOP, m[3] - m[1], m[7] - m[5], m[11] - m[9], m[15] - m[13]);
+		setPlane(NEAR, m[3] + m[2], m[7] + m[6], m[11] + m[10], m[15] + m[14]);
+		setPlane(FAR, m[3] - m[2], m[7] - m[6], m[11] - m[10], m[15] - m[14]);
+		return this;
+	}
+
+	private void setPlane(int plane, float a, float b, float c, float d) {
+		float invLen = 1F / (float)Math.sqrt(a * a + b * b + c * c);
+		a *= invLen;
+		b *= invLen;
+		c *= invLen;
+		int p = plane * 4;
+		planes[p] = a;
+		planes[p + 1] = b;
+		planes[p + 2] = c;
+		planes[p + 3] = d * invLen;
+		int n = plane * 3;
+		absNormals[n] = Math.abs(a);
+		absNormals[n + 1] = Math.abs(b);
+		absNormals[n + 2] = Math.abs(c);
+	}
+
+	/**
+	 * Returns one of the planes of the frustum
+	 * @param plane One of LEFT, RIGHT, BOTTOM, TOP, NEAR, or FAR
+	 * @return The normal of the plane in x, y, z and its distance from the origin in w
+	 */
+	public Vec4 getPlane(int plane) {
+		int p = plane * 4;
+		return new Vec4(planes[p], planes[p + 1], planes[p + 2], planes[p + 3]);
+	}
+
+	/**
+	 * Calculates the signed distance from a point to one of the planes, positive on the inner side
+	 * @param plane One of LEFT, RIGHT, BOTTOM, TOP, NEAR, or FAR
+	 */
+	public float distance(int plane, float x, float y, float z) {
+		int p = plane * 4;
+		return planes[p] * x + planes[p + 1] * y + planes[p + 2] * z + planes[p + 3];
+	}
+
+	/**
+	 * Tests a point against the frustum
+	 * @return Whether the point is inside or on the frustum
+	 */
+	public boolean contains(float x, float y, float z) {
+		for(int p = 0; p < 24; p += 4) {
+			if(planes[p] * x + planes[p + 1] * y + planes[p + 2] * z + planes[p + 3] < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public boolean contains(Vec3 pos) {
+		return contains(pos.x, pos.y, pos.z);
+	}
+
+	/**
+	 * Tests a sphere against the frustum
+	 * @param x X coordinate of the center
+	 * @param y Y coordinate of the center
+	 * @param z Z coordinate of the center
+	 * @param radius Radius of the sphere
+	 * @return OUTSIDE, INTERSECT, or INSIDE
+	 */
+	public int testSphere(float x, float y, float z, float radius) {
+		int result = INSIDE;
+		for(int p = 0; p < 24; p += 4) {
+			float dist = planes[p] * x + planes[p + 1] * y + planes[p + 2] * z + planes[p + 3];
+			if(dist < -radius) {
+				return OUTSIDE;
+			}
+			if(dist < radius) {
+				result = INTERSECT;
+			}
+		}
+		return result;
+	}
+
+	public int testSphere(Vec3 center, float radius) {
+		return testSphere(center.x, center.y, center.z, radius);
+	}
+
+	/**
+	 * Tests a box against the frustum.
+	 * <br>The box is treated as its center and half size, whose projection onto a plane normal
+	 * gives the distance the box reaches towards each side of the plane.
+	 * @return OUTSIDE, INTERSECT, or INSIDE
+	 */
+	public int testAABB(float minx, float miny, float minz, float maxx, float maxy, float maxz) {
+		float cx = (maxx + minx) * 0.5F;
+		float cy = (maxy + miny) * 0.5F;
+		float cz = (maxz + minz) * 0.5F;
+		float ex = (maxx - minx) * 0.5F;
+		float ey = (maxy - miny) * 0.5F;
+		float ez = (maxz - minz) * 0.5F;
+		int result = INSIDE;
+		for(int plane = 0; plane < 6; plane++) {
+			int p = plane * 4;
+			int n = plane * 3;
+			float dist = planes[p] * cx + planes[p + 1] * cy + planes[p + 2] * cz + planes[p + 3];
+			float radius = absNormals[n] * ex + absNormals[n + 1] * ey + absNormals[n + 2] * ez;
+			if(dist < -radius) {
+				return OUTSIDE;
+			}
+			if(dist < radius) {
+				result = INTERSECT;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Tests a box against the frustum
+	 * @return OUTSIDE, INTERSECT, or INSIDE
+	 */
+	public int testAABB(AABB bounds) {
+		return testAABB(bounds.minx, bounds.miny, bounds.minz, bounds.maxx, bounds.maxy, bounds.maxz);
+	}
+
+	/**
+	 * @return Whether any part of the box is inside the frustum
+	 */
+	public boolean intersects(AABB bounds) {
+		return testAABB(bounds) != OUTSIDE;
+	}
+
+	public int testSphere(BoundingSphere sphere) {
+		return testSphere(sphere.x, sphere.y, sphere.z, sphere.radius);
+	}
+
+	/**
+	 * @return Whether any part of the sphere is inside the frustum
+	 */
+	public boolean intersects(BoundingSphere sphere) {
+		return testSphere(sphere) != OUTSIDE;
+	}
+
+	/**
+	 * Tests an oriented box against the frustum, in the same way as {@link #testAABB(float, float, float, float, float, float)}
+	 * but projecting the extents of the box along its own axes onto each plane normal
+	 * @return OUTSIDE, INTERSECT, or INSIDE
+	 */
+	public int testOBB(OBB box) {
+		int result = INSIDE;
+		for(int p = 0; p < 24; p += 4) {
+			float a = planes[p], b = planes[p + 1], c = planes[p + 2];
+			float dist = a * box.cx + b * box.cy + c * box.cz + planes[p + 3];
+			float radius = box.projectedRadius(a, b, c);
+			if(dist < -radius) {
+				return OUTSIDE;
+			}
+			if(dist < radius) {
+				result = INTERSECT;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return Whether any part of the box is inside the frustum
+	 */
+	public boolean intersects(OBB box) {
+		return testOBB(box) != OUTSIDE;
+	}
+
+	/**
+	 * Tests every box in a batch against the frustum
+	 * @param boxes Boxes to test
+	 * @param dest Receives OUTSIDE, INTERSECT, or INSIDE for each box
+	 * @return The number of boxes which are not OUTSIDE
+	 */
+	public int cull(AABBArray boxes, int[] dest) {
+		return cull(boxes, dest, null, 0, boxes.size());
+	}
+
+	/**
+	 * Tests every box in a batch against the frustum, using plane coherency.
+	 * <br>planeCache holds, for each box, the plane which rejected it last time.
+	 * That plane is tested first, and since objects and cameras move little between frames
+	 * most boxes which were culled last frame are rejected by a single plane test.
+	 * Keep the same array between frames, it may start out filled with zeros.
+	 * @param boxes Boxes to test
+	 * @param dest Receives OUTSIDE, INTERSECT, or INSIDE for each box
+	 * @param planeCache One entry per box, updated with the plane which rejected the box
+	 * @return The number of boxes which are not OUTSIDE
+	 */
+	public int cull(AABBArray boxes, int[] dest, int[] planeCache) {
+		return cull(boxes, dest, planeCache, 0, boxes.size());
+	}
+
+	/**
+	 * Tests every box in a batch against the frustum, splitting the batch over the threads of pool.
+	 * The results are the same as {@link #cull(AABBArray, int[], int[])}.
+	 * @param boxes Boxes to test
+	 * @param dest Receives OUTSIDE, INTERSECT, or INSIDE for each box
+	 * @param planeCache One entry per box, or null to not use plane coherency
+	 * @param pool Pool to run the tests in
+	 * @return The number of boxes which are not OUTSIDE
+	 */
+	public int cull(AABBArray boxes, int[] dest, int[] planeCache, ForkJoinPool pool) {
+		int size = boxes.size();
+		if(size < PARALLEL_THRESHOLD) {
+			return cull(boxes, dest, planeCache, 0, size);
+		}
+		return pool.invoke(new CullTask(this, boxes, dest, planeCache, 0, size));
+	}
+
+	/**
+	 * Tests the boxes from index start up to end
+	 */
+	private int cull(AABBArray boxes, int[] dest, int[] planeCache, int start, int end) {
+		float[] minx = boxes.getMinXData(), miny = boxes.getMinYData(), minz = boxes.getMinZData();
+		float[] maxx = boxes.getMaxXData(), maxy = boxes.getMaxYData(), maxz = boxes.getMaxZData();
+		float[] planes = this.planes;
+		float[] absNormals = this.absNormals;
+		int visible = 0;
+		for(int i = start; i < end; i++) {
+			float cx = (maxx[i] + minx[i]) * 0.5F;
+			float cy = (maxy[i] + miny[i]) * 0.5F;
+			float cz = (maxz[i] + minz[i]) * 0.5F;
+			float ex = (maxx[i] - minx[i]) * 0.5F;
+			float ey = (maxy[i] - miny[i]) * 0.5F;
+			float ez = (maxz[i] - minz[i]) * 0.5F;
+			int first = planeCache == null ? 0 : planeCache[i];
+			int result = INSIDE;
+			for(int k = 0; k < 6; k++) {
+				//Start at the cached plane and wrap around
+				int plane = first + k;
+				if(plane >= 6) {
+					plane -= 6;
+				}
+				int p = plane * 4;
+				int n = plane * 3;
+				float dist = planes[p] * cx + planes[p + 1] * cy + planes[p + 2] * cz + planes[p + 3];
+				float radius = absNormals[n] * ex + absNormals[n + 1] * ey + absNormals[n + 2] * ez;
+				if(dist < -radius) {
+					result = OUTSIDE;
+					if(planeCache != null) {
+						planeCache[i] = plane;
+					}
+					break;
+				}
+				if(dist < radius) {
+					result = INTERSECT;
+				}
+			}
+			dest[i] = result;
+			if(result != OUTSIDE) {
+				visible++;
+			}
+		}
+		return visible;
+	}
+
+	private static class CullTask extends RecursiveTask<Integer> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Frustum frustum;
+		private final AABBArray boxes;
+		private final int[] dest;
+		private final int[] planeCache;
+		private final int start;
+		private final int end;
+
+		CullTask(Frustum frustum, AABBArray boxes, int[] dest, int[] planeCache, int start, int end) {
+			this.frustum = frustum;
+			this.boxes = boxes;
+			this.dest = dest;
+			this.planeCache = planeCache;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected Integer compute() {
+			if(end - start <= PARALLEL_THRESHOLD) {
+				return frustum.cull(boxes, dest, planeCache, start, end);
+			}
+			int mid = (start + end) >>> 1;
+			CullTask left = new CullTask(frustum, boxes, dest, planeCache, start, mid);
+			CullTask right = new CullTask(frustum, boxes, dest, planeCache, mid, end);
+			left.fork();
+			int visible = right.compute();
+			return visible + left.join();
+		}
+	}
+
+}
@@ -0,0 +1,151 @@
+package com.unknownloner.lonelib.math;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Builds the matrices of many instances at once from their positions, rotations and scales,
+ * ready to be uploaded to an instance buffer or a uniform array.
+ * <br>Instances are processed in blocks of 16, which read 64 bytes from each input array and write 16 matrices
+ * of 64 bytes each. Parallel tasks are split on block boundaries to limit false sharing.
+ * Every instance goes through the same operations however the work is split, so the results are identical
+ * for any pool, or none.
+ * <br>Matrices are 16 floats in column-major order. Each is translation * rotation * scale, optionally multiplied
+ * on the left by a view or view-projection matrix.
+ */
+public class InstanceMatrices {
+
+	/**
+	 * Number of instances processed together
+	 */
+	private static final int BLOCK = 16;
+
+	/**
+	 * Batches smaller than this are computed on the calling thread
+	 */
+	private static final int PARALLEL_THRESHOLD = 4096;
+
+	/**
+	 * Computes the matrices of every instance in positions into dest, starting at its position.
+	 * The position of dest is moved past the written matrices
+	 * @param positions Position of each instance
+	 * @param rotations Normalized quaternion of each instance as x, y, z, w, or null for no rotation
+	 * @param scales Scale of each instance, or null for a scale of 1
+	 * @param parent Matrix to multiply every instance matrix by on the left, or null for plain world matrices
+	 * @param dest Buffer to store the matrices in
+	 */
+	public static void compute(Vec3Array positions, Vec4Array rotations, Vec3Array scales, Mat4 parent, FloatBuffer dest) {
+		int count = check(positions, rotations, scales, dest);
+		compute(positions, rotations, scales, parent, dest, dest.position(), 0, count);
+		dest.position(dest.position() + count * 16);
+	}
+
+	/**
+	 * Computes the matrices of every instance in positions into dest, splitting the work over the threads of pool.
+	 * The results are the same as {@link #compute(Vec3Array, Vec4Array, Vec3Array, Mat4, FloatBuffer)}
+	 * @param pool Pool to run the work in
+	 */
+	public static void compute(Vec3Array positions, Vec4Array rotations, Vec3Array scales, Mat4 parent, FloatBuffer dest, ForkJoinPool pool) {
+		int count = check(positions, rotations, scales, dest);
+		if(count < PARALLEL_THRESHOLD) {
+			compute(positions, rotations, scales, parent, dest, dest.position(), 0, count);
+		} else {
+			pool.invoke(new ComputeTask(positions, rotations, scales, parent, dest, dest.position(), 0, count));
+		}
+		dest.position(dest.position() + count * 16);
+	}
+
+	private static int check(Vec3Array positions, Vec4Array rotations, Vec3Array scales, FloatBuffer dest) {
+		int count = positions.size();
+		if(rotations != null && rotations.size() < count) {
+			throw new IllegalArgumentException("Expected " + count + " rotations, got " + rotations.size());
+		}
+		if(scales != null && scales.size() < count) {
+			throw new IllegalArgumentException("Expected " + count + " scales, got " + scales.size());
+		}
+		if(dest.remaining() < count * 16) {
+			throw new IllegalArgumentException("Buffer has room for " + dest.remaining() / 16 + " matrices, need " + count);
+		}
+		return count;
+	}
+
+	/**
+	 * Computes the instances from start up to end, writing instance i at base + i * 16 in dest.
+	 * start must be a multiple of BLOCK
+	 */
+	private static void compute(Vec3Array positions, Vec4Array rotations, Vec3Array scales, Mat4 parent,
+			FloatBuffer dest, int base, int start, int end) {
+		float[] px = positions.getXData(), py = positions.getYData(), pz = positions.getZData();
+		float[] qx = null, qy = null, qz = null, qw = null;
+		if(rotations != null) {
+			qx = rotations.getXData();
+			qy = rotations.getYData();
+			qz = rotations.getZData();
+			qw = rotations.getWData();
+		}
+		float[] sx = null, sy = null, sz = null;
+		if(scales != null) {
+			sx = scales.getXData();
+			sy = scales.getYData();
+			sz = scales.getZData();
+		}
+		float[] parentData = parent == null ? null : parent.getData();
+		VectorKernels kernels = VectorKernels.get();
+		float[] block = new float[BLOCK * 16];
+		FloatBuffer out = dest.duplicate();
+		out.position(base + start * 16);
+		for(int b = start; b < end; b += BLOCK) {
+			int n = Math.min(BLOCK, end - b);
+			for(int j = 0; j < n; j++) {
+				int i = b + j;
+				Mat4.makeTRS(px[i], py[i], pz[i],
+						qx == null ? 0 : qx[i], qy == null ? 0 : qy[i], qz == null ? 0 : qz[i], qw == null ? 1 : qw[i],
+						sx == null ? 1 : sx[i], sy == null ? 1 : sy[i], sz == null ? 1 : sz[i], block, j * 16);
+			}
+			if(parentData != null) {
+				kernels.mulBatch(parentData, 0, block, 0, block, 0, n);
+			}
+			out.put(block, 0, n * 16);
+		}
+	}
+
+	private static class ComputeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Vec3Array positions;
+		private final Vec4Array rotations;
+		private final Vec3Array scales;
+		private final Mat4 parent;
+		private final FloatBuffer dest;
+		private final int base;
+		private final int start;
+		private final int end;
+
+		ComputeTask(Vec3Array positions, Vec4Array rotations, Vec3Array scales, Mat4 parent,
+				FloatBuffer dest, int base, int start, int end) {
+			this.positions = positions;
+			this.rotations = rotations;
+			this.scales = scales;
+			this.parent = parent;
+			this.dest = dest;
+			this.base = base;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if(end - start <= PARALLEL_THRESHOLD) {
+				InstanceMatrices.compute(positions, rotations, scales, parent, dest, base, start, end);
+				return;
+			}
+			//Split on a block boundary to limit false sharing between the halves
+			int mid = ((start + end) >>> 1) & -BLOCK;
+			invokeAll(new ComputeTask(positions, rotations, scales, parent, dest, base, start, mid),
+					new ComputeTask(positions, rotations, scales, parent, dest, base, mid, end));
+		}
+	}
+
+}
@@ -101,52 +101,126 @@ public class Mat2 {
 	}
 
 	public static Mat2 add(Mat2 left, Mat2 right) {
-		float[] dest = new float[4];
-		dest[0] = left.data[0] + right.data[0];
-		dest[1] = left.data[1] + right.data[1];
-		dest[2] = left.data[2] + right.data[2];
-		dest[3] = left.data[3] + right.data[3];
-		return new Mat2(dest);
+		return add(left, right, new Mat2());
+	}
+
+	/**
+	 * Adds 2 matrices and stores the result in dest
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat2 add(Mat2 left, Mat2 right, Mat2 dest) {
+		dest.data[0] = left.data[0] + right.data[0];
+		dest.data[1] = left.data[1] + right.data[1];
+		dest.data[2] = left.data[2] + right.data[2];
+		dest.data[3] = left.data[3] + right.data[3];
+		return dest;
 	}
 
 	public static Mat2 sub(Mat2 left, Mat2 right) {
-		float[] dest = new float[4];
-		dest[0] = left.data[0] - right.data[0];
-		dest[1] = left.data[1] - right.data[1];
-		dest[2] = left.data[2] - right.data[2];
-		dest[3] = left.data[3] - right.data[3];
-		return new Mat2(dest);
+		return sub(left, right, new Mat2());
+	}
+
+	/**
+	 * Subtracts right from left and stores the result in dest
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat2 sub(Mat2 left, Mat2 right, Mat2 dest) {
+		dest.data[0] = left.data[0] - right.data[0];
+		dest.data[1] = left.data[1] - right.data[1];
+		dest.data[2] = left.data[2] - right.data[2];
+		dest.data[3] = left.data[3] - right.data[3];
+		return dest;
 	}
 
 	public static Mat2 mul(Mat2 left, Mat2 right) {
-		float[] dest = new float[4];
-		dest[0] = left.data[0] * right.data[0] + left.data[2] * right.data[1];
-		dest[1] = left.data[0] * right.data[2] + left.data[2] * right.data[3];
-		dest[2] = left.data[1] * right.data[0] + left.data[3] * right.data[1];
-		dest[3] = left.data[1] * right.data[2] + left.data[3] * right.data[3];
-		return new Mat2(dest);
+		return mul(left, right, new Mat2());
+	}
+
+	/**
+	 * Multiplies two matrices and stores the result in dest
+	 * @param dest Matrix to store the result in, may be left or right
+	 * @return dest
+	 */
+	public static Mat2 mul(Mat2 left, Mat2 right, Mat2 dest) {
+		float[] l = left.data;
+		float[] r = right.data;
+		float d0 = l[0] * r[0] + l[2] * r[1];
+		float d1 = l[1] * r[0] + l[3] * r[1];
+		float d2 = l[0] * r[2] + l[2] * r[3];
+		float d3 = l[1] * r[2] + l[3] * r[3];
+
+		dest.data[0] = d0;
+		dest.data[1] = d1;
+		dest.data[2] = d2;
+		dest.data[3] = d3;
+		return dest;
 	}
 
 	public static Mat2 negate(Mat2 src) {
-		float[] dest = new float[4];
-		dest[0] = -src.data[0];
-		dest[1] = -src.data[1];
-		dest[2] = -src.data[2];
-		dest[3] = -src.data[3];
-		return new Mat2(dest);
+		return negate(src, new Mat2());
+	}
+
+	/**
+	 * Negates a matrix and stores the result in dest
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat2 negate(Mat2 src, Mat2 dest) {
+		dest.data[0] = -src.data[0];
+		dest.data[1] = -src.data[1];
+		dest.data[2] = -src.data[2];
+		dest.data[3] = -src.data[3];
+		return dest;
 	}
 
 	public static Mat2 transpose(Mat2 src) {
-		float[] dest = new float[4];
-		dest[0] = src.data[0];
-		dest[1] = src.data[2];
-		dest[2] = src.data[1];
-		dest[3] = src.data[3];
-		return new Mat2(dest);
+		return transpose(src, new Mat2());
+	}
+
+	/**
+	 * Transposes a matrix and stores the result in dest
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat2 transpose(Mat2 src, Mat2 dest) {
+		float[] s = src.data;
+		float m1 = s[1];
+		dest.data[0] = s[0];
+		dest.data[1] = s[2];
+		dest.data[2] = m1;
+		dest.data[3] = s[3];
+		return dest;
 	}
 
 	public static float determinant(Mat2 src) {
 		return (src.data[0] * src.data[3]) - (src.data[1] * src.data[2]);
 	}
 
+	/**
+	 * Copies the values of src into dest
+	 * @param src Matrix to copy
+	 * @param dest Matrix to store the copy in
+	 * @return dest
+	 */
+	public static Mat2 set(Mat2 src, Mat2 dest) {
+		System.arraycopy(src.data, 0, dest.data, 0, 4);
+		return dest;
+	}
+
+	/**
+	 * Sets dest to the identity matrix
+	 * @param dest Matrix to reset
+	 * @return dest
+	 */
+	public static Mat2 setIdentity(Mat2 dest) {
+		float[] data = dest.data;
+		for(int i = 0; i < 4; i++) {
+			data[i] = 0;
+		}
+		data[0] = data[3] = 1F;
+		return dest;
+	}
+
 }
@@ -104,91 +104,151 @@ public class Mat3 {
 	}
 
 	public static Mat3 add(Mat3 left, Mat3 right) {
-		float[] dest = new float[9];
-		dest[0] = left.data[0] + right.data[0];
-		dest[1] = left.data[1] + right.data[1];
-		dest[2] = left.data[2] + right.data[2];
-		dest[3] = left.data[3] + right.data[3];
-		dest[4] = left.data[4] + right.data[4];
-		dest[5] = left.data[5] + right.data[5];
-		dest[6] = left.data[6] + right.data[6];
-		dest[7] = left.data[7] + right.data[7];
-		dest[8] = left.data[8] + right.data[8];
-		return new Mat3(dest);
+		return add(left, right, new Mat3());
+	}
+
+	/**
+	 * Adds 2 matrices and stores the result in dest
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat3 add(Mat3 left, Mat3 right, Mat3 dest) {
+		dest.data[0] = left.data[0] + right.data[0];
+		dest.data[1] = left.data[1] + right.data[1];
+		dest.data[2] = left.data[2] + right.data[2];
+		dest.data[3] = left.data[3] + right.data[3];
+		dest.data[4] = left.data[4] + right.data[4];
+		dest.data[5] = left.data[5] + right.data[5];
+		dest.data[6] = left.data[6] + right.data[6];
+		dest.data[7] = left.data[7] + right.data[7];
+		dest.data[8] = left.data[8] + right.data[8];
+		return dest;
 	}
 
 	public static Mat3 sub(Mat3 left, Mat3 right) {
-		float[] dest = new float[9];
-		dest[1] = left.data[0] - right.data[0];
-		dest[2] = left.data[1] - right.data[1];
-		dest[3] = left.data[2] - right.data[2];
-		dest[4] = left.data[3] - right.data[3];
-		dest[5] = left.data[4] - right.data[4];
-		dest[6] = left.data[5] - right.data[5];
-		dest[7] = left.data[6] - right.data[6];
-		dest[8] = left.data[7] - right.data[7];
-		dest[9] = left.data[8] - right.data[8];
-		return new Mat3(dest);
+		return sub(left, right, new Mat3());
+	}
+
+	/**
+	 * Subtracts right from left and stores the result in dest
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat3 sub(Mat3 left, Mat3 right, Mat3 dest) {
+		dest.data[0] = left.data[0] - right.data[0];
+		dest.data[1] = left.data[1] - right.data[1];
+		dest.data[2] = left.data[2] - right.data[2];
+		dest.data[3] = left.data[3] - right.data[3];
+		dest.data[4] = left.data[4] - right.data[4];
+		dest.data[5] = left.data[5] - right.data[5];
+		dest.data[6] = left.data[6] - right.data[6];
+		dest.data[7] = left.data[7] - right.data[7];
+		dest.data[8] = left.data[8] - right.data[8];
+		return dest;
 	}
 
 	public static Mat3 mul(Mat3 left, Mat3 right) {
-		float[] dest = new float[9];
-		dest[0] = left.data[0] * right.data[0] + left.data[3] * right.data[1] + left.data[6] * right.data[2];
-		dest[1] = left.data[1] * right.data[0] + left.data[4] * right.data[1] + left.data[7] * right.data[2];
-		dest[2] = left.data[2] * right.data[0] + left.data[5] * right.data[1] + left.data[8] * right.data[2];
-		dest[3] = left.data[0] * right.data[3] + left.data[3] * right.data[4] + left.data[6] * right.data[5];
-		dest[4] = left.data[1] * right.data[3] + left.data[4] * right.data[4] + left.data[7] * right.data[5];
-		dest[5] = left.data[2] * right.data[3] + left.data[5] * right.data[4] + left.data[8] * right.data[5];
-		dest[6] = left.data[0] * right.data[6] + left.data[3] * right.data[7] + left.data[6] * right.data[8];
-		dest[7] = left.data[1] * right.data[6] + left.data[4] * right.data[7] + left.data[7] * right.data[8];
-		dest[8] = left.data[2] * right.data[6] + left.data[5] * right.data[7] + left.data[8] * right.data[8];
-		return new Mat3(dest);
+		return mul(left, right, new Mat3());
+	}
+
+	/**
+	 * Multiplies two matrices and stores the result in dest
+	 * @param dest Matrix to store the result in, may be left or right
+	 * @return dest
+	 */
+	public static Mat3 mul(Mat3 left, Mat3 right, Mat3 dest) {
+		float[] l = left.data;
+		float[] r = right.data;
+		float d0 = l[0] * r[0] + l[3] * r[1] + l[6] * r[2];
+		float d1 = l[1] * r[0] + l[4] * r[1] + l[7] * r[2];
+		float d2 = l[2] * r[0] + l[5] * r[1] + l[8] * r[2];
+		float d3 = l[0] * r[3] + l[3] * r[4] + l[6] * r[5];
+		float d4 = l[1] * r[3] + l[4] * r[4] + l[7] * r[5];
+		float d5 = l[2] * r[3] + l[5] * r[4] + l[8] * r[5];
+		float d6 = l[0] * r[6] + l[3] * r[7] + l[6] * r[8];
+		float d7 = l[1] * r[6] + l[4] * r[7] + l[7] * r[8];
+		float d8 = l[2] * r[6] + l[5] * r[7] + l[8] * r[8];
+
+		dest.data[0] = d0;
+		dest.data[1] = d1;
+		dest.data[2] = d2;
+		dest.data[3] = d3;
+		dest.data[4] = d4;
+		dest.data[5] = d5;
+		dest.data[6] = d6;
+		dest.data[7] = d7;
+		dest.data[8] = d8;
+		return dest;
 	}
 
 	public static Mat3 negate(Mat3 src) {
-		float[] dest = new float[9];
-		dest[0] = -src.data[0];
-		dest[1] = -src.data[1];
-		dest[2] = -src.data[2];
-		dest[3] = -src.data[3];
-		dest[4] = -src.data[4];
-		dest[5] = -src.data[5];
-		dest[6] = -src.data[6];
-		dest[7] = -src.data[7];
-		dest[8] = -src.data[8];
-		return new Mat3(dest);
+		return negate(src, new Mat3());
 	}
 
-	public static Mat3 transpose(Mat3 src) {
-		float[] dest = new float[9];
-		dest[0] = src.data[0];
-		dest[1] = src.data[3];
-		dest[2] = src.data[6];
+	/**
+	 * Negates a matrix and stores the result in dest
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat3 negate(Mat3 src, Mat3 dest) {
+		dest.data[0] = -src.data[0];
+		dest.data[1] = -src.data[1];
+		dest.data[2] = -src.data[2];
+		dest.data[3] = -src.data[3];
+		dest.data[4] = -src.data[4];
+		dest.data[5] = -src.data[5];
+		dest.data[6] = -src.data[6];
+		dest.data[7] = -src.data[7];
+		dest.data[8] = -src.data[8];
+		return dest;
+	}
 
-		dest[3] = src.data[1];
-		dest[4] = src.data[4];
-		dest[5] = src.data[7];
+	public static Mat3 transpose(Mat3 src) {
+		return transpose(src, new Mat3());
+	}
 
-		dest[6] = src.data[2];
-		dest[7] = src.data[5];
-		dest[8] = src.data[8];
-		return new Mat3(dest);
+	/**
+	 * Transposes a matrix and stores the result in dest
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat3 transpose(Mat3 src, Mat3 dest) {
+		float[] s = src.data;
+		float m1 = s[1];
+		float m2 = s[2];
+		float m5 = s[5];
+		dest.data[0] = s[0];
+		dest.data[1] = s[3];
+		dest.data[2] = s[6];
+		dest.data[3] = m1;
+		dest.data[4] = s[4];
+		dest.data[5] = s[7];
+		dest.data[6] = m2;
+		dest.data[7] = m5;
+		dest.data[8] = s[8];
+		return dest;
 	}
 
 	public static Mat3 mul(Mat3 src, float scalar) {
-		float[] dest = new float[9];
-		dest[0] = src.data[0] * scalar;
-		dest[1] = src.data[1] * scalar;
-		dest[2] = src.data[2] * scalar;
-
-		dest[3] = src.data[3] * scalar;
-		dest[4] = src.data[4] * scalar;
-		dest[5] = src.data[5] * scalar;
+		return mul(src, scalar, new Mat3());
+	}
 
-		dest[6] = src.data[6] * scalar;
-		dest[7] = src.data[7] * scalar;
-		dest[8] = src.data[8] * scalar;
-		return new Mat3(dest);
+	/**
+	 * Multiplies every value in a matrix by a scalar and stores the result in dest
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat3 mul(Mat3 src, float scalar, Mat3 dest) {
+		dest.data[0] = src.data[0] * scalar;
+		dest.data[1] = src.data[1] * scalar;
+		dest.data[2] = src.data[2] * scalar;
+		dest.data[3] = src.data[3] * scalar;
+		dest.data[4] = src.data[4] * scalar;
+		dest.data[5] = src.data[5] * scalar;
+		dest.data[6] = src.data[6] * scalar;
+		dest.data[7] = src.data[7] * scalar;
+		dest.data[8] = src.data[8] * scalar;
+		return dest;
 	}
 
 	public static float determinant(Mat3 src) {
@@ -206,21 +266,57 @@ public class Mat3 {
 	 * which is used to rotate the with the rotation defined by the model
 	 * while keeping them as normals. (Look up Normal matrices on google for more info)
 	 * @param model The input model matrix
-	 * @return
+	 * @return The inverse transpose of the upper-left 3x3 matrix of model
 	 */
 	public static Mat3 toNormalMatrix(Mat4 model) {
-		Mat4 mat = Mat4.transpose(Mat4.inverse(model));
-		float[] dest = new float[9];
-		dest[0] = mat.getData()[0]; // m00
-		dest[1] = mat.getData()[1]; // m01
-		dest[2] = mat.getData()[2]; // m02
-		dest[3] = mat.getData()[4]; // m10
-		dest[4] = mat.getData()[5]; // m11
-		dest[5] = mat.getData()[6]; // m12
-		dest[6] = mat.getData()[8]; // m20
-		dest[7] = mat.getData()[9]; // m21
-		dest[8] = mat.getData()[10]; // this one was referencing m23 - typo?
-		return new Mat3(dest);
+		return toNormalMatrix(model, new Mat3());
+	}
+
+	/**
+	 * Generates a Normal matrix from the given model matrix and stores it in dest.
+	 * <br>For rotations and translations this is just the upper-left 3x3 matrix of model,
+	 * otherwise its inverse transpose is calculated from the cross products of its columns.
+	 * If the upper-left 3x3 matrix is not invertible, dest is set to the identity matrix
+	 * @param model The input model matrix
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat3 toNormalMatrix(Mat4 model, Mat3 dest) {
+		float[] m = model.getData();
+		float[] data = dest.data;
+		if((model.getProperties() & Mat4.PROPERTY_ORTHONORMAL) != 0) {
+			data[0] = m[0];
+			data[1] = m[1];
+			data[2] = m[2];
+			data[3] = m[4];
+			data[4] = m[5];
+			data[5] = m[6];
+			data[6] = m[8];
+			data[7] = m[9];
+			data[8] = m[10];
+			return dest;
+		}
+		float m0 = m[0], m1 = m[1], m2 = m[2];
+		float m4 = m[4], m5 = m[5], m6 = m[6];
+		float m8 = m[8], m9 = m[9], m10 = m[10];
+		float n0 = m5 * m10 - m6 * m9;
+		float n1 = m6 * m8 - m4 * m10;
+		float n2 = m4 * m9 - m5 * m8;
+		float det = m0 * n0 + m1 * n1 + m2 * n2;
+		if(det == 0) {
+			return setIdentity(dest);
+		}
+		float invdet = 1F / det;
+		data[0] = n0 * invdet;
+		data[1] = n1 * invdet;
+		data[2] = n2 * invdet;
+		data[3] = (m9 * m2 - m10 * m1) * invdet;
+		data[4] = (m10 * m0 - m8 * m2) * invdet;
+		data[5] = (m8 * m1 - m9 * m0) * invdet;
+		data[6] = (m1 * m6 - m2 * m5) * invdet;
+		data[7] = (m2 * m4 - m0 * m6) * invdet;
+		data[8] = (m0 * m5 - m1 * m4) * invdet;
+		return dest;
 	}
 	
 	public static Vec3 transform(Mat3 mat3, Vec3 vec3) {
@@ -230,4 +326,29 @@ public class Mat3 {
 		return new Vec3(x, y, z);
 	}
 
+	/**
+	 * Copies the values of src into dest
+	 * @param src Matrix to copy
+	 * @param dest Matrix to store the copy in
+	 * @return dest
+	 */
+	public static Mat3 set(Mat3 src, Mat3 dest) {
+		System.arraycopy(src.data, 0, dest.data, 0, 9);
+		return dest;
+	}
+
+	/**
+	 * Sets dest to the identity matrix
+	 * @param dest Matrix to reset
+	 * @return dest
+	 */
+	public static Mat3 setIdentity(Mat3 dest) {
+		float[] data = dest.data;
+		for(int i = 0; i < 9; i++) {
+			data[i] = 0;
+		}
+		data[0] = data[4] = data[8] = 1F;
+		return dest;
+	}
+
 }
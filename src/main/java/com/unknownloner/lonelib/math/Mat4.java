@@ -4,9 +4,47 @@ import java.nio.FloatBuffer;
 
 import com.unknownloner.lonelib.util.MathUtil;
 
+/**
+ * A 4x4 matrix stored in column-major order.
+ * <br>The methods without a dest parameter treat matrices as immutable and return a new matrix.
+ * The static methods taking a dest matrix write their result into dest and return it instead,
+ * so transforms can be built without allocating. dest may be the same matrix as one of the inputs.
+ * <br>Never pass {@link #ZERO} or {@link #IDENTITY} as dest.
+ * <br>Each matrix also tracks what kind of transform it holds (see the PROPERTY_ constants).
+ * The factory methods set these properties and the static operations carry them over to their results,
+ * so {@link #mul(Mat4, Mat4, Mat4)}, {@link #inverse(Mat4, Mat4)}, the transform methods
+ * and {@link Mat3#toNormalMatrix(Mat4, Mat3)} can use cheaper kernels for translations, rigid transforms and affine transforms.
+ * Matrices created from raw data have no properties and always take the general path.
+ */
 public class Mat4 {
 
+	/**
+	 * The matrix is the identity matrix
+	 */
+	public static final int PROPERTY_IDENTITY = 1;
+	/**
+	 * The matrix only translates, its upper-left 3x3 matrix is the identity
+	 */
+	public static final int PROPERTY_TRANSLATION = 2;
+	/**
+	 * The matrix is a rotation followed by a translation, its upper-left 3x3 matrix is orthonormal
+	 */
+	public static final int PROPERTY_ORTHONORMAL = 4;
+	/**
+	 * The bottom row of the matrix is 0, 0, 0, 1
+	 */
+	public static final int PROPERTY_AFFINE = 8;
+	/**
+	 * The matrix has the layout of a {@link #frustrum} projection matrix
+	 */
+	public static final int PROPERTY_PERSPECTIVE = 16;
+
+	private static final int IDENTITY_PROPERTIES = PROPERTY_IDENTITY | PROPERTY_TRANSLATION | PROPERTY_ORTHONORMAL | PROPERTY_AFFINE;
+	private static final int TRANSLATION_PROPERTIES = PROPERTY_TRANSLATION | PROPERTY_ORTHONORMAL | PROPERTY_AFFINE;
+	private static final int ORTHONORMAL_PROPERTIES = PROPERTY_ORTHONORMAL | PROPERTY_AFFINE;
+
 	private final float[] data;
+	private int properties;
 
 	public static final Mat4 ZERO;
 	public static final Mat4 IDENTITY;
@@ -19,6 +57,7 @@ public class Mat4 {
 				0, 0, 1, 0,
 				0, 0, 0, 1,
 		});
+		IDENTITY.properties = IDENTITY_PROPERTIES;
 	}
 
 	/**
@@ -37,6 +76,7 @@ public class Mat4 {
 	 */
 	public Mat4(Mat4 src) {
 		this(src.data, true);
+		this.properties = src.properties;
 	}
 
 	/**
@@ -94,11 +134,19 @@ public class Mat4 {
 
 	/**
 	 * return the raw Matrix data, changes to the array will be reflected in the matrix.
+	 * <br>The properties of the matrix are not updated by such changes, call {@link #classify(Mat4)} after modifying the data.
 	 * @return data array
 	 */
 	public float[] getData() {
 		return data;
 	}
+
+	/**
+	 * @return The PROPERTY_ flags known to hold for this matrix, or 0 if nothing is known
+	 */
+	public int getProperties() {
+		return properties;
+	}
 	
 	/**
 	 * Constructs a copy of this matrix
@@ -197,24 +245,35 @@ public class Mat4 {
 	 * @return left + right
 	 */
 	public static Mat4 add(Mat4 left, Mat4 right) {
-		float[] dest = new float[16];
-		dest[0] = left.data[0] + right.data[0];
-		dest[1] = left.data[1] + right.data[1];
-		dest[2] = left.data[2] + right.data[2];
-		dest[3] = left.data[3] + right.data[3];
-		dest[4] = left.data[4] + right.data[4];
-		dest[5] = left.data[5] + right.data[5];
-		dest[6] = left.data[6] + right.data[6];
-		dest[7] = left.data[7] + right.data[7];
-		dest[8] = left.data[8] + right.data[8];
-		dest[9] = left.data[9] + right.data[9];
-		dest[10] = left.data[10] + right.data[10];
-		dest[11] = left.data[11] + right.data[11];
-		dest[12] = left.data[12] + right.data[12];
-		dest[13] = left.data[13] + right.data[13];
-		dest[14] = left.data[14] + right.data[14];
-		dest[15] = left.data[15] + right.data[15];
-		return new Mat4(dest);
+		return add(left, right, new Mat4());
+	}
+
+	/**
+	 * Adds 2 matrices and stores the result in dest
+	 * @param left Value 1
+	 * @param right Value 2
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 add(Mat4 left, Mat4 right, Mat4 dest) {
+		dest.data[0] = left.data[0] + right.data[0];
+		dest.data[1] = left.data[1] + right.data[1];
+		dest.data[2] = left.data[2] + right.data[2];
+		dest.data[3] = left.data[3] + right.data[3];
+		dest.data[4] = left.data[4] + right.data[4];
+		dest.data[5] = left.data[5] + right.data[5];
+		dest.data[6] = left.data[6] + right.data[6];
+		dest.data[7] = left.data[7] + right.data[7];
+		dest.data[8] = left.data[8] + right.data[8];
+		dest.data[9] = left.data[9] + right.data[9];
+		dest.data[10] = left.data[10] + right.data[10];
+		dest.data[11] = left.data[11] + right.data[11];
+		dest.data[12] = left.data[12] + right.data[12];
+		dest.data[13] = left.data[13] + right.data[13];
+		dest.data[14] = left.data[14] + right.data[14];
+		dest.data[15] = left.data[15] + right.data[15];
+		dest.properties = 0;
+		return dest;
 	}
 
 	/**
@@ -224,24 +283,35 @@ public class Mat4 {
 	 * @return left - right
 	 */
 	public static Mat4 sub(Mat4 left, Mat4 right) {
-		float[] dest = new float[16];
-		dest[0] = left.data[0] - right.data[0];
-		dest[1] = left.data[1] - right.data[1];
-		dest[2] = left.data[2] - right.data[2];
-		dest[3] = left.data[3] - right.data[3];
-		dest[4] = left.data[4] - right.data[4];
-		dest[5] = left.data[5] - right.data[5];
-		dest[6] = left.data[6] - right.data[6];
-		dest[7] = left.data[7] - right.data[7];
-		dest[8] = left.data[8] - right.data[8];
-		dest[9] = left.data[9] - right.data[9];
-		dest[10] = left.data[10] - right.data[10];
-		dest[11] = left.data[11] - right.data[11];
-		dest[12] = left.data[12] - right.data[12];
-		dest[13] = left.data[13] - right.data[13];
-		dest[14] = left.data[14] - right.data[14];
-		dest[15] = left.data[15] - right.data[15];
-		return new Mat4(dest);
+		return sub(left, right, new Mat4());
+	}
+
+	/**
+	 * Subtracts one matrix from another and stores the result in dest
+	 * @param left Initial value
+	 * @param right Value to subtract
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 sub(Mat4 left, Mat4 right, Mat4 dest) {
+		dest.data[0] = left.data[0] - right.data[0];
+		dest.data[1] = left.data[1] - right.data[1];
+		dest.data[2] = left.data[2] - right.data[2];
+		dest.data[3] = left.data[3] - right.data[3];
+		dest.data[4] = left.data[4] - right.data[4];
+		dest.data[5] = left.data[5] - right.data[5];
+		dest.data[6] = left.data[6] - right.data[6];
+		dest.data[7] = left.data[7] - right.data[7];
+		dest.data[8] = left.data[8] - right.data[8];
+		dest.data[9] = left.data[9] - right.data[9];
+		dest.data[10] = left.data[10] - right.data[10];
+		dest.data[11] = left.data[11] - right.data[11];
+		dest.data[12] = left.data[12] - right.data[12];
+		dest.data[13] = left.data[13] - right.data[13];
+		dest.data[14] = left.data[14] - right.data[14];
+		dest.data[15] = left.data[15] - right.data[15];
+		dest.properties = 0;
+		return dest;
 	}
 
 	/**
@@ -251,27 +321,153 @@ public class Mat4 {
 	 * @return left * right
 	 */
 	public static Mat4 mul(Mat4 left, Mat4 right) {
-		float[] dest = new float[16];
-		dest[0] = left.data[0] * right.data[0] + left.data[4] * right.data[1] + left.data[8] * right.data[2] + left.data[12] * right.data[3];
-		dest[1] = left.data[1] * right.data[0] + left.data[5] * right.data[1] + left.data[9] * right.data[2] + left.data[13] * right.data[3];
-		dest[2] = left.data[2] * right.data[0] + left.data[6] * right.data[1] + left.data[10] * right.data[2] + left.data[14] * right.data[3];
-		dest[3] = left.data[3] * right.data[0] + left.data[7] * right.data[1] + left.data[11] * right.data[2] + left.data[15] * right.data[3];
+		return mul(left, right, new Mat4());
+	}
 
-		dest[4] = left.data[0] * right.data[4] + left.data[4] * right.data[5] + left.data[8] * right.data[6] + left.data[12] * right.data[7];
-		dest[5] = left.data[1] * right.data[4] + left.data[5] * right.data[5] + left.data[9] * right.data[6] + left.data[13] * right.data[7];
-		dest[6] = left.data[2] * right.data[4] + left.data[6] * right.data[5] + left.data[10] * right.data[6] + left.data[14] * right.data[7];
-		dest[7] = left.data[3] * right.data[4] + left.data[7] * right.data[5] + left.data[11] * right.data[6] + left.data[15] * right.data[7];
+	/**
+	 * Multiplies two matrices and stores the result in dest
+	 * @param left Left side of multiplication
+	 * @param right Right side of multiplication
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 mul(Mat4 left, Mat4 right, Mat4 dest) {
+		int lp = left.properties;
+		int rp = right.properties;
+		if((lp & PROPERTY_IDENTITY) != 0) {
+			return set(right, dest);
+		}
+		if((rp & PROPERTY_IDENTITY) != 0) {
+			return set(left, dest);
+		}
+		if((lp & rp & PROPERTY_TRANSLATION) != 0) {
+			float x = left.data[12] + right.data[12];
+			float y = left.data[13] + right.data[13];
+			float z = left.data[14] + right.data[14];
+			return makeTranslation(x, y, z, dest);
+		}
+		if((lp & rp & PROPERTY_AFFINE) != 0) {
+			mulAffine(left.data, 0, right.data, 0, dest.data, 0);
+			dest.properties = lp & rp & ORTHONORMAL_PROPERTIES;
+		} else if((lp & PROPERTY_PERSPECTIVE) != 0 && (rp & PROPERTY_AFFINE) != 0) {
+			mulPerspectiveAffine(left.data, right.data, dest.data);
+			dest.properties = 0;
+		} else {
+			mul(left.data, 0, right.data, 0, dest.data, 0);
+			dest.properties = 0;
+		}
+		return dest;
+	}
 
-		dest[8] = left.data[0] * right.data[8] + left.data[4] * right.data[9] + left.data[8] * right.data[10] + left.data[12] * right.data[11];
-		dest[9] = left.data[1] * right.data[8] + left.data[5] * right.data[9] + left.data[9] * right.data[10] + left.data[13] * right.data[11];
-		dest[10] = left.data[2] * right.data[8] + left.data[6] * right.data[9] + left.data[10] * right.data[10] + left.data[14] * right.data[11];
-		dest[11] = left.data[3] * right.data[8] + left.data[7] * right.data[9] + left.data[11] * right.data[10] + left.data[15] * right.data[11];
+	/**
+	 * Multiplies two column-major matrices stored in float arrays whose bottom rows are 0, 0, 0, 1,
+	 * such as matrices made by {@link #makeTRS(float, float, float, float, float, float, float, float, float, float, float[], int)}.
+	 * <br>dest may overlap left or right, every value is read before any is written.
+	 * @param l Array holding the left side of the multiplication
+	 * @param lo Offset of the left matrix in l
+	 * @param r Array holding the right side of the multiplication
+	 * @param ro Offset of the right matrix in r
+	 * @param dest Array to store the result in
+	 * @param destOffset Offset in dest to store the result at
+	 */
+	public static void mulAffine(float[] l, int lo, float[] r, int ro, float[] dest, int destOffset) {
+		float l0 = l[lo], l1 = l[lo + 1], l2 = l[lo + 2];
+		float l4 = l[lo + 4], l5 = l[lo + 5], l6 = l[lo + 6];
+		float l8 = l[lo + 8], l9 = l[lo + 9], l10 = l[lo + 10];
+		float l12 = l[lo + 12], l13 = l[lo + 13], l14 = l[lo + 14];
+		float r0 = r[ro], r1 = r[ro + 1], r2 = r[ro + 2];
+		float r4 = r[ro + 4], r5 = r[ro + 5], r6 = r[ro + 6];
+		float r8 = r[ro + 8], r9 = r[ro + 9], r10 = r[ro + 10];
+		float r12 = r[ro + 12], r13 = r[ro + 13], r14 = r[ro + 14];
+		int d = destOffset;
+
+		dest[d] = l0 * r0 + l4 * r1 + l8 * r2;
+		dest[d + 1] = l1 * r0 + l5 * r1 + l9 * r2;
+		dest[d + 2] = l2 * r0 + l6 * r1 + l10 * r2;
+		dest[d + 3] = 0;
+
+		dest[d + 4] = l0 * r4 + l4 * r5 + l8 * r6;
+		dest[d + 5] = l1 * r4 + l5 * r5 + l9 * r6;
+		dest[d + 6] = l2 * r4 + l6 * r5 + l10 * r6;
+		dest[d + 7] = 0;
+
+		dest[d + 8] = l0 * r8 + l4 * r9 + l8 * r10;
+		dest[d + 9] = l1 * r8 + l5 * r9 + l9 * r10;
+		dest[d + 10] = l2 * r8 + l6 * r9 + l10 * r10;
+		dest[d + 11] = 0;
+
+		dest[d + 12] = l0 * r12 + l4 * r13 + l8 * r14 + l12;
+		dest[d + 13] = l1 * r12 + l5 * r13 + l9 * r14 + l13;
+		dest[d + 14] = l2 * r12 + l6 * r13 + l10 * r14 + l14;
+		dest[d + 15] = 1;
+	}
 
-		dest[12] = left.data[0] * right.data[12] + left.data[4] * right.data[13] + left.data[8] * right.data[14] + left.data[12] * right.data[15];
-		dest[13] = left.data[1] * right.data[12] + left.data[5] * right.data[13] + left.data[9] * right.data[14] + left.data[13] * right.data[15];
-		dest[14] = left.data[2] * right.data[12] + left.data[6] * right.data[13] + left.data[10] * right.data[14] + left.data[14] * right.data[15];
-		dest[15] = left.data[3] * right.data[12] + left.data[7] * right.data[13] + left.data[11] * right.data[14] + left.data[15] * right.data[15];
-		return new Mat4(dest);
+	/**
+	 * Multiplies a frustrum projection matrix by a matrix whose bottom row is 0, 0, 0, 1,
+	 * skipping the zeros of the projection matrix
+	 */
+	private static void mulPerspectiveAffine(float[] l, float[] r, float[] dest) {
+		float l0 = l[0], l5 = l[5], l8 = l[8], l9 = l[9];
+		float l10 = l[10], l11 = l[11], l14 = l[14];
+		for(int c = 0; c < 16; c += 4) {
+			float x = r[c];
+			float y = r[c + 1];
+			float z = r[c + 2];
+			float w = r[c + 3];
+			dest[c] = l0 * x + l8 * z;
+			dest[c + 1] = l5 * y + l9 * z;
+			dest[c + 2] = l10 * z + l14 * w;
+			dest[c + 3] = l11 * z;
+		}
+	}
+
+	/**
+	 * Multiplies two column-major matrices stored in float arrays.
+	 * <br>dest may overlap left or right, every value is read before any is written.
+	 * @param l Array holding the left side of the multiplication
+	 * @param lo Offset of the left matrix in l
+	 * @param r Array holding the right side of the multiplication
+	 * @param ro Offset of the right matrix in r
+	 * @param dest Array to store the result in
+	 * @param destOffset Offset in dest to store the result at
+	 */
+	public static void mul(float[] l, int lo, float[] r, int ro, float[] dest, int destOffset) {
+		float d0 = l[lo + 0] * r[ro + 0] + l[lo + 4] * r[ro + 1] + l[lo + 8] * r[ro + 2] + l[lo + 12] * r[ro + 3];
+		float d1 = l[lo + 1] * r[ro + 0] + l[lo + 5] * r[ro + 1] + l[lo + 9] * r[ro + 2] + l[lo + 13] * r[ro + 3];
+		float d2 = l[lo + 2] * r[ro + 0] + l[lo + 6] * r[ro + 1] + l[lo + 10] * r[ro + 2] + l[lo + 14] * r[ro + 3];
+		float d3 = l[lo + 3] * r[ro + 0] + l[lo + 7] * r[ro + 1] + l[lo + 11] * r[ro + 2] + l[lo + 15] * r[ro + 3];
+
+		float d4 = l[lo + 0] * r[ro + 4] + l[lo + 4] * r[ro + 5] + l[lo + 8] * r[ro + 6] + l[lo + 12] * r[ro + 7];
+		float d5 = l[lo + 1] * r[ro + 4] + l[lo + 5] * r[ro + 5] + l[lo + 9] * r[ro + 6] + l[lo + 13] * r[ro + 7];
+		float d6 = l[lo + 2] * r[ro + 4] + l[lo + 6] * r[ro + 5] + l[lo + 10] * r[ro + 6] + l[lo + 14] * r[ro + 7];
+		float d7 = l[lo + 3] * r[ro + 4] + l[lo + 7] * r[ro + 5] + l[lo + 11] * r[ro + 6] + l[lo + 15] * r[ro + 7];
+
+		float d8 = l[lo + 0] * r[ro + 8] + l[lo + 4] * r[ro + 9] + l[lo + 8] * r[ro + 10] + l[lo + 12] * r[ro + 11];
+		float d9 = l[lo + 1] * r[ro + 8] + l[lo + 5] * r[ro + 9] + l[lo + 9] * r[ro + 10] + l[lo + 13] * r[ro + 11];
+		float d10 = l[lo + 2] * r[ro + 8] + l[lo + 6] * r[ro + 9] + l[lo + 10] * r[ro + 10] + l[lo + 14] * r[ro + 11];
+		float d11 = l[lo + 3] * r[ro + 8] + l[lo + 7] * r[ro + 9] + l[lo + 11] * r[ro + 10] + l[lo + 15] * r[ro + 11];
+
+		float d12 = l[lo + 0] * r[ro + 12] + l[lo + 4] * r[ro + 13] + l[lo + 8] * r[ro + 14] + l[lo + 12] * r[ro + 15];
+		float d13 = l[lo + 1] * r[ro + 12] + l[lo + 5] * r[ro + 13] + l[lo + 9] * r[ro + 14] + l[lo + 13] * r[ro + 15];
+		float d14 = l[lo + 2] * r[ro + 12] + l[lo + 6] * r[ro + 13] + l[lo + 10] * r[ro + 14] + l[lo + 14] * r[ro + 15];
+		float d15 = l[lo + 3] * r[ro + 12] + l[lo + 7] * r[ro + 13] + l[lo + 11] * r[ro + 14] + l[lo + 15] * r[ro + 15];
+
+		dest[destOffset + 0] = d0;
+		dest[destOffset + 1] = d1;
+		dest[destOffset + 2] = d2;
+		dest[destOffset + 3] = d3;
+		dest[destOffset + 4] = d4;
+		dest[destOffset + 5] = d5;
+		dest[destOffset + 6] = d6;
+		dest[destOffset + 7] = d7;
+		dest[destOffset + 8] = d8;
+		dest[destOffset + 9] = d9;
+		dest[destOffset + 10] = d10;
+		dest[destOffset + 11] = d11;
+		dest[destOffset + 12] = d12;
+		dest[destOffset + 13] = d13;
+		dest[destOffset + 14] = d14;
+		dest[destOffset + 15] = d15;
 	}
 
 	/**
@@ -280,24 +476,34 @@ public class Mat4 {
 	 * @return -mat4
 	 */
 	public static Mat4 negate(Mat4 mat4) {
-		float[] dest = new float[16];
-		dest[0] = -mat4.data[0];
-		dest[1] = -mat4.data[1];
-		dest[2] = -mat4.data[2];
-		dest[3] = -mat4.data[3];
-		dest[4] = -mat4.data[4];
-		dest[5] = -mat4.data[5];
-		dest[6] = -mat4.data[6];
-		dest[7] = -mat4.data[7];
-		dest[8] = -mat4.data[8];
-		dest[9] = -mat4.data[9];
-		dest[10] = -mat4.data[10];
-		dest[11] = -mat4.data[11];
-		dest[12] = -mat4.data[12];
-		dest[13] = -mat4.data[13];
-		dest[14] = -mat4.data[14];
-		dest[15] = -mat4.data[15];
-		return new Mat4(dest);
+		return negate(mat4, new Mat4());
+	}
+
+	/**
+	 * Negates a matrix and stores the result in dest
+	 * @param mat4 Matrix to negate
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 negate(Mat4 mat4, Mat4 dest) {
+		dest.data[0] = -mat4.data[0];
+		dest.data[1] = -mat4.data[1];
+		dest.data[2] = -mat4.data[2];
+		dest.data[3] = -mat4.data[3];
+		dest.data[4] = -mat4.data[4];
+		dest.data[5] = -mat4.data[5];
+		dest.data[6] = -mat4.data[6];
+		dest.data[7] = -mat4.data[7];
+		dest.data[8] = -mat4.data[8];
+		dest.data[9] = -mat4.data[9];
+		dest.data[10] = -mat4.data[10];
+		dest.data[11] = -mat4.data[11];
+		dest.data[12] = -mat4.data[12];
+		dest.data[13] = -mat4.data[13];
+		dest.data[14] = -mat4.data[14];
+		dest.data[15] = -mat4.data[15];
+		dest.properties = 0;
+		return dest;
 	}
 
 	/**
@@ -306,48 +512,73 @@ public class Mat4 {
 	 * @return mat4 transposed
 	 */
 	public static Mat4 transpose(Mat4 mat4) {
-		float[] dest = new float[16];
-		dest[0] = mat4.data[0];
-		dest[1] = mat4.data[4];
-		dest[2] = mat4.data[8];
-		dest[3] = mat4.data[12];
-
-		dest[4] = mat4.data[1];
-		dest[5] = mat4.data[5];
-		dest[6] = mat4.data[9];
-		dest[7] = mat4.data[13];
-
-		dest[8] = mat4.data[2];
-		dest[9] = mat4.data[6];
-		dest[10] = mat4.data[10];
-		dest[11] = mat4.data[14];
+		return transpose(mat4, new Mat4());
+	}
 
-		dest[12] = mat4.data[3];
-		dest[13] = mat4.data[7];
-		dest[14] = mat4.data[11];
-		dest[15] = mat4.data[15];
-		return new Mat4(dest);
+	/**
+	 * Transposes a matrix and stores the result in dest
+	 * @param mat4 Matrix to transpose
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 transpose(Mat4 mat4, Mat4 dest) {
+		float[] src = mat4.data;
+		dest.properties = (mat4.properties & PROPERTY_IDENTITY) != 0 ? IDENTITY_PROPERTIES : 0;
+		float m01 = src[1], m02 = src[2], m03 = src[3];
+		float m12 = src[6], m13 = src[7];
+		float m23 = src[11];
+		dest.data[0] = src[0];
+		dest.data[1] = src[4];
+		dest.data[2] = src[8];
+		dest.data[3] = src[12];
+
+		dest.data[4] = m01;
+		dest.data[5] = src[5];
+		dest.data[6] = src[9];
+		dest.data[7] = src[13];
+
+		dest.data[8] = m02;
+		dest.data[9] = m12;
+		dest.data[10] = src[10];
+		dest.data[11] = src[14];
+
+		dest.data[12] = m03;
+		dest.data[13] = m13;
+		dest.data[14] = m23;
+		dest.data[15] = src[15];
+		return dest;
 	}
 
 	public static Mat4 mul(Mat4 src, float scalar) {
-		float[] dest = new float[16];
-		dest[0] = src.data[0] * scalar;
-		dest[1] = src.data[1] * scalar;
-		dest[2] = src.data[2] * scalar;
-		dest[3] = src.data[3] * scalar;
-		dest[4] = src.data[4] * scalar;
-		dest[5] = src.data[5] * scalar;
-		dest[6] = src.data[6] * scalar;
-		dest[7] = src.data[7] * scalar;
-		dest[8] = src.data[8] * scalar;
-		dest[9] = src.data[9] * scalar;
-		dest[10] = src.data[10] * scalar;
-		dest[11] = src.data[11] * scalar;
-		dest[12] = src.data[12] * scalar;
-		dest[13] = src.data[13] * scalar;
-		dest[14] = src.data[14] * scalar;
-		dest[15] = src.data[15] * scalar;
-		return new Mat4(dest);
+		return mul(src, scalar, new Mat4());
+	}
+
+	/**
+	 * Multiplies every value in a matrix by a scalar and stores the result in dest
+	 * @param src Matrix to scale
+	 * @param scalar Value to multiply by
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 mul(Mat4 src, float scalar, Mat4 dest) {
+		dest.data[0] = src.data[0] * scalar;
+		dest.data[1] = src.data[1] * scalar;
+		dest.data[2] = src.data[2] * scalar;
+		dest.data[3] = src.data[3] * scalar;
+		dest.data[4] = src.data[4] * scalar;
+		dest.data[5] = src.data[5] * scalar;
+		dest.data[6] = src.data[6] * scalar;
+		dest.data[7] = src.data[7] * scalar;
+		dest.data[8] = src.data[8] * scalar;
+		dest.data[9] = src.data[9] * scalar;
+		dest.data[10] = src.data[10] * scalar;
+		dest.data[11] = src.data[11] * scalar;
+		dest.data[12] = src.data[12] * scalar;
+		dest.data[13] = src.data[13] * scalar;
+		dest.data[14] = src.data[14] * scalar;
+		dest.data[15] = src.data[15] * scalar;
+		dest.properties = 0;
+		return dest;
 	}
 
 	public static float determinant(Mat4 src) {
@@ -359,33 +590,178 @@ public class Mat4 {
 	}
 
 	public static Mat4 inverse(Mat4 src) {
-		float[] dest = new float[16];
-		float det = Mat4.determinant(src);
+		return inverse(src, new Mat4());
+	}
+
+	/**
+	 * Inverts a matrix and stores the result in dest.
+	 * <br>Translations, rigid transforms, affine transforms and frustrum projections are inverted with specialized kernels.
+	 * <br>If src is not invertible, dest is set to the identity matrix
+	 * @param src Matrix to invert
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 inverse(Mat4 src, Mat4 dest) {
+		int props = src.properties;
+		if((props & PROPERTY_IDENTITY) != 0) {
+			return setIdentity(dest);
+		}
+		if((props & PROPERTY_TRANSLATION) != 0) {
+			return makeTranslation(-src.data[12], -src.data[13], -src.data[14], dest);
+		}
+		if((props & PROPERTY_ORTHONORMAL) != 0) {
+			return inverseOrthonormal(src.data, dest);
+		}
+		if((props & PROPERTY_AFFINE) != 0) {
+			return inverseAffine(src.data, dest);
+		}
+		if((props & PROPERTY_PERSPECTIVE) != 0) {
+			return inversePerspective(src.data, dest);
+		}
+		return inverseGeneral(src.data, dest);
+	}
+
+	/**
+	 * The inverse of a rotation is its transpose, and the translation is rotated back and negated
+	 */
+	private static Mat4 inverseOrthonormal(float[] m, Mat4 dest) {
+		float m0 = m[0], m1 = m[1], m2 = m[2];
+		float m4 = m[4], m5 = m[5], m6 = m[6];
+		float m8 = m[8], m9 = m[9], m10 = m[10];
+		float m12 = m[12], m13 = m[13], m14 = m[14];
+		float[] data = dest.data;
+		data[0] = m0;
+		data[1] = m4;
+		data[2] = m8;
+		data[3] = 0;
+		data[4] = m1;
+		data[5] = m5;
+		data[6] = m9;
+		data[7] = 0;
+		data[8] = m2;
+		data[9] = m6;
+		data[10] = m10;
+		data[11] = 0;
+		data[12] = -(m0 * m12 + m1 * m13 + m2 * m14);
+		data[13] = -(m4 * m12 + m5 * m13 + m6 * m14);
+		data[14] = -(m8 * m12 + m9 * m13 + m10 * m14);
+		data[15] = 1;
+		dest.properties = ORTHONORMAL_PROPERTIES;
+		return dest;
+	}
+
+	/**
+	 * Inverts the upper-left 3x3 matrix using the cross products of its columns,
+	 * which are the rows of the inverse times the determinant
+	 */
+	private static Mat4 inverseAffine(float[] m, Mat4 dest) {
+		float m0 = m[0], m1 = m[1], m2 = m[2];
+		float m4 = m[4], m5 = m[5], m6 = m[6];
+		float m8 = m[8], m9 = m[9], m10 = m[10];
+		float m12 = m[12], m13 = m[13], m14 = m[14];
+		float r00 = m5 * m10 - m6 * m9;
+		float r01 = m6 * m8 - m4 * m10;
+		float r02 = m4 * m9 - m5 * m8;
+		float det = m0 * r00 + m1 * r01 + m2 * r02;
 		if(det == 0) {
-			return Mat4.IDENTITY;
+			return setIdentity(dest);
 		}
-		float invdet = 1 / det;
-		//first row
-		dest[0] =  Mat3.determinant(src.data[5], src.data[6], src.data[7], src.data[9], src.data[10], src.data[11], src.data[13], src.data[14], src.data[15]);
-		dest[1] = -Mat3.determinant(src.data[4], src.data[6], src.data[7], src.data[8], src.data[10], src.data[11], src.data[12], src.data[14], src.data[15]);
-		dest[2] =  Mat3.determinant(src.data[4], src.data[5], src.data[7], src.data[8], src.data[9], src.data[11], src.data[12], src.data[13], src.data[15]);
-		dest[3] = -Mat3.determinant(src.data[4], src.data[5], src.data[6], src.data[8], src.data[9], src.data[10], src.data[12], src.data[13], src.data[14]);
-		// second row
-		dest[4] = -Mat3.determinant(src.data[1], src.data[2], src.data[3], src.data[9], src.data[10], src.data[11], src.data[13], src.data[14], src.data[15]);
-		dest[5] =  Mat3.determinant(src.data[0], src.data[2], src.data[3], src.data[8], src.data[10], src.data[11], src.data[12], src.data[14], src.data[15]);
-		dest[6] = -Mat3.determinant(src.data[0], src.data[1], src.data[3], src.data[8], src.data[9], src.data[11], src.data[12], src.data[13], src.data[15]);
-		dest[7] =  Mat3.determinant(src.data[0], src.data[1], src.data[2], src.data[8], src.data[9], src.data[10], src.data[12], src.data[13], src.data[14]);
-		// third row
-		dest[8] =  Mat3.determinant(src.data[1], src.data[2], src.data[3], src.data[5], src.data[6], src.data[7], src.data[13], src.data[14], src.data[15]);
-		dest[9] = -Mat3.determinant(src.data[0], src.data[2], src.data[3], src.data[4], src.data[6], src.data[7], src.data[12], src.data[14], src.data[15]);
-		dest[10] =  Mat3.determinant(src.data[0], src.data[1], src.data[3], src.data[4], src.data[5], src.data[7], src.data[12], src.data[13], src.data[15]);
-		dest[11] = -Mat3.determinant(src.data[0], src.data[1], src.data[2], src.data[4], src.data[5], src.data[6], src.data[12], src.data[13], src.data[14]);
-		// fourth row
-		dest[12] = -Mat3.determinant(src.data[1], src.data[2], src.data[3], src.data[5], src.data[6], src.data[7], src.data[9], src.data[10], src.data[11]);
-		dest[13] =  Mat3.determinant(src.data[0], src.data[2], src.data[3], src.data[4], src.data[6], src.data[7], src.data[8], src.data[10], src.data[11]);
-		dest[14] = -Mat3.determinant(src.data[0], src.data[1], src.data[3], src.data[4], src.data[5], src.data[7], src.data[8], src.data[9], src.data[11]);
-		dest[15] =  Mat3.determinant(src.data[0], src.data[1], src.data[2], src.data[4], src.data[5], src.data[6], src.data[8], src.data[9], src.data[10]);
-		return Mat4.mul(new Mat4(dest), invdet);
+		float invdet = 1F / det;
+		float d0 = r00 * invdet;
+		float d4 = r01 * invdet;
+		float d8 = r02 * invdet;
+		float d1 = (m9 * m2 - m10 * m1) * invdet;
+		float d5 = (m10 * m0 - m8 * m2) * invdet;
+		float d9 = (m8 * m1 - m9 * m0) * invdet;
+		float d2 = (m1 * m6 - m2 * m5) * invdet;
+		float d6 = (m2 * m4 - m0 * m6) * invdet;
+		float d10 = (m0 * m5 - m1 * m4) * invdet;
+		float[] data = dest.data;
+		data[0] = d0;
+		data[1] = d1;
+		data[2] = d2;
+		data[3] = 0;
+		data[4] = d4;
+		data[5] = d5;
+		data[6] = d6;
+		data[7] = 0;
+		data[8] = d8;
+		data[9] = d9;
+		data[10] = d10;
+		data[11] = 0;
+		data[12] = -(d0 * m12 + d4 * m13 + d8 * m14);
+		data[13] = -(d1 * m12 + d5 * m13 + d9 * m14);
+		data[14] = -(d2 * m12 + d6 * m13 + d10 * m14);
+		data[15] = 1;
+		dest.properties = PROPERTY_AFFINE;
+		return dest;
+	}
+
+	/**
+	 * Closed form inverse of a matrix with the layout produced by {@link #frustrum}
+	 */
+	private static Mat4 inversePerspective(float[] m, Mat4 dest) {
+		float a = m[0], b = m[5], c = m[8], d = m[9];
+		float e = m[10], f = m[14], g = m[11];
+		if(a == 0 || b == 0 || f == 0 || g == 0) {
+			return setIdentity(dest);
+		}
+		float[] data = clear(dest);
+		data[0] = 1F / a;
+		data[5] = 1F / b;
+		data[11] = 1F / f;
+		data[12] = -c / (a * g);
+		data[13] = -d / (b * g);
+		data[14] = 1F / g;
+		data[15] = -e / (f * g);
+		dest.properties = 0;
+		return dest;
+	}
+
+	/**
+	 * Full inverse using the 2x2 sub-determinants of the top two and bottom two rows
+	 */
+	private static Mat4 inverseGeneral(float[] m, Mat4 dest) {
+		float m00 = m[0], m01 = m[1], m02 = m[2], m03 = m[3];
+		float m10 = m[4], m11 = m[5], m12 = m[6], m13 = m[7];
+		float m20 = m[8], m21 = m[9], m22 = m[10], m23 = m[11];
+		float m30 = m[12], m31 = m[13], m32 = m[14], m33 = m[15];
+		float a = m00 * m11 - m01 * m10;
+		float b = m00 * m12 - m02 * m10;
+		float c = m00 * m13 - m03 * m10;
+		float d = m01 * m12 - m02 * m11;
+		float e = m01 * m13 - m03 * m11;
+		float f = m02 * m13 - m03 * m12;
+		float g = m20 * m31 - m21 * m30;
+		float h = m20 * m32 - m22 * m30;
+		float i = m20 * m33 - m23 * m30;
+		float j = m21 * m32 - m22 * m31;
+		float k = m21 * m33 - m23 * m31;
+		float l = m22 * m33 - m23 * m32;
+		float det = a * l - b * k + c * j + d * i - e * h + f * g;
+		if(det == 0) {
+			return setIdentity(dest);
+		}
+		float invdet = 1F / det;
+		float[] data = dest.data;
+		data[0] = (m11 * l - m12 * k + m13 * j) * invdet;
+		data[1] = (-m01 * l + m02 * k - m03 * j) * invdet;
+		data[2] = (m31 * f - m32 * e + m33 * d) * invdet;
+		data[3] = (-m21 * f + m22 * e - m23 * d) * invdet;
+		data[4] = (-m10 * l + m12 * i - m13 * h) * invdet;
+		data[5] = (m00 * l - m02 * i + m03 * h) * invdet;
+		data[6] = (-m30 * f + m32 * c - m33 * b) * invdet;
+		data[7] = (m20 * f - m22 * c + m23 * b) * invdet;
+		data[8] = (m10 * k - m11 * i + m13 * g) * invdet;
+		data[9] = (-m00 * k + m01 * i - m03 * g) * invdet;
+		data[10] = (m30 * e - m31 * c + m33 * a) * invdet;
+		data[11] = (-m20 * e + m21 * c - m23 * a) * invdet;
+		data[12] = (-m10 * j + m11 * h - m12 * g) * invdet;
+		data[13] = (m00 * j - m01 * h + m02 * g) * invdet;
+		data[14] = (-m30 * d + m31 * b - m32 * a) * invdet;
+		data[15] = (m20 * d - m21 * b + m22 * a) * invdet;
+		dest.properties = 0;
+		return dest;
 	}
 
 	/**
@@ -395,12 +771,45 @@ public class Mat4 {
 	 * @return A transformation matrix representing mat4 * new translation matrix
 	 */
 	public static Mat4 translate(Vec3 dist, Mat4 mat4) {
-		Mat4 dest = mat4.copy();
-		dest.data[12] += mat4.data[0] * dist.x + mat4.data[4] * dist.y + mat4.data[8] * dist.z;
-		dest.data[13] += mat4.data[1] * dist.x + mat4.data[5] * dist.y + mat4.data[9] * dist.z;
-		dest.data[14] += mat4.data[2] * dist.x + mat4.data[6] * dist.y + mat4.data[10] * dist.z;
-		dest.data[15] += mat4.data[3] * dist.x + mat4.data[7] * dist.y + mat4.data[11] * dist.z;
-		return new Mat4(dest);
+		return translate(dist.x, dist.y, dist.z, mat4, new Mat4());
+	}
+
+	/**
+	 * Multiplies a matrix by a translation matrix and stores the result in dest
+	 * @param dist A vector containing the x, y, and z distances to translate over
+	 * @param mat4 The initial matrix
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 translate(Vec3 dist, Mat4 mat4, Mat4 dest) {
+		return translate(dist.x, dist.y, dist.z, mat4, dest);
+	}
+
+	/**
+	 * Multiplies a matrix by a translation matrix and stores the result in dest
+	 * @param x Distance to translate along the x axis
+	 * @param y Distance to translate along the y axis
+	 * @param z Distance to translate along the z axis
+	 * @param mat4 The initial matrix
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 translate(float x, float y, float z, Mat4 mat4, Mat4 dest) {
+		float[] src = mat4.data;
+		float d12 = src[0] * x + src[4] * y + src[8] * z + src[12];
+		float d13 = src[1] * x + src[5] * y + src[9] * z + src[13];
+		float d14 = src[2] * x + src[6] * y + src[10] * z + src[14];
+		float d15 = src[3] * x + src[7] * y + src[11] * z + src[15];
+		int props = mat4.properties;
+		if(dest != mat4) {
+			System.arraycopy(src, 0, dest.data, 0, 12);
+		}
+		dest.data[12] = d12;
+		dest.data[13] = d13;
+		dest.data[14] = d14;
+		dest.data[15] = d15;
+		dest.properties = (props & PROPERTY_AFFINE) != 0 ? props & ~PROPERTY_IDENTITY : 0;
+		return dest;
 	}
 
 	/**
@@ -410,27 +819,53 @@ public class Mat4 {
 	 * @return A transformation matrix representing mat4 * new scale matrix
 	 */
 	public static Mat4 scale(Vec3 scale, Mat4 mat4) {
-		float[] dest = new float[16];
-		dest[0] = mat4.data[0] * scale.x;
-		dest[1] = mat4.data[1] * scale.x;
-		dest[2] = mat4.data[2] * scale.x;
-		dest[3] = mat4.data[3] * scale.x;
-
-		dest[4] = mat4.data[4] * scale.y;
-		dest[5] = mat4.data[5] * scale.y;
-		dest[6] = mat4.data[6] * scale.y;
-		dest[7] = mat4.data[7] * scale.y;
+		return scale(scale.x, scale.y, scale.z, mat4, new Mat4());
+	}
 
-		dest[8]  = mat4.data[8] * scale.z;
-		dest[9]  = mat4.data[9] * scale.z;
-		dest[10] = mat4.data[10] * scale.z;
-		dest[11] = mat4.data[11] * scale.z;
+	/**
+	 * Multiplies a matrix by a scale matrix and stores the result in dest
+	 * @param scale A vector containing the scale factor for the x, y, and z axis
+	 * @param mat4 The initial matrix
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 scale(Vec3 scale, Mat4 mat4, Mat4 dest) {
+		return scale(scale.x, scale.y, scale.z, mat4, dest);
+	}
 
-		dest[12] = mat4.data[12];
-		dest[13] = mat4.data[13];
-		dest[14] = mat4.data[14];
-		dest[15] = mat4.data[15];
-		return new Mat4(dest);
+	/**
+	 * Multiplies a matrix by a scale matrix and stores the result in dest
+	 * @param x Scale factor for the x axis
+	 * @param y Scale factor for the y axis
+	 * @param z Scale factor for the z axis
+	 * @param mat4 The initial matrix
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 scale(float x, float y, float z, Mat4 mat4, Mat4 dest) {
+		float[] src = mat4.data;
+		float[] data = dest.data;
+		data[0] = src[0] * x;
+		data[1] = src[1] * x;
+		data[2] = src[2] * x;
+		data[3] = src[3] * x;
+
+		data[4] = src[4] * y;
+		data[5] = src[5] * y;
+		data[6] = src[6] * y;
+		data[7] = src[7] * y;
+
+		data[8]  = src[8] * z;
+		data[9]  = src[9] * z;
+		data[10] = src[10] * z;
+		data[11] = src[11] * z;
+
+		data[12] = src[12];
+		data[13] = src[13];
+		data[14] = src[14];
+		data[15] = src[15];
+		dest.properties = mat4.properties & PROPERTY_AFFINE;
+		return dest;
 	}
 
 	/**
@@ -441,49 +876,116 @@ public class Mat4 {
 	 * @return A transformation matrix representing mat4 multiplied by the new rotation matrix
 	 */
 	public static Mat4 rotate(float radians, Vec3 axis, Mat4 mat4) {
-		float[] dest = new float[16];
-		axis = axis.normalize();
-		float sin = (float)Math.sin(radians);
-		float cos = (float)Math.cos(radians);
+		return rotate(radians, axis.x, axis.y, axis.z, mat4, new Mat4());
+	}
+
+	/**
+	 * Multiplies a matrix by a rotation matrix and stores the result in dest
+	 * @param radians Amount of radians to rotate
+	 * @param axis A Vec3 which serves as the axis to rotate around
+	 * @param mat4 The initial matrix
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 rotate(float radians, Vec3 axis, Mat4 mat4, Mat4 dest) {
+		return rotate(radians, axis.x, axis.y, axis.z, mat4, dest);
+	}
+
+	/**
+	 * Multiplies a matrix by a rotation matrix and stores the result in dest
+	 * @param radians Amount of radians to rotate
+	 * @param axisX X component of the axis to rotate around
+	 * @param axisY Y component of the axis to rotate around
+	 * @param axisZ Z component of the axis to rotate around
+	 * @param mat4 The initial matrix
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 rotate(float radians, float axisX, float axisY, float axisZ, Mat4 mat4, Mat4 dest) {
+		float len = (float)Math.sqrt(axisX * axisX + axisY * axisY + axisZ * axisZ);
+		return rotate((float)Math.sin(radians), (float)Math.cos(radians), axisX / len, axisY / len, axisZ / len, mat4, dest);
+	}
+
+	/**
+	 * Same as {@link #rotate(float, float, float, float, Mat4, Mat4)}, but uses {@link MathUtil#sinFast(float)},
+	 * {@link MathUtil#cosFast(float)} and {@link MathUtil#invSqrtFast(float)}.
+	 * The rotation is accurate to about 2e-5 per element
+	 * @param radians Amount of radians to rotate
+	 * @param axisX X component of the axis to rotate around
+	 * @param axisY Y component of the axis to rotate around
+	 * @param axisZ Z component of the axis to rotate around
+	 * @param mat4 The initial matrix
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 rotateFast(float radians, float axisX, float axisY, float axisZ, Mat4 mat4, Mat4 dest) {
+		float invLen = MathUtil.invSqrtFast(axisX * axisX + axisY * axisY + axisZ * axisZ);
+		return rotate(MathUtil.sinFast(radians), MathUtil.cosFast(radians), axisX * invLen, axisY * invLen, axisZ * invLen, mat4, dest);
+	}
+
+	public static Mat4 rotateFast(float radians, Vec3 axis, Mat4 mat4, Mat4 dest) {
+		return rotateFast(radians, axis.x, axis.y, axis.z, mat4, dest);
+	}
+
+	/**
+	 * Multiplies a matrix by the rotation with the given sine and cosine around a normalized axis
+	 */
+	private static Mat4 rotate(float sin, float cos, float x, float y, float z, Mat4 mat4, Mat4 dest) {
 		float oneMinusCos = 1F - cos;
-		float xx = axis.x * axis.x;
-		float xy = axis.x * axis.y;
-		float xz = axis.x * axis.z;
+		float xx = x * x;
+		float xy = x * y;
+		float xz = x * z;
 
-		float yy = axis.y * axis.y;
-		float yz = axis.y * axis.z;
+		float yy = y * y;
+		float yz = y * z;
 
-		float zz = axis.z * axis.z;
+		float zz = z * z;
 
 		float n00 = xx + (1 - xx) * cos;
-		float n01 = xy * oneMinusCos + axis.z * sin;
-		float n02 = xz * oneMinusCos - axis.y * sin;
+		float n01 = xy * oneMinusCos + z * sin;
+		float n02 = xz * oneMinusCos - y * sin;
 
-		float n10 = xy * oneMinusCos - axis.z * sin;
+		float n10 = xy * oneMinusCos - z * sin;
 		float n11 = yy + (1 - yy) * cos;
-		float n12 = yz * oneMinusCos + axis.x * sin;
+		float n12 = yz * oneMinusCos + x * sin;
 
-		float n20 = xz * oneMinusCos + axis.y * sin;
-		float n21 = yz * oneMinusCos - axis.x * sin;
+		float n20 = xz * oneMinusCos + y * sin;
+		float n21 = yz * oneMinusCos - x * sin;
 		float n22 = zz + (1 - zz) * cos;
 
-		dest[0] = mat4.data[0] * n00 + mat4.data[4] * n01 + mat4.data[8] * n02;
-		dest[1] = mat4.data[1] * n00 + mat4.data[5] * n01 + mat4.data[9] * n02;
-		dest[2] = mat4.data[2] * n00 + mat4.data[6] * n01 + mat4.data[10] * n02;
-		dest[3] = mat4.data[3] * n00 + mat4.data[7] * n01 + mat4.data[11] * n02;
-		dest[4] = mat4.data[0] * n10 + mat4.data[4] * n11 + mat4.data[8] * n12;
-		dest[5] = mat4.data[1] * n10 + mat4.data[5] * n11 + mat4.data[9] * n12;
-		dest[6] = mat4.data[2] * n10 + mat4.data[6] * n11 + mat4.data[10] * n12;
-		dest[7] = mat4.data[3] * n10 + mat4.data[7] * n11 + mat4.data[11] * n12;
-		dest[8] = mat4.data[0] * n20 + mat4.data[4] * n21 + mat4.data[8] * n22;
-		dest[9] = mat4.data[1] * n20 + mat4.data[5] * n21 + mat4.data[9] * n22;
-		dest[10] = mat4.data[2] * n20 + mat4.data[6] * n21 + mat4.data[10] * n22;
-		dest[11] = mat4.data[3] * n20 + mat4.data[7] * n21 + mat4.data[11] * n22;
-		dest[12] = mat4.data[12];
-		dest[13] = mat4.data[13];
-		dest[14] = mat4.data[14];
-		dest[15] = mat4.data[15];
-		return new Mat4(dest);
+		float[] src = mat4.data;
+		float d0 = src[0] * n00 + src[4] * n01 + src[8] * n02;
+		float d1 = src[1] * n00 + src[5] * n01 + src[9] * n02;
+		float d2 = src[2] * n00 + src[6] * n01 + src[10] * n02;
+		float d3 = src[3] * n00 + src[7] * n01 + src[11] * n02;
+		float d4 = src[0] * n10 + src[4] * n11 + src[8] * n12;
+		float d5 = src[1] * n10 + src[5] * n11 + src[9] * n12;
+		float d6 = src[2] * n10 + src[6] * n11 + src[10] * n12;
+		float d7 = src[3] * n10 + src[7] * n11 + src[11] * n12;
+		float d8 = src[0] * n20 + src[4] * n21 + src[8] * n22;
+		float d9 = src[1] * n20 + src[5] * n21 + src[9] * n22;
+		float d10 = src[2] * n20 + src[6] * n21 + src[10] * n22;
+		float d11 = src[3] * n20 + src[7] * n21 + src[11] * n22;
+
+		float[] data = dest.data;
+		data[0] = d0;
+		data[1] = d1;
+		data[2] = d2;
+		data[3] = d3;
+		data[4] = d4;
+		data[5] = d5;
+		data[6] = d6;
+		data[7] = d7;
+		data[8] = d8;
+		data[9] = d9;
+		data[10] = d10;
+		data[11] = d11;
+		data[12] = src[12];
+		data[13] = src[13];
+		data[14] = src[14];
+		data[15] = src[15];
+		dest.properties = mat4.properties & ORTHONORMAL_PROPERTIES;
+		return dest;
 	}
 
 	/**
@@ -506,6 +1008,15 @@ public class Mat4 {
 	 * @return mat4 * vec4
 	 */
 	public static Vec4 transform(Mat4 mat4, Vec4 vec4) {
+		if((mat4.properties & PROPERTY_TRANSLATION) != 0) {
+			return new Vec4(vec4.x + mat4.data[12] * vec4.w, vec4.y + mat4.data[13] * vec4.w, vec4.z + mat4.data[14] * vec4.w, vec4.w);
+		}
+		if((mat4.properties & PROPERTY_AFFINE) != 0) {
+			float x = mat4.data[0] * vec4.x + mat4.data[4] * vec4.y + mat4.data[8] * vec4.z + mat4.data[12] * vec4.w;
+			float y = mat4.data[1] * vec4.x + mat4.data[5] * vec4.y + mat4.data[9] * vec4.z + mat4.data[13] * vec4.w;
+			float z = mat4.data[2] * vec4.x + mat4.data[6] * vec4.y + mat4.data[10] * vec4.z + mat4.data[14] * vec4.w;
+			return new Vec4(x, y, z, vec4.w);
+		}
 		float x = mat4.data[0] * vec4.x + mat4.data[4] * vec4.y + mat4.data[8] * vec4.z + mat4.data[12] * vec4.w;
 		float y = mat4.data[1] * vec4.x + mat4.data[5] * vec4.y + mat4.data[9] * vec4.z + mat4.data[13] * vec4.w;
 		float z = mat4.data[2] * vec4.x + mat4.data[6] * vec4.y + mat4.data[10] * vec4.z + mat4.data[14] * vec4.w;
@@ -513,6 +1024,26 @@ public class Mat4 {
 		return new Vec4(x, y, z, w);
 	}
 
+	/**
+	 * Transforms the vector (x, y, z, w) by a mat4 and stores the result in dest
+	 * @param mat4 A transformation matrix
+	 * @param dest Array to store the x, y, z, and w of the result in
+	 * @param offset Offset into dest to store the result at
+	 * @return dest
+	 */
+	public static float[] transform(Mat4 mat4, float x, float y, float z, float w, float[] dest, int offset) {
+		float[] m = mat4.data;
+		dest[offset]     = m[0] * x + m[4] * y + m[8] * z + m[12] * w;
+		dest[offset + 1] = m[1] * x + m[5] * y + m[9] * z + m[13] * w;
+		dest[offset + 2] = m[2] * x + m[6] * y + m[10] * z + m[14] * w;
+		if((mat4.properties & PROPERTY_AFFINE) != 0) {
+			dest[offset + 3] = w;
+		} else {
+			dest[offset + 3] = m[3] * x + m[7] * y + m[11] * z + m[15] * w;
+		}
+		return dest;
+	}
+
 	/**
 	 * Generates an orthographic projection matrix
 	 * @param left Left boundary
@@ -524,88 +1055,340 @@ public class Mat4 {
 	 * @return An orthographic projection matrix based on the given values
 	 */
 	public static Mat4 ortho(float left, float right, float bottom, float top, float near, float far) {
+		return ortho(left, right, bottom, top, near, far, new Mat4());
+	}
+
+	/**
+	 * Generates an orthographic projection matrix and stores it in dest
+	 * @see #ortho(float, float, float, float, float, float)
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 ortho(float left, float right, float bottom, float top, float near, float far, Mat4 dest) {
 		float width = right - left;
 		float height = top - bottom;
 		float length = far - near;
-		float[] dest = new float[16];
-		dest[0] = 2 / width;
-		dest[5] = 2 / height;
-		dest[10] = -2 / length;
-		dest[12] = -(right + left) / width;
-		dest[13] = -(top + bottom) / height;
-		dest[14] = -(far + near) / length;
-		dest[15] = 1;
-		return new Mat4(dest);
+		float[] data = clear(dest);
+		data[0] = 2 / width;
+		data[5] = 2 / height;
+		data[10] = -2 / length;
+		data[12] = -(right + left) / width;
+		data[13] = -(top + bottom) / height;
+		data[14] = -(far + near) / length;
+		data[15] = 1;
+		dest.properties = PROPERTY_AFFINE;
+		return dest;
 	}
 
 	public static Mat4 frustrum(float left, float right, float bottom, float top, float near, float far) {
+		return frustrum(left, right, bottom, top, near, far, new Mat4());
+	}
+
+	/**
+	 * Generates a perspective projection matrix from the given clipping planes and stores it in dest
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 frustrum(float left, float right, float bottom, float top, float near, float far, Mat4 dest) {
 		float width = right - left;
 		float height = top - bottom;
 		float length = far - near;
-		float[] dest = new float[16];
-		dest[0] = (near * 2) / width;
-		dest[5] = (near * 2) / height;
-		dest[8] = (left + right) / width;
-		dest[9] = (top + bottom) / height;
-		dest[10] = -(far + near) / length;
-		dest[11] = -1;
-		dest[14] = -(far * near * 2) / length;
-		return new Mat4(dest);
+		float[] data = clear(dest);
+		data[0] = (near * 2) / width;
+		data[5] = (near * 2) / height;
+		data[8] = (left + right) / width;
+		data[9] = (top + bottom) / height;
+		data[10] = -(far + near) / length;
+		data[11] = -1;
+		data[14] = -(far * near * 2) / length;
+		dest.properties = PROPERTY_PERSPECTIVE;
+		return dest;
 	}
 
 	public static Mat4 perspective(float fovInDegrees, float aspectRatio, float near, float far) {
+		return perspective(fovInDegrees, aspectRatio, near, far, new Mat4());
+	}
+
+	/**
+	 * Generates a perspective projection matrix and stores it in dest
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 perspective(float fovInDegrees, float aspectRatio, float near, float far, Mat4 dest) {
 		float top = (float)(near * Math.tan(fovInDegrees * MathUtil.PI360));
 		float right = top * aspectRatio;
-		return frustrum(-right, right, -top, top, near, far);
+		return frustrum(-right, right, -top, top, near, far, dest);
 	}
 	
 	public static Mat4 makeTranslation(Vec3 dist) {
-		float[] dest = new float[16];
-		dest[0] = dest[5] = dest[10] = dest[15] = 1F;
-		dest[12] = dist.x;
-		dest[13] = dist.y;
-		dest[14] = dist.z;
-		return new Mat4(dest);
+		return makeTranslation(dist.x, dist.y, dist.z, new Mat4());
+	}
+
+	/**
+	 * Sets dest to a translation matrix
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 makeTranslation(float x, float y, float z, Mat4 dest) {
+		float[] data = clear(dest);
+		data[0] = data[5] = data[10] = data[15] = 1F;
+		data[12] = x;
+		data[13] = y;
+		data[14] = z;
+		dest.properties = (x == 0 && y == 0 && z == 0) ? IDENTITY_PROPERTIES : TRANSLATION_PROPERTIES;
+		return dest;
 	}
 	
 	public static Mat4 makeRotation(float radians, Vec3 axis) {
-		float[] dest = new float[16];
-		axis = axis.normalize();
+		return makeRotation(radians, axis.x, axis.y, axis.z, new Mat4());
+	}
+
+	/**
+	 * Sets dest to a rotation matrix around the given axis
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 makeRotation(float radians, float axisX, float axisY, float axisZ, Mat4 dest) {
+		float len = (float)Math.sqrt(axisX * axisX + axisY * axisY + axisZ * axisZ);
+		float x = axisX / len;
+		float y = axisY / len;
+		float z = axisZ / len;
 		float sin = (float)Math.sin(radians);
 		float cos = (float)Math.cos(radians);
 		float oneMinusCos = 1F - cos;
-		float xx = axis.x * axis.x;
-		float xy = axis.x * axis.y;
-		float xz = axis.x * axis.z;
+		float xx = x * x;
+		float xy = x * y;
+		float xz = x * z;
 
-		float yy = axis.y * axis.y;
-		float yz = axis.y * axis.z;
+		float yy = y * y;
+		float yz = y * z;
 
-		float zz = axis.z * axis.z;
+		float zz = z * z;
 
-		dest[0] = xx + (1 - xx) * cos;
-		dest[1] = xy * oneMinusCos + axis.z * sin;
-		dest[2] = xz * oneMinusCos - axis.y * sin;
+		float[] data = clear(dest);
+		data[0] = xx + (1 - xx) * cos;
+		data[1] = xy * oneMinusCos + z * sin;
+		data[2] = xz * oneMinusCos - y * sin;
 
-		dest[4] = xy * oneMinusCos - axis.z * sin;
-		dest[5] = yy + (1 - yy) * cos;
-		dest[6] = yz * oneMinusCos + axis.x * sin;
+		data[4] = xy * oneMinusCos - z * sin;
+		data[5] = yy + (1 - yy) * cos;
+		data[6] = yz * oneMinusCos + x * sin;
 
-		dest[8] = xz * oneMinusCos + axis.y * sin;
-		dest[9] = yz * oneMinusCos - axis.x * sin;
-		dest[10] = zz + (1 - zz) * cos;
+		data[8] = xz * oneMinusCos + y * sin;
+		data[9] = yz * oneMinusCos - x * sin;
+		data[10] = zz + (1 - zz) * cos;
 		
-		dest[15] = 1;
-		return new Mat4(dest);
+		data[15] = 1;
+		dest.properties = ORTHONORMAL_PROPERTIES;
+		return dest;
 	}
 	
 	public static Mat4 makeScale(Vec3 scale) {
-		float[] dest = new float[16];
-		dest[0] = scale.x;
-		dest[5] = scale.y;
-		dest[10] = scale.z;
-		dest[15] = 1;
-		return new Mat4(dest);
+		return makeScale(scale.x, scale.y, scale.z, new Mat4());
+	}
+
+	/**
+	 * Sets dest to a scale matrix
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 makeScale(float x, float y, float z, Mat4 dest) {
+		float[] data = clear(dest);
+		data[0] = x;
+		data[5] = y;
+		data[10] = z;
+		data[15] = 1;
+		dest.properties = PROPERTY_AFFINE;
+		return dest;
+	}
+
+	/**
+	 * Sets dest to translation * rotation * scale
+	 * @param translation Translation of the transform
+	 * @param rotation A normalized quaternion
+	 * @param scale Scale factor for the x, y, and z axis
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 makeTRS(Vec3 translation, Quat rotation, Vec3 scale, Mat4 dest) {
+		return makeTRS(translation.x, translation.y, translation.z,
+				rotation.getX(), rotation.getY(), rotation.getZ(), rotation.getW(),
+				scale.x, scale.y, scale.z, dest);
+	}
+
+	/**
+	 * Sets dest to translation * rotation * scale
+	 * @param qx X component of a normalized quaternion
+	 * @param qy Y component of a normalized quaternion
+	 * @param qz Z component of a normalized quaternion
+	 * @param qw W component of a normalized quaternion
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public static Mat4 makeTRS(float tx, float ty, float tz, float qx, float qy, float qz, float qw,
+			float sx, float sy, float sz, Mat4 dest) {
+		makeTRS(tx, ty, tz, qx, qy, qz, qw, sx, sy, sz, dest.data, 0);
+		dest.properties = sx == 1 && sy == 1 && sz == 1 ? ORTHONORMAL_PROPERTIES : PROPERTY_AFFINE;
+		return dest;
+	}
+
+	/**
+	 * Writes translation * rotation * scale in column-major order into 16 floats of dest,
+	 * without building the three matrices
+	 * @param qx X component of a normalized quaternion
+	 * @param qy Y component of a normalized quaternion
+	 * @param qz Z component of a normalized quaternion
+	 * @param qw W component of a normalized quaternion
+	 * @param dest Array to store the matrix in
+	 * @param destOffset Offset in dest to store the matrix at
+	 */
+	public static void makeTRS(float tx, float ty, float tz, float qx, float qy, float qz, float qw,
+			float sx, float sy, float sz, float[] dest, int destOffset) {
+		float xx = qx * qx, yy = qy * qy, zz = qz * qz;
+		float xy = qx * qy, xz = qx * qz, yz = qy * qz;
+		float wx = qw * qx, wy = qw * qy, wz = qw * qz;
+		dest[destOffset] = (1F - 2F * (yy + zz)) * sx;
+		dest[destOffset + 1] = 2F * (xy + wz) * sx;
+		dest[destOffset + 2] = 2F * (xz - wy) * sx;
+		dest[destOffset + 3] = 0;
+		dest[destOffset + 4] = 2F * (xy - wz) * sy;
+		dest[destOffset + 5] = (1F - 2F * (xx + zz)) * sy;
+		dest[destOffset + 6] = 2F * (yz + wx) * sy;
+		dest[destOffset + 7] = 0;
+		dest[destOffset + 8] = 2F * (xz + wy) * sz;
+		dest[destOffset + 9] = 2F * (yz - wx) * sz;
+		dest[destOffset + 10] = (1F - 2F * (xx + yy)) * sz;
+		dest[destOffset + 11] = 0;
+		dest[destOffset + 12] = tx;
+		dest[destOffset + 13] = ty;
+		dest[destOffset + 14] = tz;
+		dest[destOffset + 15] = 1;
+	}
+
+	/**
+	 * Writes translation * rotation * scale in column-major order into 16 floats of dest starting at index,
+	 * without changing the position of dest. Writing at explicit indices lets several threads fill one buffer
+	 * @see #makeTRS(float, float, float, float, float, float, float, float, float, float, float[], int)
+	 * @param dest Buffer to store the matrix in
+	 * @param index Index in dest to store the matrix at
+	 */
+	public static void makeTRS(float tx, float ty, float tz, float qx, float qy, float qz, float qw,
+			float sx, float sy, float sz, FloatBuffer dest, int index) {
+		float xx = qx * qx, yy = qy * qy, zz = qz * qz;
+		float xy = qx * qy, xz = qx * qz, yz = qy * qz;
+		float wx = qw * qx, wy = qw * qy, wz = qw * qz;
+		dest.put(index, (1F - 2F * (yy + zz)) * sx);
+		dest.put(index + 1, 2F * (xy + wz) * sx);
+		dest.put(index + 2, 2F * (xz - wy) * sx);
+		dest.put(index + 3, 0);
+		dest.put(index + 4, 2F * (xy - wz) * sy);
+		dest.put(index + 5, (1F - 2F * (xx + zz)) * sy);
+		dest.put(index + 6, 2F * (yz + wx) * sy);
+		dest.put(index + 7, 0);
+		dest.put(index + 8, 2F * (xz + wy) * sz);
+		dest.put(index + 9, 2F * (yz - wx) * sz);
+		dest.put(index + 10, (1F - 2F * (xx + yy)) * sz);
+		dest.put(index + 11, 0);
+		dest.put(index + 12, tx);
+		dest.put(index + 13, ty);
+		dest.put(index + 14, tz);
+		dest.put(index + 15, 1);
+	}
+
+	/**
+	 * Copies the values of src into dest
+	 * @param src Matrix to copy
+	 * @param dest Matrix to store the copy in
+	 * @return dest
+	 */
+	public static Mat4 set(Mat4 src, Mat4 dest) {
+		System.arraycopy(src.data, 0, dest.data, 0, 16);
+		dest.properties = src.properties;
+		return dest;
+	}
+
+	/**
+	 * Loads the next 16 values in src into dest. Data must be in column-major order
+	 * @param src Buffer to read from
+	 * @param dest Matrix to store the values in
+	 * @return dest
+	 */
+	public static Mat4 load(FloatBuffer src, Mat4 dest) {
+		src.get(dest.data);
+		dest.properties = 0;
+		return dest;
+	}
+
+	/**
+	 * Copies 16 values starting at offset in src into dest. Data must be in column-major order
+	 * @param src Array to read from
+	 * @param offset Offset of the matrix in src
+	 * @param dest Matrix to store the values in
+	 * @return dest
+	 */
+	public static Mat4 load(float[] src, int offset, Mat4 dest) {
+		System.arraycopy(src, offset, dest.data, 0, 16);
+		dest.properties = 0;
+		return dest;
+	}
+
+	/**
+	 * Sets dest to the identity matrix
+	 * @param dest Matrix to reset
+	 * @return dest
+	 */
+	public static Mat4 setIdentity(Mat4 dest) {
+		float[] data = clear(dest);
+		data[0] = data[5] = data[10] = data[15] = 1F;
+		dest.properties = IDENTITY_PROPERTIES;
+		return dest;
+	}
+
+	/**
+	 * Recalculates the properties of a matrix from its values.
+	 * Call this after changing the array returned by {@link #getData()},
+	 * or to enable the fast paths for a matrix created from raw data.
+	 * @param mat4 Matrix to classify
+	 * @return mat4
+	 */
+	public static Mat4 classify(Mat4 mat4) {
+		float[] m = mat4.data;
+		int props = 0;
+		if(m[3] == 0 && m[7] == 0 && m[11] == 0 && m[15] == 1) {
+			props = PROPERTY_AFFINE;
+			float c0 = m[0] * m[0] + m[1] * m[1] + m[2] * m[2];
+			float c1 = m[4] * m[4] + m[5] * m[5] + m[6] * m[6];
+			float c2 = m[8] * m[8] + m[9] * m[9] + m[10] * m[10];
+			float c01 = m[0] * m[4] + m[1] * m[5] + m[2] * m[6];
+			float c02 = m[0] * m[8] + m[1] * m[9] + m[2] * m[10];
+			float c12 = m[4] * m[8] + m[5] * m[9] + m[6] * m[10];
+			float eps = 1e-5F;
+			if(Math.abs(c0 - 1) < eps && Math.abs(c1 - 1) < eps && Math.abs(c2 - 1) < eps
+					&& Math.abs(c01) < eps && Math.abs(c02) < eps && Math.abs(c12) < eps) {
+				props |= PROPERTY_ORTHONORMAL;
+				if(m[0] == 1 && m[1] == 0 && m[2] == 0
+						&& m[4] == 0 && m[5] == 1 && m[6] == 0
+						&& m[8] == 0 && m[9] == 0 && m[10] == 1) {
+					props |= PROPERTY_TRANSLATION;
+					if(m[12] == 0 && m[13] == 0 && m[14] == 0) {
+						props |= PROPERTY_IDENTITY;
+					}
+				}
+			}
+		} else if(m[1] == 0 && m[2] == 0 && m[3] == 0 && m[4] == 0 && m[6] == 0 && m[7] == 0
+				&& m[12] == 0 && m[13] == 0 && m[15] == 0) {
+			props = PROPERTY_PERSPECTIVE;
+		}
+		mat4.properties = props;
+		return mat4;
+	}
+
+	private static float[] clear(Mat4 dest) {
+		float[] data = dest.data;
+		for(int i = 0; i < 16; i++) {
+			data[i] = 0;
+		}
+		return data;
 	}
 
 }
@@ -0,0 +1,194 @@
+package com.unknownloner.lonelib.math;
+
+import java.nio.FloatBuffer;
+
+/**
+ * A stack of 4x4 matrices for building hierarchical transforms.
+ * <br>All matrices live in one preallocated float array in column-major order,
+ * so pushing, popping and transforming never allocates.
+ * Transforms are applied to the top matrix on the right, the same as {@link Mat4#translate(Vec3)} and friends.
+ */
+public class MatrixStack {
+
+	private final float[] data;
+	private final int maxDepth;
+	private final Mat4 scratch = Mat4.IDENTITY.copy();
+	private int top;
+
+	/**
+	 * Creates a matrix stack which can hold up to maxDepth matrices.
+	 * The stack starts with a single identity matrix.
+	 * @param maxDepth The maximum number of matrices on the stack
+	 */
+	public MatrixStack(int maxDepth) {
+		if(maxDepth < 1) {
+			throw new IllegalArgumentException("maxDepth must be at least 1");
+		}
+		this.maxDepth = maxDepth;
+		this.data = new float[maxDepth * 16];
+		loadIdentity();
+	}
+
+	/**
+	 * @return The number of matrices currently on the stack
+	 */
+	public int getDepth() {
+		return top / 16 + 1;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Duplicates the top matrix
+	 * @return this
+	 */
+	public MatrixStack push() {
+		if(top + 16 >= data.length) {
+			throw new IllegalStateException("Matrix stack overflow");
+		}
+		System.arraycopy(data, top, data, top + 16, 16);
+		top += 16;
+		return this;
+	}
+
+	/**
+	 * Discards the top matrix, restoring the one beneath it
+	 * @return this
+	 */
+	public MatrixStack pop() {
+		if(top == 0) {
+			throw new IllegalStateException("Matrix stack underflow");
+		}
+		top -= 16;
+		return this;
+	}
+
+	/**
+	 * Pops every matrix but the bottom one, and sets it to the identity
+	 * @return this
+	 */
+	public MatrixStack reset() {
+		top = 0;
+		return loadIdentity();
+	}
+
+	/**
+	 * Replaces the top matrix with the identity matrix
+	 * @return this
+	 */
+	public MatrixStack loadIdentity() {
+		for(int i = 0; i < 16; i++) {
+			data[top + i] = 0;
+		}
+		data[top] = data[top + 5] = data[top + 10] = data[top + 15] = 1F;
+		return this;
+	}
+
+	/**
+	 * Replaces the top matrix with the values in mat
+	 * @return this
+	 */
+	public MatrixStack load(Mat4 mat) {
+		System.arraycopy(mat.getData(), 0, data, top, 16);
+		return this;
+	}
+
+	/**
+	 * Multiplies the top matrix by mat, with mat on the right
+	 * @return this
+	 */
+	public MatrixStack mulRight(Mat4 mat) {
+		Mat4.mul(data, top, mat.getData(), 0, data, top);
+		return this;
+	}
+
+	/**
+	 * Multiplies the top matrix by mat, with mat on the left
+	 * @return this
+	 */
+	public MatrixStack mulLeft(Mat4 mat) {
+		Mat4.mul(mat.getData(), 0, data, top, data, top);
+		return this;
+	}
+
+	public MatrixStack translate(Vec3 dist) {
+		return translate(dist.x, dist.y, dist.z);
+	}
+
+	/**
+	 * Multiplies the top matrix by a translation matrix
+	 * @return this
+	 */
+	public MatrixStack translate(float x, float y, float z) {
+		float[] m = data;
+		int o = top;
+		m[o + 12] += m[o] * x + m[o + 4] * y + m[o + 8] * z;
+		m[o + 13] += m[o + 1] * x + m[o + 5] * y + m[o + 9] * z;
+		m[o + 14] += m[o + 2] * x + m[o + 6] * y + m[o + 10] * z;
+		m[o + 15] += m[o + 3] * x + m[o + 7] * y + m[o + 11] * z;
+		return this;
+	}
+
+	public MatrixStack scale(Vec3 scale) {
+		return scale(scale.x, scale.y, scale.z);
+	}
+
+	/**
+	 * Multiplies the top matrix by a scale matrix
+	 * @return this
+	 */
+	public MatrixStack scale(float x, float y, float z) {
+		float[] m = data;
+		int o = top;
+		m[o] *= x;
+		m[o + 1] *= x;
+		m[o + 2] *= x;
+		m[o + 3] *= x;
+		m[o + 4] *= y;
+		m[o + 5] *= y;
+		m[o + 6] *= y;
+		m[o + 7] *= y;
+		m[o + 8] *= z;
+		m[o + 9] *= z;
+		m[o + 10] *= z;
+		m[o + 11] *= z;
+		return this;
+	}
+
+	public MatrixStack rotate(float radians, Vec3 axis) {
+		return rotate(radians, axis.x, axis.y, axis.z);
+	}
+
+	/**
+	 * Multiplies the top matrix by a rotation matrix
+	 * @param radians Amount of radians to rotate
+	 * @return this
+	 */
+	public MatrixStack rotate(float radians, float axisX, float axisY, float axisZ) {
+		Mat4.makeRotation(radians, axisX, axisY, axisZ, scratch);
+		Mat4.mul(data, top, scratch.getData(), 0, data, top);
+		return this;
+	}
+
+	/**
+	 * Copies the top matrix into dest
+	 * @return dest
+	 */
+	public Mat4 get(Mat4 dest) {
+		return Mat4.load(data, top, dest);
+	}
+
+	/**
+	 * Stores the top matrix in a FloatBuffer in column-major order,
+	 * ready to be passed to glUniformMatrix4
+	 * @param dest Buffer to store the matrix in
+	 * @return this
+	 */
+	public MatrixStack store(FloatBuffer dest) {
+		dest.put(data, top, 16);
+		return this;
+	}
+
+}
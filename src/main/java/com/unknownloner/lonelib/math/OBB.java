@@ -0,0 +1,267 @@
+package com.unknownloner.lonelib.math;
+
+import java.nio.FloatBuffer;
+
+/**
+ * An oriented bounding box: a center, three perpendicular unit axes, and the half size of the box along each axis.
+ * <br>An OBB follows the rotation of the object it bounds, so it stays tight where an AABB around a rotated
+ * object would grow to contain all of its corners.
+ */
+public class OBB {
+
+	private static final float EPSILON = 1e-6F;
+
+	protected final float cx, cy, cz;
+	/**
+	 * The local x, y and z axes of the box in world space, 3 floats each
+	 */
+	private final float[] axes;
+	protected final float ex, ey, ez;
+
+	/**
+	 * @param center Center of the box
+	 * @param rotation Normalized rotation from the local axes of the box to world space
+	 * @param halfExtents Half the size of the box along each of its local axes
+	 */
+	public OBB(Vec3 center, Quat rotation, Vec3 halfExtents) {
+		this(center.x, center.y, center.z, axesOf(rotation), halfExtents.x, halfExtents.y, halfExtents.z);
+	}
+
+	private OBB(float cx, float cy, float cz, float[] axes, float ex, float ey, float ez) {
+		this.cx = cx;
+		this.cy = cy;
+		this.cz = cz;
+		this.axes = axes;
+		this.ex = ex;
+		this.ey = ey;
+		this.ez = ez;
+	}
+
+	/**
+	 * @return The columns of the rotation matrix of a normalized quaternion
+	 */
+	private static float[] axesOf(Quat rotation) {
+		float qx = rotation.getX(), qy = rotation.getY(), qz = rotation.getZ(), qw = rotation.getW();
+		float xx = qx * qx, yy = qy * qy, zz = qz * qz;
+		float xy = qx * qy, xz = qx * qz, yz = qy * qz;
+		float wx = qw * qx, wy = qw * qy, wz = qw * qz;
+		return new float[] {
+			1F - 2F * (yy + zz), 2F * (xy + wz), 2F * (xz - wy),
+			2F * (xy - wz), 1F - 2F * (xx + zz), 2F * (yz + wx),
+			2F * (xz + wy), 2F * (yz - wx), 1F - 2F * (xx + yy)
+		};
+	}
+
+	public Vec3 getCenter() {
+		return new Vec3(cx, cy, cz);
+	}
+
+	/**
+	 * @return Half the size of the box along each of its local axes
+	 */
+	public Vec3 getHalfExtents() {
+		return new Vec3(ex, ey, ez);
+	}
+
+	/**
+	 * @param axis 0, 1, or 2 for the local x, y, or z axis
+	 * @return The axis in world space
+	 */
+	public Vec3 getAxis(int axis) {
+		int a = axis * 3;
+		return new Vec3(axes[a], axes[a + 1], axes[a + 2]);
+	}
+
+	/**
+	 * @return Half the length of the projection of the box onto a direction, which does not need to be normalized
+	 */
+	public float projectedRadius(float nx, float ny, float nz) {
+		float[] u = axes;
+		return ex * Math.abs(nx * u[0] + ny * u[1] + nz * u[2])
+				+ ey * Math.abs(nx * u[3] + ny * u[4] + nz * u[5])
+				+ ez * Math.abs(nx * u[6] + ny * u[7] + nz * u[8]);
+	}
+
+	public boolean contains(Vec3 pos) {
+		float dx = pos.x - cx, dy = pos.y - cy, dz = pos.z - cz;
+		float[] u = axes;
+		return Math.abs(dx * u[0] + dy * u[1] + dz * u[2]) < ex
+				&& Math.abs(dx * u[3] + dy * u[4] + dz * u[5]) < ey
+				&& Math.abs(dx * u[6] + dy * u[7] + dz * u[8]) < ez;
+	}
+
+	/**
+	 * Tests two boxes for overlap with the separating axis theorem, trying the 3 axes of each box
+	 * and the 9 cross products of their axes
+	 */
+	public boolean intersects(OBB box) {
+		float[] a = axes, b = box.axes;
+		//Rotation of box in the frame of this box, rij = a_i . b_j
+		float r00 = a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+		float r01 = a[0] * b[3] + a[1] * b[4] + a[2] * b[5];
+		float r02 = a[0] * b[6] + a[1] * b[7] + a[2] * b[8];
+		float r10 = a[3] * b[0] + a[4] * b[1] + a[5] * b[2];
+		float r11 = a[3] * b[3] + a[4] * b[4] + a[5] * b[5];
+		float r12 = a[3] * b[6] + a[4] * b[7] + a[5] * b[8];
+		float r20 = a[6] * b[0] + a[7] * b[1] + a[8] * b[2];
+		float r21 = a[6] * b[3] + a[7] * b[4] + a[8] * b[5];
+		float r22 = a[6] * b[6] + a[7] * b[7] + a[8] * b[8];
+		float dx = box.cx - cx, dy = box.cy - cy, dz = box.cz - cz;
+		return overlaps(dx * a[0] + dy * a[1] + dz * a[2], dx * a[3] + dy * a[4] + dz * a[5], dx * a[6] + dy * a[7] + dz * a[8],
+				ex, ey, ez, box.ex, box.ey, box.ez, r00, r01, r02, r10, r11, r12, r20, r21, r22);
+	}
+
+	/**
+	 * Tests the box against an AABB with the separating axis theorem, taking the axes of the AABB as the world axes
+	 */
+	public boolean intersects(AABB bounds) {
+		float[] b = axes;
+		float hx = (bounds.maxx - bounds.minx) * 0.5F;
+		float hy = (bounds.maxy - bounds.miny) * 0.5F;
+		float hz = (bounds.maxz - bounds.minz) * 0.5F;
+		//Rotation of this box in the frame of the AABB is just its axes, rij = component i of b_j
+		return overlaps(cx - bounds.minx - hx, cy - bounds.miny - hy, cz - bounds.minz - hz,
+				hx, hy, hz, ex, ey, ez, b[0], b[3], b[6], b[1], b[4], b[7], b[2], b[5], b[8]);
+	}
+
+	/**
+	 * The separating axis test of box B against box A
+	 * @param t0 The center of B minus the center of A, in the frame of A
+	 * @param ea0 Half extents of A
+	 * @param eb0 Half extents of B
+	 * @param r00 Rotation of B in the frame of A, rij = a_i . b_j
+	 * @return Whether no axis separates the boxes
+	 */
+	private static boolean overlaps(float t0, float t1, float t2, float ea0, float ea1, float ea2, float eb0, float eb1, float eb2,
+			float r00, float r01, float r02, float r10, float r11, float r12, float r20, float r21, float r22) {
+		//Epsilon keeps the cross product axes from failing when two axes are parallel
+		float ar00 = Math.abs(r00) + EPSILON, ar01 = Math.abs(r01) + EPSILON, ar02 = Math.abs(r02) + EPSILON;
+		float ar10 = Math.abs(r10) + EPSILON, ar11 = Math.abs(r11) + EPSILON, ar12 = Math.abs(r12) + EPSILON;
+		float ar20 = Math.abs(r20) + EPSILON, ar21 = Math.abs(r21) + EPSILON, ar22 = Math.abs(r22) + EPSILON;
+		//Axes of A
+		if(Math.abs(t0) > ea0 + eb0 * ar00 + eb1 * ar01 + eb2 * ar02
+				|| Math.abs(t1) > ea1 + eb0 * ar10 + eb1 * ar11 + eb2 * ar12
+				|| Math.abs(t2) > ea2 + eb0 * ar20 + eb1 * ar21 + eb2 * ar22) {
+			return false;
+		}
+		//Axes of B
+		if(Math.abs(t0 * r00 + t1 * r10 + t2 * r20) > ea0 * ar00 + ea1 * ar10 + ea2 * ar20 + eb0
+				|| Math.abs(t0 * r01 + t1 * r11 + t2 * r21) > ea0 * ar01 + ea1 * ar11 + ea2 * ar21 + eb1
+				|| Math.abs(t0 * r02 + t1 * r12 + t2 * r22) > ea0 * ar02 + ea1 * ar12 + ea2 * ar22 + eb2) {
+			return false;
+		}
+		//a_i x b_j
+		return Math.abs(t2 * r10 - t1 * r20) <= ea1 * ar20 + ea2 * ar10 + eb1 * ar02 + eb2 * ar01
+				&& Math.abs(t2 * r11 - t1 * r21) <= ea1 * ar21 + ea2 * ar11 + eb0 * ar02 + eb2 * ar00
+				&& Math.abs(t2 * r12 - t1 * r22) <= ea1 * ar22 + ea2 * ar12 + eb0 * ar01 + eb1 * ar00
+				&& Math.abs(t0 * r20 - t2 * r00) <= ea0 * ar20 + ea2 * ar00 + eb1 * ar12 + eb2 * ar11
+				&& Math.abs(t0 * r21 - t2 * r01) <= ea0 * ar21 + ea2 * ar01 + eb0 * ar12 + eb2 * ar10
+				&& Math.abs(t0 * r22 - t2 * r02) <= ea0 * ar22 + ea2 * ar02 + eb0 * ar11 + eb1 * ar10
+				&& Math.abs(t1 * r00 - t0 * r10) <= ea0 * ar10 + ea1 * ar00 + eb1 * ar22 + eb2 * ar21
+				&& Math.abs(t1 * r01 - t0 * r11) <= ea0 * ar11 + ea1 * ar01 + eb0 * ar22 + eb2 * ar20
+				&& Math.abs(t1 * r02 - t0 * r12) <= ea0 * ar12 + ea1 * ar02 + eb0 * ar21 + eb1 * ar20;
+	}
+
+	/**
+	 * Tests the box against a sphere using the distance from the center of the sphere to the closest point of the box
+	 */
+	public boolean intersects(BoundingSphere sphere) {
+		float dx = sphere.x - cx, dy = sphere.y - cy, dz = sphere.z - cz;
+		float[] u = axes;
+		float d0 = Math.max(Math.abs(dx * u[0] + dy * u[1] + dz * u[2]) - ex, 0F);
+		float d1 = Math.max(Math.abs(dx * u[3] + dy * u[4] + dz * u[5]) - ey, 0F);
+		float d2 = Math.max(Math.abs(dx * u[6] + dy * u[7] + dz * u[8]) - ez, 0F);
+		return d0 * d0 + d1 * d1 + d2 * d2 < sphere.radius * sphere.radius;
+	}
+
+	/**
+	 * @return The smallest AABB containing this box
+	 */
+	public AABB toAABB() {
+		float rx = projectedRadius(1, 0, 0);
+		float ry = projectedRadius(0, 1, 0);
+		float rz = projectedRadius(0, 0, 1);
+		return new AABB(cx - rx, cy - ry, cz - rz, cx + rx, cy + ry, cz + rz);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("(%f, %f, %f) axes (%f, %f, %f) (%f, %f, %f) (%f, %f, %f) extents (%f, %f, %f)",
+				cx, cy, cz, axes[0], axes[1], axes[2], axes[3], axes[4], axes[5], axes[6], axes[7], axes[8], ex, ey, ez);
+	}
+
+	/**
+	 * @return An OBB with the same bounds as an AABB
+	 */
+	public static OBB fromAABB(AABB bounds) {
+		float hx = (bounds.maxx - bounds.minx) * 0.5F;
+		float hy = (bounds.maxy - bounds.miny) * 0.5F;
+		float hz = (bounds.maxz - bounds.minz) * 0.5F;
+		return new OBB(bounds.minx + hx, bounds.miny + hy, bounds.minz + hz,
+				new float[] { 1, 0, 0, 0, 1, 0, 0, 0, 1 }, hx, hy, hz);
+	}
+
+	/**
+	 * Transforms a local space AABB into world space, for example the bounds of a mesh by its model matrix.
+	 * The matrix must be affine without shear, such as a translation * rotation * scale
+	 * @param bounds Bounds in local space
+	 * @param transform Local to world matrix
+	 * @return The transformed box
+	 */
+	public static OBB fromAABB(AABB bounds, Mat4 transform) {
+		float[] m = transform.getData();
+		float hx = (bounds.maxx - bounds.minx) * 0.5F;
+		float hy = (bounds.maxy - bounds.miny) * 0.5F;
+		float hz = (bounds.maxz - bounds.minz) * 0.5F;
+		float x = bounds.minx + hx, y = bounds.miny + hy, z = bounds.minz + hz;
+		float sx = (float)Math.sqrt(m[0] * m[0] + m[1] * m[1] + m[2] * m[2]);
+		float sy = (float)Math.sqrt(m[4] * m[4] + m[5] * m[5] + m[6] * m[6]);
+		float sz = (float)Math.sqrt(m[8] * m[8] + m[9] * m[9] + m[10] * m[10]);
+		float[] axes = {
+			m[0] / sx, m[1] / sx, m[2] / sx,
+			m[4] / sy, m[5] / sy, m[6] / sy,
+			m[8] / sz, m[9] / sz, m[10] / sz
+		};
+		return new OBB(m[0] * x + m[4] * y + m[8] * z + m[12],
+				m[1] * x + m[5] * y + m[9] * z + m[13],
+				m[2] * x + m[6] * y + m[10] * z + m[14],
+				axes, hx * sx, hy * sy, hz * sz);
+	}
+
+	/**
+	 * Fits a box with a given orientation around vertices in one pass, by tracking the smallest and largest
+	 * projection of the vertices onto each axis
+	 * @param vertices Buffer holding the vertices, read from its position without changing it
+	 * @param count Number of vertices
+	 * @param stride Number of floats from one vertex to the next, the first three of which are x, y, z
+	 * @param rotation Normalized rotation of the box, usually the rotation of the object the vertices belong to
+	 * @return The smallest box with that rotation containing every vertex
+	 */
+	public static OBB fit(FloatBuffer vertices, int count, int stride, Quat rotation) {
+		if(count == 0) {
+			throw new IllegalArgumentException("Can not fit a box to no vertices");
+		}
+		float[] u = axesOf(rotation);
+		float min0 = Float.POSITIVE_INFINITY, min1 = Float.POSITIVE_INFINITY, min2 = Float.POSITIVE_INFINITY;
+		float max0 = Float.NEGATIVE_INFINITY, max1 = Float.NEGATIVE_INFINITY, max2 = Float.NEGATIVE_INFINITY;
+		int i = vertices.position();
+		for(int v = 0; v < count; v++, i += stride) {
+			float x = vertices.get(i), y = vertices.get(i + 1), z = vertices.get(i + 2);
+			float p0 = x * u[0] + y * u[1] + z * u[2];
+			float p1 = x * u[3] + y * u[4] + z * u[5];
+			float p2 = x * u[6] + y * u[7] + z * u[8];
+			min0 = Math.min(min0, p0);
+			max0 = Math.max(max0, p0);
+			min1 = Math.min(min1, p1);
+			max1 = Math.max(max1, p1);
+			min2 = Math.min(min2, p2);
+			max2 = Math.max(max2, p2);
+		}
+		float c0 = (min0 + max0) * 0.5F, c1 = (min1 + max1) * 0.5F, c2 = (min2 + max2) * 0.5F;
+		return new OBB(u[0] * c0 + u[3] * c1 + u[6] * c2,
+				u[1] * c0 + u[4] * c1 + u[7] * c2,
+				u[2] * c0 + u[5] * c1 + u[8] * c2,
+				u, (max0 - min0) * 0.5F, (max1 - min1) * 0.5F, (max2 - min2) * 0.5F);
+	}
+
+}
@@ -1,5 +1,7 @@
 package com.unknownloner.lonelib.math;
 
+import com.unknownloner.lonelib.util.MathUtil;
+
 /**
  * Represents a Quaternion
  */
@@ -64,6 +66,29 @@ public class Quat {
 		this.z = c1 * s2 * c3 + s1 * c2 * s3;
 	}
 
+	/**
+	 * Same as {@link #Quat(float, float, float)}, but uses {@link MathUtil#sinFast(float)} and {@link MathUtil#cosFast(float)}
+	 * @param yaw
+	 * @param pitch
+	 * @param roll
+	 * @return The rotation, accurate to about 2e-5 per component
+	 */
+	public static Quat fromEulerFast(float yaw, float pitch, float roll) {
+		float hy = yaw * MathUtil.PI360;
+		float hp = pitch * MathUtil.PI360;
+		float hr = roll * MathUtil.PI360;
+		float c1 = MathUtil.cosFast(hy);
+		float c2 = MathUtil.cosFast(hp);
+		float c3 = MathUtil.cosFast(hr);
+		float s1 = MathUtil.sinFast(hy);
+		float s2 = MathUtil.sinFast(hp);
+		float s3 = MathUtil.sinFast(hr);
+		return new Quat(s1 * s2 * c3 + c1 * c2 * s3,
+				s1 * c2 * c3 + c1 * s2 * s3,
+				c1 * s2 * c3 + s1 * c2 * s3,
+				c1 * c2 * c3 - s1 * s2 * s3);
+	}
+
 	/**
 	 * @return the x component
 	 */
@@ -139,6 +164,38 @@ public class Quat {
 		}
 		return new Vec3(pitch, yaw, roll);
 	}
+
+	/**
+	 * Same as {@link #getAxisAngles()}, but uses {@link MathUtil#atan2Fast(float, float)} and {@link MathUtil#asinFast(float)}
+	 * @return angle of each axis packed into a Vec3, accurate to about 5e-4 degrees
+	 */
+	public Vec3 getAxisAnglesFast() {
+		final float q0 = this.w;
+		final float roll = this.z;
+		final float pitch = this.x;
+		final float yaw = this.y;
+
+		float r1, r2, r3;
+		float test = q0 * pitch - yaw * roll;
+		if (Math.abs(test) < 0.4999F) { // Test for singularities
+			r1 = MathUtil.atan2Fast(2 * (q0 * roll + pitch * yaw), 1 - 2 * (roll * roll + pitch * pitch));
+			r2 = MathUtil.asinFast(2 * test);
+			r3 = MathUtil.atan2Fast(2 * (q0 * yaw + roll * pitch), 1 - 2 * (pitch * pitch + yaw * yaw));
+		} else {
+			int sign = (test < 0) ? -1 : 1;
+			r1 = 0;
+			r2 = sign * MathUtil.PI / 2;
+			r3 = -sign * 2 * MathUtil.atan2Fast(roll, q0);
+		}
+
+		float yawDegrees = MathUtil.toDegrees(r3);
+		if (yawDegrees > 180) {
+			yawDegrees -= 360;
+		} else if (yawDegrees < -180) {
+			yawDegrees += 360;
+		}
+		return new Vec3(MathUtil.toDegrees(r2), yawDegrees, MathUtil.toDegrees(r1));
+	}
 	
 	/**
 	 * Converts this Quaternion into a 4x4 rotational Matrix, only works with normalized quaternions.
@@ -157,19 +214,19 @@ public class Quat {
 		
 		float tmp1 = this.x * this.y;
 		float tmp2 = this.z * this.w;
-		mat[4] = 2.0f * (tmp1 + tmp2);
-		mat[1] = 2.0f * (tmp1 - tmp2);
+		mat[1] = 2.0f * (tmp1 + tmp2);
+		mat[4] = 2.0f * (tmp1 - tmp2);
 		
 		tmp1 = this.x * this.z;
 		tmp2 = this.y * this.w;
-		mat[8] = 2.0f * (tmp1 - tmp2);
-		mat[2] = 2.0f * (tmp1 + tmp2);
+		mat[2] = 2.0f * (tmp1 - tmp2);
+		mat[8] = 2.0f * (tmp1 + tmp2);
 		tmp1 = this.y * this.z;
 		tmp2 = this.x * this.w;
-		mat[9] = 2.0f * (tmp1 + tmp2);
-		mat[6] = 2.0f * (tmp1 - tmp2);
+		mat[6] = 2.0f * (tmp1 + tmp2);
+		mat[9] = 2.0f * (tmp1 - tmp2);
 		mat[15] = 1;
-		return new Mat4(mat);
+		return Mat4.classify(new Mat4(mat));
 	}
 
 	public Quat normalize() {
@@ -177,6 +234,42 @@ public class Quat {
 		return new Quat(this.x / length, this.y / length, this.z / length, this.w / length);
 	}
 
+	/**
+	 * @return The conjugate of this quaternion, which is its inverse rotation if it is normalized
+	 */
+	public Quat conjugate() {
+		return new Quat(-x, -y, -z, w);
+	}
+
+	/**
+	 * Rotates a vector by this quaternion, which must be normalized
+	 * @param vec Vector to rotate
+	 * @return The rotated vector
+	 */
+	public Vec3 rotate(Vec3 vec) {
+		float tx = 2F * (y * vec.z - z * vec.y);
+		float ty = 2F * (z * vec.x - x * vec.z);
+		float tz = 2F * (x * vec.y - y * vec.x);
+		return new Vec3(vec.x + w * tx + (y * tz - z * ty),
+				vec.y + w * ty + (z * tx - x * tz),
+				vec.z + w * tz + (x * ty - y * tx));
+	}
+
+	/**
+	 * Rotates the vector (vx, vy, vz) by the normalized quaternion (qx, qy, qz, qw) without building a matrix,
+	 * using v + 2w(q x v) + 2q x (q x v)
+	 * @param dest Array to store the x, y, z of the result in
+	 * @param offset Offset in dest to store the result at
+	 */
+	public static void rotate(float qx, float qy, float qz, float qw, float vx, float vy, float vz, float[] dest, int offset) {
+		float tx = 2F * (qy * vz - qz * vy);
+		float ty = 2F * (qz * vx - qx * vz);
+		float tz = 2F * (qx * vy - qy * vx);
+		dest[offset] = vx + qw * tx + (qy * tz - qz * ty);
+		dest[offset + 1] = vy + qw * ty + (qz * tx - qx * tz);
+		dest[offset + 2] = vz + qw * tz + (qx * ty - qy * tx);
+	}
+
 	public static Quat fromPitch(float pitch) {
 		return new Quat(0f, 0f, (float) Math.sin(Math.toRadians(pitch) / 2), (float) Math.cos(Math.toRadians(pitch) / 2));
 	}
@@ -189,4 +282,116 @@ public class Quat {
 
 		return new Quat(x, y, z, w);
 	}
+
+	public static float dot(Quat l, Quat r) {
+		return l.x * r.x + l.y * r.y + l.z * r.z + l.w * r.w;
+	}
+
+	/**
+	 * Spherically interpolates between two normalized quaternions along the shortest path,
+	 * rotating at a constant speed
+	 * @param t Interpolation factor, 0 for from and 1 for to
+	 * @return The interpolated rotation
+	 */
+	public static Quat slerp(Quat from, Quat to, float t) {
+		float cos = dot(from, to);
+		//q and -q are the same rotation, flip one to take the short way around
+		float sign = cos < 0 ? -1F : 1F;
+		cos *= sign;
+		if(cos > 0.9995F) {
+			return nlerp(from, to, t);
+		}
+		float angle = (float)Math.acos(cos);
+		float invSin = 1F / (float)Math.sin(angle);
+		float wa = (float)Math.sin((1F - t) * angle) * invSin;
+		float wb = (float)Math.sin(t * angle) * invSin * sign;
+		return new Quat(from.x * wa + to.x * wb, from.y * wa + to.y * wb, from.z * wa + to.z * wb, from.w * wa + to.w * wb);
+	}
+
+	/**
+	 * Linearly interpolates between two normalized quaternions along the shortest path and normalizes the result.
+	 * <br>Cheaper than {@link #slerp(Quat, Quat, float)} and close to it for nearby rotations, but not constant speed
+	 * @param t Interpolation factor, 0 for from and 1 for to
+	 * @return The interpolated rotation
+	 */
+	public static Quat nlerp(Quat from, Quat to, float t) {
+		float wa = 1F - t;
+		float wb = dot(from, to) < 0 ? -t : t;
+		float rx = from.x * wa + to.x * wb;
+		float ry = from.y * wa + to.y * wb;
+		float rz = from.z * wa + to.z * wb;
+		float rw = from.w * wa + to.w * wb;
+		float invLen = 1F / (float)Math.sqrt(rx * rx + ry * ry + rz * rz + rw * rw);
+		return new Quat(rx * invLen, ry * invLen, rz * invLen, rw * invLen);
+	}
+
+	/**
+	 * Spherically interpolates between two normalized quaternions stored as x, y, z, w in float arrays.
+	 * dest may overlap from or to. Falls back to {@link #nlerp(float[], int, float[], int, float, float[], int)}
+	 * when the rotations are too close for the sine of their angle to be accurate
+	 * @param from Array holding the start rotation
+	 * @param fromOffset Offset of the start rotation in from
+	 * @param to Array holding the end rotation
+	 * @param toOffset Offset of the end rotation in to
+	 * @param t Interpolation factor
+	 * @param dest Array to store the result in
+	 * @param destOffset Offset in dest to store the result at
+	 */
+	public static void slerp(float[] from, int fromOffset, float[] to, int toOffset, float t, float[] dest, int destOffset) {
+		float ax = from[fromOffset], ay = from[fromOffset + 1], az = from[fromOffset + 2], aw = from[fromOffset + 3];
+		float bx = to[toOffset], by = to[toOffset + 1], bz = to[toOffset + 2], bw = to[toOffset + 3];
+		float cos = ax * bx + ay * by + az * bz + aw * bw;
+		if(cos < 0) {
+			//q and -q are the same rotation, flip one to take the short way around
+			cos = -cos;
+			bx = -bx;
+			by = -by;
+			bz = -bz;
+			bw = -bw;
+		}
+		float wa, wb;
+		if(cos > 0.9995F) {
+			wa = 1F - t;
+			wb = t;
+			float rx = ax * wa + bx * wb;
+			float ry = ay * wa + by * wb;
+			float rz = az * wa + bz * wb;
+			float rw = aw * wa + bw * wb;
+			float invLen = 1F / (float)Math.sqrt(rx * rx + ry * ry + rz * rz + rw * rw);
+			dest[destOffset] = rx * invLen;
+			dest[destOffset + 1] = ry * invLen;
+			dest[destOffset + 2] = rz * invLen;
+			dest[destOffset + 3] = rw * invLen;
+			return;
+		}
+		float angle = (float)Math.acos(cos);
+		float invSin = 1F / (float)Math.sin(angle);
+		wa = (float)Math.sin((1F - t) * angle) * invSin;
+		wb = (float)Math.sin(t * angle) * invSin;
+		dest[destOffset] = ax * wa + bx * wb;
+		dest[destOffset + 1] = ay * wa + by * wb;
+		dest[destOffset + 2] = az * wa + bz * wb;
+		dest[destOffset + 3] = aw * wa + bw * wb;
+	}
+
+	/**
+	 * Linearly interpolates between two normalized quaternions stored as x, y, z, w in float arrays
+	 * along the shortest path and normalizes the result. dest may overlap from or to.
+	 * @see #slerp(float[], int, float[], int, float, float[], int)
+	 */
+	public static void nlerp(float[] from, int fromOffset, float[] to, int toOffset, float t, float[] dest, int destOffset) {
+		float ax = from[fromOffset], ay = from[fromOffset + 1], az = from[fromOffset + 2], aw = from[fromOffset + 3];
+		float bx = to[toOffset], by = to[toOffset + 1], bz = to[toOffset + 2], bw = to[toOffset + 3];
+		float wa = 1F - t;
+		float wb = ax * bx + ay * by + az * bz + aw * bw < 0 ? -t : t;
+		float rx = ax * wa + bx * wb;
+		float ry = ay * wa + by * wb;
+		float rz = az * wa + bz * wb;
+		float rw = aw * wa + bw * wb;
+		float invLen = 1F / (float)Math.sqrt(rx * rx + ry * ry + rz * rz + rw * rw);
+		dest[destOffset] = rx * invLen;
+		dest[destOffset + 1] = ry * invLen;
+		dest[destOffset + 2] = rz * invLen;
+		dest[destOffset + 3] = rw * invLen;
+	}
 }
@@ -0,0 +1,176 @@
+package com.unknownloner.lonelib.math;
+
+/**
+ * A ray with its inverse direction and direction signs precomputed for slab tests against boxes.
+ * <br>The direction is normalized, so distances along the ray are in world units like {@link AABB#intersectDists(Vec3, Vec3)}.
+ * Components of the direction which are zero get a huge finite inverse instead of infinity,
+ * so rays parallel to an axis never produce NaN distances, even when they start exactly on a box face.
+ * <br>A Ray is mutable so it can be reused with {@link #set(float, float, float, float, float, float)}.
+ */
+public class Ray {
+
+	private float ox, oy, oz;
+	private float dx, dy, dz;
+	private float invx, invy, invz;
+	private int signx, signy, signz;
+
+	public Ray(Vec3 origin, Vec3 dir) {
+		set(origin.x, origin.y, origin.z, dir.x, dir.y, dir.z);
+	}
+
+	public Ray(float ox, float oy, float oz, float dx, float dy, float dz) {
+		set(ox, oy, oz, dx, dy, dz);
+	}
+
+	/**
+	 * Points this ray somewhere else
+	 * @param dx X component of the direction, which does not need to be normalized
+	 * @param dy Y component of the direction
+	 * @param dz Z component of the direction
+	 * @return this
+	 */
+	public Ray set(float ox, float oy, float oz, float dx, float dy, float dz) {
+		float invLen = 1F / (float)Math.sqrt(dx * dx + dy * dy + dz * dz);
+		dx *= invLen;
+		dy *= invLen;
+		dz *= invLen;
+		this.ox = ox;
+		this.oy = oy;
+		this.oz = oz;
+		this.dx = dx;
+		this.dy = dy;
+		this.dz = dz;
+		this.invx = inverse(dx);
+		this.invy = inverse(dy);
+		this.invz = inverse(dz);
+		this.signx = invx < 0 ? 1 : 0;
+		this.signy = invy < 0 ? 1 : 0;
+		this.signz = invz < 0 ? 1 : 0;
+		return this;
+	}
+
+	/**
+	 * @return 1 / d, or the largest float with the sign of d if d is zero
+	 */
+	static float inverse(float d) {
+		return d == 0 ? Math.copySign(Float.MAX_VALUE, d) : 1F / d;
+	}
+
+	public Vec3 getOrigin() {
+		return new Vec3(ox, oy, oz);
+	}
+
+	/**
+	 * @return The normalized direction of the ray
+	 */
+	public Vec3 getDirection() {
+		return new Vec3(dx, dy, dz);
+	}
+
+	/**
+	 * @return The point at distance t along the ray
+	 */
+	public Vec3 getPoint(float t) {
+		return new Vec3(ox + dx * t, oy + dy * t, oz + dz * t);
+	}
+
+	/**
+	 * Calculates the distances where the ray enters and exits a box
+	 * @param dest Array to store the entry distance at offset and the exit distance at offset + 1 in
+	 * @return Whether the ray hits the box, in front of or behind its origin
+	 */
+	public boolean intersectDists(float minx, float miny, float minz, float maxx, float maxy, float maxz, float[] dest, int offset) {
+		float tmin = ((signx == 0 ? minx : maxx) - ox) * invx;
+		float tmax = ((signx == 0 ? maxx : minx) - ox) * invx;
+		float tymin = ((signy == 0 ? miny : maxy) - oy) * invy;
+		float tymax = ((signy == 0 ? maxy : miny) - oy) * invy;
+		float tzmin = ((signz == 0 ? minz : maxz) - oz) * invz;
+		float tzmax = ((signz == 0 ? maxz : minz) - oz) * invz;
+		tmin = Math.max(tmin, Math.max(tymin, tzmin));
+		tmax = Math.min(tmax, Math.min(tymax, tzmax));
+		dest[offset] = tmin;
+		dest[offset + 1] = tmax;
+		return tmax >= tmin;
+	}
+
+	public boolean intersectDists(AABB box, float[] dest, int offset) {
+		return intersectDists(box.minx, box.miny, box.minz, box.maxx, box.maxy, box.maxz, dest, offset);
+	}
+
+	/**
+	 * @return The distance where the ray first touches the box, 0 if it starts inside the box,
+	 * or positive infinity if the box is missed or behind the ray
+	 */
+	public float distanceTo(AABB box) {
+		float tmin = ((signx == 0 ? box.minx : box.maxx) - ox) * invx;
+		float tmax = ((signx == 0 ? box.maxx : box.minx) - ox) * invx;
+		float tymin = ((signy == 0 ? box.miny : box.maxy) - oy) * invy;
+		float tymax = ((signy == 0 ? box.maxy : box.miny) - oy) * invy;
+		float tzmin = ((signz == 0 ? box.minz : box.maxz) - oz) * invz;
+		float tzmax = ((signz == 0 ? box.maxz : box.minz) - oz) * invz;
+		tmin = Math.max(Math.max(tmin, 0F), Math.max(tymin, tzmin));
+		tmax = Math.min(tmax, Math.min(tymax, tzmax));
+		return tmax >= tmin ? tmin : Float.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Slab tests the ray against every box in a batch.
+	 * <br>The near and far planes of each axis are picked once from the direction signs,
+	 * so the loop over the boxes has no branches.
+	 * @param boxes Boxes to test
+	 * @param tmin Receives the distance where the ray enters each box
+	 * @param tmax Receives the distance where the ray exits each box. The ray hits a box if tmax >= tmin,
+	 * and the hit is in front of the ray if tmax >= 0 as well
+	 * @return The number of boxes hit in front of the ray
+	 */
+	public int intersect(AABBArray boxes, float[] tmin, float[] tmax) {
+		float[] nearX = signx == 0 ? boxes.getMinXData() : boxes.getMaxXData();
+		float[] farX = signx == 0 ? boxes.getMaxXData() : boxes.getMinXData();
+		float[] nearY = signy == 0 ? boxes.getMinYData() : boxes.getMaxYData();
+		float[] farY = signy == 0 ? boxes.getMaxYData() : boxes.getMinYData();
+		float[] nearZ = signz == 0 ? boxes.getMinZData() : boxes.getMaxZData();
+		float[] farZ = signz == 0 ? boxes.getMaxZData() : boxes.getMinZData();
+		float ox = this.ox, oy = this.oy, oz = this.oz;
+		float invx = this.invx, invy = this.invy, invz = this.invz;
+		int n = boxes.size();
+		int hits = 0;
+		for(int i = 0; i < n; i++) {
+			float t0 = Math.max((nearX[i] - ox) * invx, Math.max((nearY[i] - oy) * invy, (nearZ[i] - oz) * invz));
+			float t1 = Math.min((farX[i] - ox) * invx, Math.min((farY[i] - oy) * invy, (farZ[i] - oz) * invz));
+			tmin[i] = t0;
+			tmax[i] = t1;
+			hits += (t1 >= t0 & t1 >= 0) ? 1 : 0;
+		}
+		return hits;
+	}
+
+	/**
+	 * Finds the nearest box in a batch hit by the ray
+	 * @param boxes Boxes to test
+	 * @param maxDist Boxes further away than this are ignored
+	 * @return The index of the nearest box hit, or -1 if none were hit
+	 */
+	public int nearest(AABBArray boxes, float maxDist) {
+		float[] nearX = signx == 0 ? boxes.getMinXData() : boxes.getMaxXData();
+		float[] farX = signx == 0 ? boxes.getMaxXData() : boxes.getMinXData();
+		float[] nearY = signy == 0 ? boxes.getMinYData() : boxes.getMaxYData();
+		float[] farY = signy == 0 ? boxes.getMaxYData() : boxes.getMinYData();
+		float[] nearZ = signz == 0 ? boxes.getMinZData() : boxes.getMaxZData();
+		float[] farZ = signz == 0 ? boxes.getMaxZData() : boxes.getMinZData();
+		float ox = this.ox, oy = this.oy, oz = this.oz;
+		float invx = this.invx, invy = this.invy, invz = this.invz;
+		int n = boxes.size();
+		int best = -1;
+		float bestDist = maxDist;
+		for(int i = 0; i < n; i++) {
+			float t0 = Math.max(Math.max((nearX[i] - ox) * invx, 0F), Math.max((nearY[i] - oy) * invy, (nearZ[i] - oz) * invz));
+			float t1 = Math.min((farX[i] - ox) * invx, Math.min((farY[i] - oy) * invy, (farZ[i] - oz) * invz));
+			if(t1 >= t0 && t0 < bestDist) {
+				bestDist = t0;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.unknownloner.lonelib.math;
+
+import java.util.Arrays;
+
+/**
+ * A fixed capacity batch of rays stored as separate arrays, for testing many coherent rays
+ * (for example the pixels of a picking rectangle) against the same boxes.
+ * <br>Boxes are tested against every ray of the packet in one loop, which has no branches,
+ * so the JIT can vectorize it across the rays. Directions are normalized and zero components
+ * get a huge finite inverse, the same as {@link Ray}.
+ */
+public class RayPacket {
+
+	private final float[] ox;
+	private final float[] oy;
+	private final float[] oz;
+	private final float[] invx;
+	private final float[] invy;
+	private final float[] invz;
+	private int size;
+
+	/**
+	 * Creates an empty packet that can hold up to capacity rays
+	 * @param capacity Maximum number of rays
+	 */
+	public RayPacket(int capacity) {
+		ox = new float[capacity];
+		oy = new float[capacity];
+		oz = new float[capacity];
+		invx = new float[capacity];
+		invy = new float[capacity];
+		invz = new float[capacity];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return ox.length;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Appends a ray to the packet
+	 * @return The index of the new ray
+	 */
+	public int add(float rox, float roy, float roz, float rdx, float rdy, float rdz) {
+		int i = size;
+		if(i == ox.length) {
+			throw new IndexOutOfBoundsException("RayPacket is full");
+		}
+		set(i, rox, roy, roz, rdx, rdy, rdz);
+		size = i + 1;
+		return i;
+	}
+
+	public int add(Vec3 origin, Vec3 dir) {
+		return add(origin.x, origin.y, origin.z, dir.x, dir.y, dir.z);
+	}
+
+	public void set(int index, float rox, float roy, float roz, float rdx, float rdy, float rdz) {
+		float invLen = 1F / (float)Math.sqrt(rdx * rdx + rdy * rdy + rdz * rdz);
+		ox[index] = rox;
+		oy[index] = roy;
+		oz[index] = roz;
+		invx[index] = Ray.inverse(rdx * invLen);
+		invy[index] = Ray.inverse(rdy * invLen);
+		invz[index] = Ray.inverse(rdz * invLen);
+	}
+
+	/**
+	 * Slab tests every ray against one box
+	 * @param tmin Receives the distance where each ray enters the box
+	 * @param tmax Receives the distance where each ray exits the box. A ray hits the box if tmax >= tmin,
+	 * and the hit is in front of the ray if tmax >= 0 as well
+	 * @return The number of rays which hit the box in front of them
+	 */
+	public int intersect(float minx, float miny, float minz, float maxx, float maxy, float maxz, float[] tmin, float[] tmax) {
+		int n = size;
+		int hits = 0;
+		for(int i = 0; i < n; i++) {
+			float tx1 = (minx - ox[i]) * invx[i];
+			float tx2 = (maxx - ox[i]) * invx[i];
+			float ty1 = (miny - oy[i]) * invy[i];
+			float ty2 = (maxy - oy[i]) * invy[i];
+			float tz1 = (minz - oz[i]) * invz[i];
+			float tz2 = (maxz - oz[i]) * invz[i];
+			float t0 = Math.max(Math.min(tx1, tx2), Math.max(Math.min(ty1, ty2), Math.min(tz1, tz2)));
+			float t1 = Math.min(Math.max(tx1, tx2), Math.min(Math.max(ty1, ty2), Math.max(tz1, tz2)));
+			tmin[i] = t0;
+			tmax[i] = t1;
+			hits += (t1 >= t0 & t1 >= 0) ? 1 : 0;
+		}
+		return hits;
+	}
+
+	public int intersect(AABB box, float[] tmin, float[] tmax) {
+		return intersect(box.minx, box.miny, box.minz, box.maxx, box.maxy, box.maxz, tmin, tmax);
+	}
+
+	/**
+	 * Finds the nearest box hit by each ray in the packet
+	 * @param boxes Boxes to test
+	 * @param maxDist Boxes further away than this are ignored
+	 * @param hitIndex Receives the index of the nearest box hit by each ray, or -1
+	 * @param hitDist Receives the distance to the nearest box hit by each ray, or maxDist
+	 * @return The number of rays which hit a box
+	 */
+	public int nearest(AABBArray boxes, float maxDist, int[] hitIndex, float[] hitDist) {
+		int n = size;
+		Arrays.fill(hitIndex, 0, n, -1);
+		Arrays.fill(hitDist, 0, n, maxDist);
+		float[] bMinx = boxes.getMinXData(), bMiny = boxes.getMinYData(), bMinz = boxes.getMinZData();
+		float[] bMaxx = boxes.getMaxXData(), bMaxy = boxes.getMaxYData(), bMaxz = boxes.getMaxZData();
+		int boxCount = boxes.size();
+		for(int b = 0; b < boxCount; b++) {
+			float minx = bMinx[b], miny = bMiny[b], minz = bMinz[b];
+			float maxx = bMaxx[b], maxy = bMaxy[b], maxz = bMaxz[b];
+			for(int i = 0; i < n; i++) {
+				float tx1 = (minx - ox[i]) * invx[i];
+				float tx2 = (maxx - ox[i]) * invx[i];
+				float ty1 = (miny - oy[i]) * invy[i];
+				float ty2 = (maxy - oy[i]) * invy[i];
+				float tz1 = (minz - oz[i]) * invz[i];
+				float tz2 = (maxz - oz[i]) * invz[i];
+				float t0 = Math.max(Math.max(Math.min(tx1, tx2), 0F), Math.max(Math.min(ty1, ty2), Math.min(tz1, tz2)));
+				float t1 = Math.min(Math.max(tx1, tx2), Math.min(Math.max(ty1, ty2), Math.max(tz1, tz2)));
+				boolean closer = t1 >= t0 & t0 < hitDist[i];
+				hitDist[i] = closer ? t0 : hitDist[i];
+				hitIndex[i] = closer ? b : hitIndex[i];
+			}
+		}
+		int hits = 0;
+		for(int i = 0; i < n; i++) {
+			if(hitIndex[i] != -1) {
+				hits++;
+			}
+		}
+		return hits;
+	}
+
+}
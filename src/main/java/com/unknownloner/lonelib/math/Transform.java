@@ -0,0 +1,300 @@
+package com.unknownloner.lonelib.math;
+
+import java.nio.FloatBuffer;
+
+/**
+ * An immutable translation, rotation, and scale, applied to points in the order scale, rotate, translate.
+ * <br>Composition, inversion, point transforms and interpolation all work on the 10 TRS floats directly,
+ * which is cheaper than multiplying or inverting a full Mat4. The matrix is only built when it is needed,
+ * for example with {@link #store(FloatBuffer)} right before uploading a uniform or filling a VBO.
+ * <br>A TRS can not represent shear, so {@link #mul(Transform, Transform)} and {@link #inverse()} are only exact
+ * when the scale is uniform (or the rotations involved are multiples of 90 degrees about the scaled axes).
+ * With non-uniform scale they keep the scale per axis, which is what most scene hierarchies expect.
+ */
+public class Transform {
+
+	public static final Transform IDENTITY = new Transform(0, 0, 0, 0, 0, 0, 1, 1, 1, 1);
+
+	private final float tx, ty, tz;
+	private final float qx, qy, qz, qw;
+	private final float sx, sy, sz;
+	/**
+	 * Built on first use. Volatile so a matrix built by one thread is seen fully built by others
+	 */
+	private volatile Mat4 matrix;
+
+	/**
+	 * @param translation Translation, applied last
+	 * @param rotation Rotation, which must be normalized
+	 * @param scale Scale along each axis, applied first
+	 */
+	public Transform(Vec3 translation, Quat rotation, Vec3 scale) {
+		this(translation.x, translation.y, translation.z,
+				rotation.getX(), rotation.getY(), rotation.getZ(), rotation.getW(),
+				scale.x, scale.y, scale.z);
+	}
+
+	public Transform(float tx, float ty, float tz, float qx, float qy, float qz, float qw, float sx, float sy, float sz) {
+		this.tx = tx;
+		this.ty = ty;
+		this.tz = tz;
+		this.qx = qx;
+		this.qy = qy;
+		this.qz = qz;
+		this.qw = qw;
+		this.sx = sx;
+		this.sy = sy;
+		this.sz = sz;
+	}
+
+	/**
+	 * Reads the 10 floats translation x, y, z, rotation x, y, z, w, and scale x, y, z from an array
+	 * @param src Array to read from
+	 * @param offset Offset of the translation x in src
+	 */
+	public Transform(float[] src, int offset) {
+		this(src[offset], src[offset + 1], src[offset + 2],
+				src[offset + 3], src[offset + 4], src[offset + 5], src[offset + 6],
+				src[offset + 7], src[offset + 8], src[offset + 9]);
+	}
+
+	public Vec3 getTranslation() {
+		return new Vec3(tx, ty, tz);
+	}
+
+	public Quat getRotation() {
+		return new Quat(qx, qy, qz, qw);
+	}
+
+	public Vec3 getScale() {
+		return new Vec3(sx, sy, sz);
+	}
+
+	/**
+	 * @see #mul(Transform, Transform)
+	 */
+	public Transform mul(Transform child) {
+		return mul(this, child);
+	}
+
+	/**
+	 * Transforms a point by this transform
+	 * @param point Point to transform
+	 * @return scale, then rotation, then translation applied to point
+	 */
+	public Vec3 transformPoint(Vec3 point) {
+		//v + 2w(q x v) + 2q x (q x v), as in Quat.rotate
+		float vx = point.x * sx, vy = point.y * sy, vz = point.z * sz;
+		float cx = 2F * (qy * vz - qz * vy);
+		float cy = 2F * (qz * vx - qx * vz);
+		float cz = 2F * (qx * vy - qy * vx);
+		return new Vec3(vx + qw * cx + (qy * cz - qz * cy) + tx,
+				vy + qw * cy + (qz * cx - qx * cz) + ty,
+				vz + qw * cz + (qx * cy - qy * cx) + tz);
+	}
+
+	/**
+	 * Transforms a direction by this transform, which ignores the translation
+	 * @param dir Direction to transform
+	 * @return scale, then rotation applied to dir. The result is not normalized
+	 */
+	public Vec3 transformDirection(Vec3 dir) {
+		float vx = dir.x * sx, vy = dir.y * sy, vz = dir.z * sz;
+		float cx = 2F * (qy * vz - qz * vy);
+		float cy = 2F * (qz * vx - qx * vz);
+		float cz = 2F * (qx * vy - qy * vx);
+		return new Vec3(vx + qw * cx + (qy * cz - qz * cy),
+				vy + qw * cy + (qz * cx - qx * cz),
+				vz + qw * cz + (qx * cy - qy * cx));
+	}
+
+	/**
+	 * Undoes {@link #transformPoint(Vec3)}. Unlike {@link #inverse()} this is exact for any scale
+	 * @param point Point to transform
+	 * @return The point which transforms to point
+	 */
+	public Vec3 inverseTransformPoint(Vec3 point) {
+		//Rotate by the conjugate (-qx, -qy, -qz, qw)
+		float vx = point.x - tx, vy = point.y - ty, vz = point.z - tz;
+		float cx = 2F * (qz * vy - qy * vz);
+		float cy = 2F * (qx * vz - qz * vx);
+		float cz = 2F * (qy * vx - qx * vy);
+		return new Vec3((vx + qw * cx - (qy * cz - qz * cy)) / sx,
+				(vy + qw * cy - (qz * cx - qx * cz)) / sy,
+				(vz + qw * cz - (qx * cy - qy * cx)) / sz);
+	}
+
+	/**
+	 * Calculates the inverse of this transform
+	 * @return A transform with the inverted rotation and scale, which exactly undoes this transform if the scale is uniform
+	 */
+	public Transform inverse() {
+		float isx = 1F / sx, isy = 1F / sy, isz = 1F / sz;
+		//Rotate -t by the conjugate (-qx, -qy, -qz, qw)
+		float cx = 2F * (qy * tz - qz * ty);
+		float cy = 2F * (qz * tx - qx * tz);
+		float cz = 2F * (qx * ty - qy * tx);
+		return new Transform((-tx + qw * cx - (qy * cz - qz * cy)) * isx,
+				(-ty + qw * cy - (qz * cx - qx * cz)) * isy,
+				(-tz + qw * cz - (qx * cy - qy * cx)) * isz,
+				-qx, -qy, -qz, qw, isx, isy, isz);
+	}
+
+	/**
+	 * Returns the matrix of this transform, building it on first use.
+	 * <br>The matrix is cached and shared, it must not be modified
+	 * @return translation * rotation * scale
+	 */
+	public Mat4 toMatrix() {
+		Mat4 matrix = this.matrix;
+		if(matrix == null) {
+			matrix = toMatrix(new Mat4(new float[16]));
+			this.matrix = matrix;
+		}
+		return matrix;
+	}
+
+	/**
+	 * Stores the matrix of this transform in dest
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public Mat4 toMatrix(Mat4 dest) {
+		return Mat4.makeTRS(tx, ty, tz, qx, qy, qz, qw, sx, sy, sz, dest);
+	}
+
+	/**
+	 * Stores the matrix of this transform in the float buffer in column-major order, without building a Mat4
+	 * @param dest Buffer for data storage
+	 * @return this
+	 */
+	public Transform store(FloatBuffer dest) {
+		int pos = dest.position();
+		Mat4.makeTRS(tx, ty, tz, qx, qy, qz, qw, sx, sy, sz, dest, pos);
+		dest.position(pos + 16);
+		return this;
+	}
+
+	/**
+	 * Stores the 10 floats translation x, y, z, rotation x, y, z, w, and scale x, y, z in an array
+	 * @param dest Array to store into
+	 * @param offset Offset in dest to store the translation x at
+	 * @return this
+	 */
+	public Transform storeTRS(float[] dest, int offset) {
+		dest[offset] = tx;
+		dest[offset + 1] = ty;
+		dest[offset + 2] = tz;
+		dest[offset + 3] = qx;
+		dest[offset + 4] = qy;
+		dest[offset + 5] = qz;
+		dest[offset + 6] = qw;
+		dest[offset + 7] = sx;
+		dest[offset + 8] = sy;
+		dest[offset + 9] = sz;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("T(%f, %f, %f) R(%f, %f, %f, %f) S(%f, %f, %f)", tx, ty, tz, qx, qy, qz, qw, sx, sy, sz);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj)
+			return true;
+		if(!(obj instanceof Transform))
+			return false;
+		Transform t = (Transform)obj;
+		return tx == t.tx && ty == t.ty && tz == t.tz
+				&& qx == t.qx && qy == t.qy && qz == t.qz && qw == t.qw
+				&& sx == t.sx && sy == t.sy && sz == t.sz;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = Float.floatToIntBits(tx);
+		hash = hash * 31 + Float.floatToIntBits(ty);
+		hash = hash * 31 + Float.floatToIntBits(tz);
+		hash = hash * 31 + Float.floatToIntBits(qx);
+		hash = hash * 31 + Float.floatToIntBits(qy);
+		hash = hash * 31 + Float.floatToIntBits(qz);
+		hash = hash * 31 + Float.floatToIntBits(qw);
+		hash = hash * 31 + Float.floatToIntBits(sx);
+		hash = hash * 31 + Float.floatToIntBits(sy);
+		return hash * 31 + Float.floatToIntBits(sz);
+	}
+
+	/**
+	 * Composes two transforms, so that the result applies child first and then parent,
+	 * the same as multiplying their matrices parent * child
+	 * @param parent Transform applied second
+	 * @param child Transform applied first
+	 * @return The combined transform
+	 */
+	public static Transform mul(Transform parent, Transform child) {
+		float ax = parent.qx, ay = parent.qy, az = parent.qz, aw = parent.qw;
+		float bx = child.qx, by = child.qy, bz = child.qz, bw = child.qw;
+		//Child translation scaled and rotated by the parent, as in transformDirection
+		float vx = child.tx * parent.sx, vy = child.ty * parent.sy, vz = child.tz * parent.sz;
+		float cx = 2F * (ay * vz - az * vy);
+		float cy = 2F * (az * vx - ax * vz);
+		float cz = 2F * (ax * vy - ay * vx);
+		return new Transform(vx + aw * cx + (ay * cz - az * cy) + parent.tx,
+				vy + aw * cy + (az * cx - ax * cz) + parent.ty,
+				vz + aw * cz + (ax * cy - ay * cx) + parent.tz,
+				aw * bx + ax * bw + ay * bz - az * by,
+				aw * by + ay * bw + az * bx - ax * bz,
+				aw * bz + az * bw + ax * by - ay * bx,
+				aw * bw - ax * bx - ay * by - az * bz,
+				parent.sx * child.sx, parent.sy * child.sy, parent.sz * child.sz);
+	}
+
+	/**
+	 * Interpolates between two transforms in TRS space. Translation and scale are interpolated linearly,
+	 * and rotation with {@link Quat#slerp(Quat, Quat, float)}, so the result never shears or shrinks like
+	 * interpolating matrices would
+	 * @param t Interpolation factor, 0 for from and 1 for to
+	 * @return The interpolated transform
+	 */
+	public static Transform interpolate(Transform from, Transform to, float t) {
+		//Same steps as Quat.slerp
+		float ax = from.qx, ay = from.qy, az = from.qz, aw = from.qw;
+		float bx = to.qx, by = to.qy, bz = to.qz, bw = to.qw;
+		float cos = ax * bx + ay * by + az * bz + aw * bw;
+		if(cos < 0) {
+			cos = -cos;
+			bx = -bx;
+			by = -by;
+			bz = -bz;
+			bw = -bw;
+		}
+		float wa, wb;
+		if(cos > 0.9995F) {
+			wa = 1F - t;
+			wb = t;
+		} else {
+			float angle = (float)Math.acos(cos);
+			float invSin = 1F / (float)Math.sin(angle);
+			wa = (float)Math.sin((1F - t) * angle) * invSin;
+			wb = (float)Math.sin(t * angle) * invSin;
+		}
+		float rx = ax * wa + bx * wb;
+		float ry = ay * wa + by * wb;
+		float rz = az * wa + bz * wb;
+		float rw = aw * wa + bw * wb;
+		if(cos > 0.9995F) {
+			float invLen = 1F / (float)Math.sqrt(rx * rx + ry * ry + rz * rz + rw * rw);
+			rx *= invLen;
+			ry *= invLen;
+			rz *= invLen;
+			rw *= invLen;
+		}
+		return new Transform(
+				from.tx + (to.tx - from.tx) * t, from.ty + (to.ty - from.ty) * t, from.tz + (to.tz - from.tz) * t,
+				rx, ry, rz, rw,
+				from.sx + (to.sx - from.sx) * t, from.sy + (to.sy - from.sy) * t, from.sz + (to.sz - from.sz) * t);
+	}
+
+}
@@ -2,6 +2,8 @@ package com.unknownloner.lonelib.math;
 
 import java.nio.FloatBuffer;
 
+import com.unknownloner.lonelib.util.MathUtil;
+
 public class Vec3 {
 	
 	protected final float x;
@@ -89,6 +91,14 @@ public class Vec3 {
 		return normalize(this);
 	}
 	
+	/**
+	 * Normalizes the vector to a length of 1 with {@link MathUtil#invSqrtFast(float)}
+	 * @return this
+	 */
+	public Vec3 normalizeFast() {
+		return normalizeFast(this);
+	}
+	
 	/**
 	 * Adds a vector to this vector
 	 * @param right
@@ -193,6 +203,15 @@ public class Vec3 {
 		return new Vec3(vec.x / len, vec.y / len, vec.z / len);
 	}
 	
+	/**
+	 * Normalizes a vector with {@link MathUtil#invSqrtFast(float)}. The length of the result is within 5e-6 of 1
+	 * @param vec Vector to normalize
+	 */
+	public static Vec3 normalizeFast(Vec3 vec) {
+		float invLen = MathUtil.invSqrtFast(vec.x * vec.x + vec.y * vec.y + vec.z * vec.z);
+		return new Vec3(vec.x * invLen, vec.y * invLen, vec.z * invLen);
+	}
+	
 	public static Vec3 negate(Vec3 vec) {
 		return new Vec3(-vec.x, -vec.y, -vec.z);
 	}
@@ -221,6 +240,16 @@ public class Vec3 {
 		return (float)Math.acos(dot(left, right));
 	}
 	
+	/**
+	 * Calculates the angle between two normalized vectors with {@link MathUtil#acosFast(float)}, to within 1e-6 radians
+	 * @param left The first component of the calculation
+	 * @param right The second component of the calculation
+	 * @return The angle between left and right
+	 */
+	public static float angleFast(Vec3 left, Vec3 right) {
+		return MathUtil.acosFast(dot(left, right));
+	}
+	
 	public static Vec3 cross(Vec3 l, Vec3 r) {
 		float[] m0 = new float[] {
 				l.y, r.y,
@@ -0,0 +1,386 @@
+package com.unknownloner.lonelib.math;
+
+import java.nio.FloatBuffer;
+
+/**
+ * A fixed capacity batch of 3 component vectors stored as separate x, y, and z arrays.
+ * <br>The bulk operations run over the first {@link #size()} vectors with simple counted loops
+ * so the JIT can vectorize them. The dest of an operation may be one of its inputs.
+ */
+public class Vec3Array {
+
+	private final float[] x;
+	private final float[] y;
+	private final float[] z;
+	private int size;
+
+	/**
+	 * Creates an empty batch that can hold up to capacity vectors
+	 * @param capacity Maximum number of vectors
+	 */
+	public Vec3Array(int capacity) {
+		x = new float[capacity];
+		y = new float[capacity];
+		z = new float[capacity];
+	}
+
+	/**
+	 * Creates a batch holding count interleaved x, y, z values read from src
+	 * @param src Buffer to read from
+	 * @param count Number of vectors to read
+	 */
+	public Vec3Array(FloatBuffer src, int count) {
+		this(count);
+		load(src, count);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return x.length;
+	}
+
+	/**
+	 * Sets the number of vectors in use
+	 * @param size New size, no larger than the capacity
+	 */
+	public void setSize(int size) {
+		if(size < 0 || size > x.length) {
+			throw new IndexOutOfBoundsException("Size " + size + " outside of capacity " + x.length);
+		}
+		this.size = size;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * return the raw x values, changes to the array will be reflected in the batch.
+	 * @return x array
+	 */
+	public float[] getXData() {
+		return x;
+	}
+
+	/**
+	 * return the raw y values, changes to the array will be reflected in the batch.
+	 * @return y array
+	 */
+	public float[] getYData() {
+		return y;
+	}
+
+	/**
+	 * return the raw z values, changes to the array will be reflected in the batch.
+	 * @return z array
+	 */
+	public float[] getZData() {
+		return z;
+	}
+
+	/**
+	 * Appends a vector to the end of the batch
+	 * @return The index of the new vector
+	 */
+	public int add(float vx, float vy, float vz) {
+		int i = size;
+		if(i == x.length) {
+			throw new IndexOutOfBoundsException("Vec3Array is full");
+		}
+		x[i] = vx;
+		y[i] = vy;
+		z[i] = vz;
+		size = i + 1;
+		return i;
+	}
+
+	public int add(Vec3 vec) {
+		return add(vec.x, vec.y, vec.z);
+	}
+
+	public void set(int index, float vx, float vy, float vz) {
+		x[index] = vx;
+		y[index] = vy;
+		z[index] = vz;
+	}
+
+	public void set(int index, Vec3 vec) {
+		set(index, vec.x, vec.y, vec.z);
+	}
+
+	/**
+	 * Creates a Vec3 from the vector at index
+	 */
+	public Vec3 get(int index) {
+		return new Vec3(x[index], y[index], z[index]);
+	}
+
+	/**
+	 * Reads count interleaved x, y, z values from src, replacing the contents of this batch
+	 * @param src Buffer to read from
+	 * @param count Number of vectors to read
+	 */
+	public void load(FloatBuffer src, int count) {
+		setSize(count);
+		for(int i = 0; i < count; i++) {
+			x[i] = src.get();
+			y[i] = src.get();
+			z[i] = src.get();
+		}
+	}
+
+	/**
+	 * Stores the vectors in the float buffer as interleaved x, y, z values at the buffer's current position
+	 * @param buffer Buffer for data storage
+	 */
+	public void store(FloatBuffer buffer) {
+		store(buffer, 3, 0);
+	}
+
+	/**
+	 * Stores the vectors in the float buffer at the buffer's current position,
+	 * leaving stride - 3 untouched floats after each vector. Useful for writing into interleaved vertex data.
+	 * <br>The buffer's position is advanced by offset + size * stride floats.
+	 * @param buffer Buffer for data storage
+	 * @param stride Number of floats from the start of one vector to the next
+	 * @param offset Number of floats to skip before the first vector, no more than stride - 3
+	 */
+	public void store(FloatBuffer buffer, int stride, int offset) {
+		if(offset < 0 || offset > stride - 3) {
+			throw new IllegalArgumentException("Offset " + offset + " does not fit a vector in stride " + stride);
+		}
+		int start = buffer.position();
+		int pos = start + offset;
+		for(int i = 0; i < size; i++, pos += stride) {
+			buffer.put(pos, x[i]);
+			buffer.put(pos + 1, y[i]);
+			buffer.put(pos + 2, z[i]);
+		}
+		buffer.position(start + offset + size * stride);
+	}
+
+	/**
+	 * Transforms every vector as a point (w = 1) by an affine matrix and stores the results in dest.
+	 * The bottom row of the matrix is ignored. Runs on {@link VectorKernels#get()}.
+	 * @param mat4 A transformation matrix
+	 * @param src Points to transform
+	 * @param dest Batch to store the result in
+	 * @return dest
+	 */
+	public static Vec3Array transformPoints(Mat4 mat4, Vec3Array src, Vec3Array dest) {
+		int n = src.size;
+		dest.setSize(n);
+		VectorKernels.get().transformPoints(mat4.getData(), 0, src.x, src.y, src.z, dest.x, dest.y, dest.z, n);
+		return dest;
+	}
+
+	/**
+	 * Transforms every vector as a point (w = 1) by a matrix, dividing by the resulting w.
+	 * Use this for projection matrices.
+	 * @param mat4 A transformation matrix
+	 * @param src Points to transform
+	 * @param dest Batch to store the result in
+	 * @return dest
+	 */
+	public static Vec3Array transformProject(Mat4 mat4, Vec3Array src, Vec3Array dest) {
+		float[] m = mat4.getData();
+		float m0 = m[0], m1 = m[1], m2 = m[2], m3 = m[3];
+		float m4 = m[4], m5 = m[5], m6 = m[6], m7 = m[7];
+		float m8 = m[8], m9 = m[9], m10 = m[10], m11 = m[11];
+		float m12 = m[12], m13 = m[13], m14 = m[14], m15 = m[15];
+		int n = src.size;
+		dest.setSize(n);
+		float[] sx = src.x, sy = src.y, sz = src.z;
+		float[] dx = dest.x, dy = dest.y, dz = dest.z;
+		for(int i = 0; i < n; i++) {
+			float px = sx[i];
+			float py = sy[i];
+			float pz = sz[i];
+			float invW = 1F / (m3 * px + m7 * py + m11 * pz + m15);
+			dx[i] = (m0 * px + m4 * py + m8 * pz + m12) * invW;
+			dy[i] = (m1 * px + m5 * py + m9 * pz + m13) * invW;
+			dz[i] = (m2 * px + m6 * py + m10 * pz + m14) * invW;
+		}
+		return dest;
+	}
+
+	/**
+	 * Transforms every vector by the upper-left 3x3 matrix in the mat4, like {@link Mat4#transform(Mat4, Vec3)}
+	 * @param mat4 A transformation matrix
+	 * @param src Vectors to transform
+	 * @param dest Batch to store the result in
+	 * @return dest
+	 */
+	public static Vec3Array transformDirections(Mat4 mat4, Vec3Array src, Vec3Array dest) {
+		float[] m = mat4.getData();
+		float m0 = m[0], m1 = m[1], m2 = m[2];
+		float m4 = m[4], m5 = m[5], m6 = m[6];
+		float m8 = m[8], m9 = m[9], m10 = m[10];
+		int n = src.size;
+		dest.setSize(n);
+		float[] sx = src.x, sy = src.y, sz = src.z;
+		float[] dx = dest.x, dy = dest.y, dz = dest.z;
+		for(int i = 0; i < n; i++) {
+			float px = sx[i];
+			float py = sy[i];
+			float pz = sz[i];
+			dx[i] = m0 * px + m4 * py + m8 * pz;
+			dy[i] = m1 * px + m5 * py + m9 * pz;
+			dz[i] = m2 * px + m6 * py + m10 * pz;
+		}
+		return dest;
+	}
+
+	/**
+	 * Normalizes every vector to a length of 1
+	 * @param src Vectors to normalize
+	 * @param dest Batch to store the result in
+	 * @return dest
+	 */
+	public static Vec3Array normalize(Vec3Array src, Vec3Array dest) {
+		int n = src.size;
+		dest.setSize(n);
+		float[] sx = src.x, sy = src.y, sz = src.z;
+		float[] dx = dest.x, dy = dest.y, dz = dest.z;
+		for(int i = 0; i < n; i++) {
+			float px = sx[i];
+			float py = sy[i];
+			float pz = sz[i];
+			float invLen = 1F / (float)Math.sqrt(px * px + py * py + pz * pz);
+			dx[i] = px * invLen;
+			dy[i] = py * invLen;
+			dz[i] = pz * invLen;
+		}
+		return dest;
+	}
+
+	/**
+	 * Calculates the dot product of each pair of vectors in left and right
+	 * @param dest Array to store left.size() dot products in
+	 * @return dest
+	 */
+	public static float[] dot(Vec3Array left, Vec3Array right, float[] dest) {
+		int n = left.size;
+		float[] lx = left.x, ly = left.y, lz = left.z;
+		float[] rx = right.x, ry = right.y, rz = right.z;
+		for(int i = 0; i < n; i++) {
+			dest[i] = lx[i] * rx[i] + ly[i] * ry[i] + lz[i] * rz[i];
+		}
+		return dest;
+	}
+
+	/**
+	 * Calculates the dot product of every vector in left with a single vector
+	 * @param dest Array to store left.size() dot products in
+	 * @return dest
+	 */
+	public static float[] dot(Vec3Array left, Vec3 right, float[] dest) {
+		int n = left.size;
+		float rx = right.x, ry = right.y, rz = right.z;
+		float[] lx = left.x, ly = left.y, lz = left.z;
+		for(int i = 0; i < n; i++) {
+			dest[i] = lx[i] * rx + ly[i] * ry + lz[i] * rz;
+		}
+		return dest;
+	}
+
+	/**
+	 * Calculates the cross product of each pair of vectors in left and right
+	 * @param dest Batch to store the result in
+	 * @return dest
+	 */
+	public static Vec3Array cross(Vec3Array left, Vec3Array right, Vec3Array dest) {
+		int n = left.size;
+		dest.setSize(n);
+		float[] lx = left.x, ly = left.y, lz = left.z;
+		float[] rx = right.x, ry = right.y, rz = right.z;
+		float[] dx = dest.x, dy = dest.y, dz = dest.z;
+		for(int i = 0; i < n; i++) {
+			float ax = lx[i], ay = ly[i], az = lz[i];
+			float bx = rx[i], by = ry[i], bz = rz[i];
+			dx[i] = ay * bz - az * by;
+			dy[i] = az * bx - ax * bz;
+			dz[i] = ax * by - ay * bx;
+		}
+		return dest;
+	}
+
+	/**
+	 * Adds each pair of vectors in left and right
+	 * @param dest Batch to store the result in
+	 * @return dest
+	 */
+	public static Vec3Array add(Vec3Array left, Vec3Array right, Vec3Array dest) {
+		int n = left.size;
+		dest.setSize(n);
+		float[] lx = left.x, ly = left.y, lz = left.z;
+		float[] rx = right.x, ry = right.y, rz = right.z;
+		float[] dx = dest.x, dy = dest.y, dz = dest.z;
+		for(int i = 0; i < n; i++) {
+			dx[i] = lx[i] + rx[i];
+			dy[i] = ly[i] + ry[i];
+			dz[i] = lz[i] + rz[i];
+		}
+		return dest;
+	}
+
+	/**
+	 * Adds a single vector to every vector in src
+	 * @param dest Batch to store the result in
+	 * @return dest
+	 */
+	public static Vec3Array add(Vec3Array src, Vec3 offset, Vec3Array dest) {
+		int n = src.size;
+		dest.setSize(n);
+		float ox = offset.x, oy = offset.y, oz = offset.z;
+		float[] sx = src.x, sy = src.y, sz = src.z;
+		float[] dx = dest.x, dy = dest.y, dz = dest.z;
+		for(int i = 0; i < n; i++) {
+			dx[i] = sx[i] + ox;
+			dy[i] = sy[i] + oy;
+			dz[i] = sz[i] + oz;
+		}
+		return dest;
+	}
+
+	/**
+	 * Multiplies every vector in src by a scalar
+	 * @param dest Batch to store the result in
+	 * @return dest
+	 */
+	public static Vec3Array scale(Vec3Array src, float scalar, Vec3Array dest) {
+		int n = src.size;
+		dest.setSize(n);
+		float[] sx = src.x, sy = src.y, sz = src.z;
+		float[] dx = dest.x, dy = dest.y, dz = dest.z;
+		for(int i = 0; i < n; i++) {
+			dx[i] = sx[i] * scalar;
+			dy[i] = sy[i] * scalar;
+			dz[i] = sz[i] * scalar;
+		}
+		return dest;
+	}
+
+	/**
+	 * Computes src + dir * scalar for every pair of vectors, for example to integrate positions by velocities
+	 * @param dest Batch to store the result in
+	 * @return dest
+	 */
+	public static Vec3Array addScaled(Vec3Array src, Vec3Array dir, float scalar, Vec3Array dest) {
+		int n = src.size;
+		dest.setSize(n);
+		float[] sx = src.x, sy = src.y, sz = src.z;
+		float[] vx = dir.x, vy = dir.y, vz = dir.z;
+		float[] dx = dest.x, dy = dest.y, dz = dest.z;
+		for(int i = 0; i < n; i++) {
+			dx[i] = sx[i] + vx[i] * scalar;
+			dy[i] = sy[i] + vy[i] * scalar;
+			dz[i] = sz[i] + vz[i] * scalar;
+		}
+		return dest;
+	}
+
+}
@@ -0,0 +1,288 @@
+package com.unknownloner.lonelib.math;
+
+import java.nio.FloatBuffer;
+
+/**
+ * A fixed capacity batch of 4 component vectors stored as separate x, y, z, and w arrays.
+ * <br>The bulk operations run over the first {@link #size()} vectors with simple counted loops
+ * so the JIT can vectorize them. The dest of an operation may be one of its inputs.
+ */
+public class Vec4Array {
+
+	private final float[] x;
+	private final float[] y;
+	private final float[] z;
+	private final float[] w;
+	private int size;
+
+	/**
+	 * Creates an empty batch that can hold up to capacity vectors
+	 * @param capacity Maximum number of vectors
+	 */
+	public Vec4Array(int capacity) {
+		x = new float[capacity];
+		y = new float[capacity];
+		z = new float[capacity];
+		w = new float[capacity];
+	}
+
+	/**
+	 * Creates a batch holding count interleaved x, y, z, w values read from src
+	 * @param src Buffer to read from
+	 * @param count Number of vectors to read
+	 */
+	public Vec4Array(FloatBuffer src, int count) {
+		this(count);
+		load(src, count);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return x.length;
+	}
+
+	/**
+	 * Sets the number of vectors in use
+	 * @param size New size, no larger than the capacity
+	 */
+	public void setSize(int size) {
+		if(size < 0 || size > x.length) {
+			throw new IndexOutOfBoundsException("Size " + size + " outside of capacity " + x.length);
+		}
+		this.size = size;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public float[] getXData() {
+		return x;
+	}
+
+	public float[] getYData() {
+		return y;
+	}
+
+	public float[] getZData() {
+		return z;
+	}
+
+	public float[] getWData() {
+		return w;
+	}
+
+	/**
+	 * Appends a vector to the end of the batch
+	 * @return The index of the new vector
+	 */
+	public int add(float vx, float vy, float vz, float vw) {
+		int i = size;
+		if(i == x.length) {
+			throw new IndexOutOfBoundsException("Vec4Array is full");
+		}
+		x[i] = vx;
+		y[i] = vy;
+		z[i] = vz;
+		w[i] = vw;
+		size = i + 1;
+		return i;
+	}
+
+	public int add(Vec4 vec) {
+		return add(vec.x, vec.y, vec.z, vec.w);
+	}
+
+	public void set(int index, float vx, float vy, float vz, float vw) {
+		x[index] = vx;
+		y[index] = vy;
+		z[index] = vz;
+		w[index] = vw;
+	}
+
+	public void set(int index, Vec4 vec) {
+		set(index, vec.x, vec.y, vec.z, vec.w);
+	}
+
+	/**
+	 * Creates a Vec4 from the vector at index
+	 */
+	public Vec4 get(int index) {
+		return new Vec4(x[index], y[index], z[index], w[index]);
+	}
+
+	/**
+	 * Reads count interleaved x, y, z, w values from src, replacing the contents of this batch
+	 * @param src Buffer to read from
+	 * @param count Number of vectors to read
+	 */
+	public void load(FloatBuffer src, int count) {
+		setSize(count);
+		for(int i = 0; i < count; i++) {
+			x[i] = src.get();
+			y[i] = src.get();
+			z[i] = src.get();
+			w[i] = src.get();
+		}
+	}
+
+	/**
+	 * Stores the vectors in the float buffer as interleaved x, y, z, w values at the buffer's current position
+	 * @param buffer Buffer for data storage
+	 */
+	public void store(FloatBuffer buffer) {
+		store(buffer, 4, 0);
+	}
+
+	/**
+	 * Stores the vectors in the float buffer at the buffer's current position,
+	 * leaving stride - 4 untouched floats after each vector. Useful for writing into interleaved vertex data.
+	 * The buffer's position is advanced past the last vector.
+	 * @param buffer Buffer for data storage
+	 * @param stride Number of floats from the start of one vector to the next
+	 * @param offset Number of floats to skip before the first vector
+	 */
+	public void store(FloatBuffer buffer, int stride, int offset) {
+		int pos = buffer.position() + offset;
+		for(int i = 0; i < size; i++, pos += stride) {
+			buffer.put(pos, x[i]);
+			buffer.put(pos + 1, y[i]);
+			buffer.put(pos + 2, z[i]);
+			buffer.put(pos + 3, w[i]);
+		}
+		buffer.position(buffer.position() + size * stride);
+	}
+
+	/**
+	 * Transforms every vector by a mat4
+	 * @param mat4 A transformation matrix
+	 * @param src Vectors to transform
+	 * @param dest Batch to store the result in
+	 * @return dest
+	 */
+	public static Vec4Array transform(Mat4 mat4, Vec4Array src, Vec4Array dest) {
+		float[] m = mat4.getData();
+		float m0 = m[0], m1 = m[1], m2 = m[2], m3 = m[3];
+		float m4 = m[4], m5 = m[5], m6 = m[6], m7 = m[7];
+		float m8 = m[8], m9 = m[9], m10 = m[10], m11 = m[11];
+		float m12 = m[12], m13 = m[13], m14 = m[14], m15 = m[15];
+		int n = src.size;
+		dest.setSize(n);
+		float[] sx = src.x, sy = src.y, sz = src.z, sw = src.w;
+		float[] dx = dest.x, dy = dest.y, dz = dest.z, dw = dest.w;
+		for(int i = 0; i < n; i++) {
+			float px = sx[i];
+			float py = sy[i];
+			float pz = sz[i];
+			float pw = sw[i];
+			dx[i] = m0 * px + m4 * py + m8 * pz + m12 * pw;
+			dy[i] = m1 * px + m5 * py + m9 * pz + m13 * pw;
+			dz[i] = m2 * px + m6 * py + m10 * pz + m14 * pw;
+			dw[i] = m3 * px + m7 * py + m11 * pz + m15 * pw;
+		}
+		return dest;
+	}
+
+	/**
+	 * Divides every vector by its w, like {@link Vec4#toVec3()}
+	 * @param src Vectors to divide
+	 * @param dest Batch to store the x / w, y / w, z / w results in
+	 * @return dest
+	 */
+	public static Vec3Array toVec3(Vec4Array src, Vec3Array dest) {
+		int n = src.size;
+		dest.setSize(n);
+		float[] sx = src.x, sy = src.y, sz = src.z, sw = src.w;
+		float[] dx = dest.getXData(), dy = dest.getYData(), dz = dest.getZData();
+		for(int i = 0; i < n; i++) {
+			float invW = 1F / sw[i];
+			dx[i] = sx[i] * invW;
+			dy[i] = sy[i] * invW;
+			dz[i] = sz[i] * invW;
+		}
+		return dest;
+	}
+
+	/**
+	 * Normalizes every vector to a length of 1
+	 * @param src Vectors to normalize
+	 * @param dest Batch to store the result in
+	 * @return dest
+	 */
+	public static Vec4Array normalize(Vec4Array src, Vec4Array dest) {
+		int n = src.size;
+		dest.setSize(n);
+		float[] sx = src.x, sy = src.y, sz = src.z, sw = src.w;
+		float[] dx = dest.x, dy = dest.y, dz = dest.z, dw = dest.w;
+		for(int i = 0; i < n; i++) {
+			float px = sx[i];
+			float py = sy[i];
+			float pz = sz[i];
+			float pw = sw[i];
+			float invLen = 1F / (float)Math.sqrt(px * px + py * py + pz * pz + pw * pw);
+			dx[i] = px * invLen;
+			dy[i] = py * invLen;
+			dz[i] = pz * invLen;
+			dw[i] = pw * invLen;
+		}
+		return dest;
+	}
+
+	/**
+	 * Calculates the dot product of each pair of vectors in left and right
+	 * @param dest Array to store left.size() dot products in
+	 * @return dest
+	 */
+	public static float[] dot(Vec4Array left, Vec4Array right, float[] dest) {
+		int n = left.size;
+		float[] lx = left.x, ly = left.y, lz = left.z, lw = left.w;
+		float[] rx = right.x, ry = right.y, rz = right.z, rw = right.w;
+		for(int i = 0; i < n; i++) {
+			dest[i] = lx[i] * rx[i] + ly[i] * ry[i] + lz[i] * rz[i] + lw[i] * rw[i];
+		}
+		return dest;
+	}
+
+	/**
+	 * Adds each pair of vectors in left and right
+	 * @param dest Batch to store the result in
+	 * @return dest
+	 */
+	public static Vec4Array add(Vec4Array left, Vec4Array right, Vec4Array dest) {
+		int n = left.size;
+		dest.setSize(n);
+		float[] lx = left.x, ly = left.y, lz = left.z, lw = left.w;
+		float[] rx = right.x, ry = right.y, rz = right.z, rw = right.w;
+		float[] dx = dest.x, dy = dest.y, dz = dest.z, dw = dest.w;
+		for(int i = 0; i < n; i++) {
+			dx[i] = lx[i] + rx[i];
+			dy[i] = ly[i] + ry[i];
+			dz[i] = lz[i] + rz[i];
+			dw[i] = lw[i] + rw[i];
+		}
+		return dest;
+	}
+
+	/**
+	 * Multiplies every vector in src by a scalar
+	 * @param dest Batch to store the result in
+	 * @return dest
+	 */
+	public static Vec4Array scale(Vec4Array src, float scalar, Vec4Array dest) {
+		int n = src.size;
+		dest.setSize(n);
+		float[] sx = src.x, sy = src.y, sz = src.z, sw = src.w;
+		float[] dx = dest.x, dy = dest.y, dz = dest.z, dw = dest.w;
+		for(int i = 0; i < n; i++) {
+			dx[i] = sx[i] * scalar;
+			dy[i] = sy[i] * scalar;
+			dz[i] = sz[i] * scalar;
+			dw[i] = sw[i] * scalar;
+		}
+		return dest;
+	}
+
+}
@@ -0,0 +1,211 @@
+package com.unknownloner.lonelib.math;
+
+/**
+ * Batched matrix, vector, and bounding box kernels working on primitive arrays.
+ * <br>{@link #get()} returns the fastest implementation available on the running JVM.
+ * On Java 17+ with <code>--add-modules jdk.incubator.vector</code> this is an implementation
+ * using the Java Vector API, loaded from the multi-release part of the jar. Everywhere else, or if
+ * the accelerated implementation disagrees with the scalar one when it is loaded, the scalar
+ * implementation is used. Setting the system property <code>lonelib.simd</code> to false forces the scalar path.
+ * <br>All matrices are 16 floats in column-major order, the same layout as {@link Mat4#getData()}.
+ */
+public abstract class VectorKernels {
+
+	private static final VectorKernels SCALAR = new ScalarKernels();
+	private static final VectorKernels BEST = load();
+
+	/**
+	 * @return The fastest kernels available on this JVM
+	 */
+	public static VectorKernels get() {
+		return BEST;
+	}
+
+	/**
+	 * @return The plain Java kernels, which work on every JVM
+	 */
+	public static VectorKernels scalar() {
+		return SCALAR;
+	}
+
+	/**
+	 * @return Whether these kernels use SIMD instructions directly
+	 */
+	public abstract boolean isAccelerated();
+
+	/**
+	 * Multiplies two matrices. dest may overlap l or r.
+	 * @see Mat4#mul(float[], int, float[], int, float[], int)
+	 */
+	public abstract void mul(float[] l, int lo, float[] r, int ro, float[] dest, int destOffset);
+
+	/**
+	 * Multiplies one matrix by count consecutive matrices, for example a view-projection matrix by many model matrices.
+	 * dest may be the same array as rights as long as the offsets match.
+	 * @param l Array holding the left side of every multiplication
+	 * @param lo Offset of the left matrix in l
+	 * @param rights Array holding the right side matrices, one after another
+	 * @param ro Offset of the first right side matrix
+	 * @param dest Array to store the results in, one after another
+	 * @param destOffset Offset of the first result
+	 * @param count Number of multiplications
+	 */
+	public abstract void mulBatch(float[] l, int lo, float[] rights, int ro, float[] dest, int destOffset, int count);
+
+	/**
+	 * Transforms count points (w = 1) by an affine matrix, ignoring its bottom row.
+	 * The dest arrays may be the same as the source arrays.
+	 * @param m Array holding the matrix
+	 * @param mo Offset of the matrix in m
+	 */
+	public abstract void transformPoints(float[] m, int mo, float[] x, float[] y, float[] z,
+			float[] destX, float[] destY, float[] destZ, int count);
+
+	/**
+	 * Tests count boxes against one query box using the same rules as {@link AABB#intersects(AABB)}.
+	 * @param dest Receives whether each box overlaps the query box
+	 */
+	public abstract void overlaps(float qMinX, float qMinY, float qMinZ, float qMaxX, float qMaxY, float qMaxZ,
+			float[] minX, float[] minY, float[] minZ, float[] maxX, float[] maxY, float[] maxZ,
+			int count, boolean[] dest);
+
+	private static VectorKernels load() {
+		if("false".equals(System.getProperty("lonelib.simd"))) {
+			return SCALAR;
+		}
+		VectorKernels kernels;
+		try {
+			kernels = (VectorKernels)Class.forName("com.unknownloner.lonelib.math.simd.VectorApiKernels").getDeclaredConstructor().newInstance();
+		} catch (Throwable t) {
+			//Older JVM, not running from the multi-release jar, or jdk.incubator.vector is not enabled
+			return SCALAR;
+		}
+		if(!crossCheck(kernels)) {
+			System.err.println("LoneLib: Vector API kernels disagree with the scalar kernels, falling back to scalar");
+			return SCALAR;
+		}
+		return kernels;
+	}
+
+	/**
+	 * Runs every kernel of kernels and the scalar kernels on the same pseudo-random input,
+	 * with sizes that exercise both the vector loops and their scalar tails.
+	 * @return Whether all results agree within a small relative tolerance
+	 */
+	static boolean crossCheck(VectorKernels kernels) {
+		int count = 67;
+		long seed = 0x5DEECE66DL;
+		float[] a = new float[count * 16];
+		float[] b = new float[count * 16];
+		for(int i = 0; i < a.length; i++) {
+			seed = seed * 6364136223846793005L + 1442695040888963407L;
+			a[i] = ((seed >>> 40) / (float)(1 << 24)) * 4F - 2F;
+			seed = seed * 6364136223846793005L + 1442695040888963407L;
+			b[i] = ((seed >>> 40) / (float)(1 << 24)) * 4F - 2F;
+		}
+
+		float[] expected = new float[count * 16];
+		float[] actual = new float[count * 16];
+		SCALAR.mul(a, 16, b, 32, expected, 0);
+		kernels.mul(a, 16, b, 32, actual, 0);
+		if(!close(expected, actual, 16)) {
+			return false;
+		}
+		SCALAR.mulBatch(a, 0, b, 16, expected, 16, count - 1);
+		kernels.mulBatch(a, 0, b, 16, actual, 16, count - 1);
+		if(!close(expected, actual, count * 16)) {
+			return false;
+		}
+
+		float[] x = new float[count], y = new float[count], z = new float[count];
+		System.arraycopy(b, 0, x, 0, count);
+		System.arraycopy(b, count, y, 0, count);
+		System.arraycopy(b, count * 2, z, 0, count);
+		float[] ex = new float[count], ey = new float[count], ez = new float[count];
+		float[] ax = new float[count], ay = new float[count], az = new float[count];
+		SCALAR.transformPoints(a, 0, x, y, z, ex, ey, ez, count);
+		kernels.transformPoints(a, 0, x, y, z, ax, ay, az, count);
+		if(!close(ex, ax, count) || !close(ey, ay, count) || !close(ez, az, count)) {
+			return false;
+		}
+
+		float[] maxX = new float[count], maxY = new float[count], maxZ = new float[count];
+		for(int i = 0; i < count; i++) {
+			maxX[i] = x[i] + Math.abs(a[i]);
+			maxY[i] = y[i] + Math.abs(a[i + count]);
+			maxZ[i] = z[i] + Math.abs(a[i + count * 2]);
+		}
+		boolean[] expectedHits = new boolean[count];
+		boolean[] actualHits = new boolean[count];
+		SCALAR.overlaps(-0.5F, -0.5F, -0.5F, 0.5F, 0.5F, 0.5F, x, y, z, maxX, maxY, maxZ, count, expectedHits);
+		kernels.overlaps(-0.5F, -0.5F, -0.5F, 0.5F, 0.5F, 0.5F, x, y, z, maxX, maxY, maxZ, count, actualHits);
+		for(int i = 0; i < count; i++) {
+			if(expectedHits[i] != actualHits[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean close(float[] expected, float[] actual, int count) {
+		for(int i = 0; i < count; i++) {
+			float diff = Math.abs(expected[i] - actual[i]);
+			if(!(diff <= 1e-5F * Math.max(1F, Math.abs(expected[i])))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Plain Java kernels, written as simple counted loops so C2 can still auto-vectorize them.
+	 */
+	private static class ScalarKernels extends VectorKernels {
+
+		@Override
+		public boolean isAccelerated() {
+			return false;
+		}
+
+		@Override
+		public void mul(float[] l, int lo, float[] r, int ro, float[] dest, int destOffset) {
+			Mat4.mul(l, lo, r, ro, dest, destOffset);
+		}
+
+		@Override
+		public void mulBatch(float[] l, int lo, float[] rights, int ro, float[] dest, int destOffset, int count) {
+			for(int i = 0; i < count; i++) {
+				Mat4.mul(l, lo, rights, ro + i * 16, dest, destOffset + i * 16);
+			}
+		}
+
+		@Override
+		public void transformPoints(float[] m, int mo, float[] x, float[] y, float[] z,
+				float[] destX, float[] destY, float[] destZ, int count) {
+			float m0 = m[mo], m1 = m[mo + 1], m2 = m[mo + 2];
+			float m4 = m[mo + 4], m5 = m[mo + 5], m6 = m[mo + 6];
+			float m8 = m[mo + 8], m9 = m[mo + 9], m10 = m[mo + 10];
+			float m12 = m[mo + 12], m13 = m[mo + 13], m14 = m[mo + 14];
+			for(int i = 0; i < count; i++) {
+				float px = x[i];
+				float py = y[i];
+				float pz = z[i];
+				destX[i] = m0 * px + m4 * py + m8 * pz + m12;
+				destY[i] = m1 * px + m5 * py + m9 * pz + m13;
+				destZ[i] = m2 * px + m6 * py + m10 * pz + m14;
+			}
+		}
+
+		@Override
+		public void overlaps(float qMinX, float qMinY, float qMinZ, float qMaxX, float qMaxY, float qMaxZ,
+				float[] minX, float[] minY, float[] minZ, float[] maxX, float[] maxY, float[] maxZ,
+				int count, boolean[] dest) {
+			for(int i = 0; i < count; i++) {
+				dest[i] = maxX[i] > qMinX & minX[i] < qMaxX
+						& maxY[i] > qMinY & minY[i] < qMaxY
+						& maxZ[i] > qMinZ & minZ[i] < qMaxZ;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,438 @@
+package com.unknownloner.lonelib.scene;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import com.unknownloner.lonelib.math.Mat4;
+import com.unknownloner.lonelib.math.Quat;
+import com.unknownloner.lonelib.math.Transform;
+import com.unknownloner.lonelib.math.Vec3;
+
+/**
+ * A transform hierarchy which caches the world matrix of every node and only recomputes the ones that changed.
+ * <br>Nodes are referred to by int ids which stay valid until the node is destroyed. Their local translation,
+ * rotation and scale, and their world matrices, are stored in primitive arrays kept in breadth-first order,
+ * so every parent comes before its children and {@link #update()} is one linear pass over the arrays.
+ * Changing a node marks it dirty, and the pass recomputes dirty nodes and everything below them.
+ * <br>Every recomputed node is stamped with the new {@link #getVersion()}, so a renderer can remember the version
+ * it last uploaded for a node and skip it when {@link #getVersion(int)} has not changed.
+ * <br>The arrays only grow when the graph outgrows them, and changing the structure only reorders them
+ * on the next update, so a graph in steady use never allocates. The graph is not thread safe.
+ */
+public class SceneGraph {
+
+	public static final int NULL_NODE = -1;
+
+	private static final int TRS_FLOATS = 10;
+
+	//Indexed by node id
+	private int[] slotOf;
+	private int[] parent;
+	private int[] firstChild;
+	private int[] nextSibling;
+	private int firstRoot = NULL_NODE;
+	private int freeList = NULL_NODE;
+	private int nodeCount;
+
+	//Indexed by slot, in breadth-first order after an update
+	private int[] nodeAt;
+	private int[] parentSlot;
+	private float[] local;
+	private float[] world;
+	private boolean[] dirty;
+	private int[] versions;
+	private int slotCount;
+	private boolean orderDirty;
+	private int version;
+
+	//Swapped with the slot arrays when they are reordered
+	private float[] spareLocal;
+	private float[] spareWorld;
+	private boolean[] spareDirty;
+	private int[] spareVersions;
+	private int[] queue;
+
+	public SceneGraph() {
+		this(16);
+	}
+
+	/**
+	 * @param initialCapacity Number of nodes to allocate room for
+	 */
+	public SceneGraph(int initialCapacity) {
+		int capacity = Math.max(initialCapacity, 1);
+		slotOf = new int[capacity];
+		parent = new int[capacity];
+		firstChild = new int[capacity];
+		nextSibling = new int[capacity];
+		nodeAt = new int[capacity];
+		parentSlot = new int[capacity];
+		local = new float[capacity * TRS_FLOATS];
+		world = new float[capacity * 16];
+		dirty = new boolean[capacity];
+		versions = new int[capacity];
+		spareLocal = new float[capacity * TRS_FLOATS];
+		spareWorld = new float[capacity * 16];
+		spareDirty = new boolean[capacity];
+		spareVersions = new int[capacity];
+		queue = new int[capacity];
+		linkFreeNodes(0, capacity);
+	}
+
+	private void linkFreeNodes(int start, int end) {
+		for(int i = start; i < end - 1; i++) {
+			nextSibling[i] = i + 1;
+			slotOf[i] = NULL_NODE;
+		}
+		nextSibling[end - 1] = freeList;
+		slotOf[end - 1] = NULL_NODE;
+		freeList = start;
+	}
+
+	private void grow() {
+		int oldCapacity = slotOf.length;
+		int capacity = oldCapacity * 2;
+		slotOf = Arrays.copyOf(slotOf, capacity);
+		parent = Arrays.copyOf(parent, capacity);
+		firstChild = Arrays.copyOf(firstChild, capacity);
+		nextSibling = Arrays.copyOf(nextSibling, capacity);
+		nodeAt = Arrays.copyOf(nodeAt, capacity);
+		parentSlot = Arrays.copyOf(parentSlot, capacity);
+		local = Arrays.copyOf(local, capacity * TRS_FLOATS);
+		world = Arrays.copyOf(world, capacity * 16);
+		dirty = Arrays.copyOf(dirty, capacity);
+		versions = Arrays.copyOf(versions, capacity);
+		spareLocal = new float[capacity * TRS_FLOATS];
+		spareWorld = new float[capacity * 16];
+		spareDirty = new boolean[capacity];
+		spareVersions = new int[capacity];
+		queue = new int[capacity];
+		linkFreeNodes(oldCapacity, capacity);
+	}
+
+	private int checkNode(int node) {
+		if(node < 0 || node >= slotOf.length || slotOf[node] == NULL_NODE) {
+			throw new IllegalArgumentException("Invalid node " + node);
+		}
+		return slotOf[node];
+	}
+
+	/**
+	 * Adds a node with an identity local transform
+	 * @param parentNode The parent of the new node, or NULL_NODE to add a root
+	 * @return The id of the new node
+	 */
+	public int createNode(int parentNode) {
+		if(parentNode != NULL_NODE) {
+			checkNode(parentNode);
+		}
+		if(slotCount == nodeAt.length) {
+			if(nodeCount < slotCount) {
+				//Destroyed nodes left holes, close them before growing
+				rebuildOrder();
+			} else {
+				grow();
+			}
+		}
+		int node = freeList;
+		freeList = nextSibling[node];
+		int slot = slotCount++;
+		slotOf[node] = slot;
+		nodeAt[slot] = node;
+		parentSlot[slot] = parentNode == NULL_NODE ? NULL_NODE : slotOf[parentNode];
+		firstChild[node] = NULL_NODE;
+		link(node, parentNode);
+
+		int l = slot * TRS_FLOATS;
+		Arrays.fill(local, l, l + TRS_FLOATS, 0);
+		local[l + 6] = 1;
+		local[l + 7] = local[l + 8] = local[l + 9] = 1;
+		dirty[slot] = true;
+		versions[slot] = 0;
+		nodeCount++;
+		orderDirty = true;
+		return node;
+	}
+
+	/**
+	 * Removes a node and all of its descendants from the graph
+	 * @param node Node to remove
+	 */
+	public void destroyNode(int node) {
+		checkNode(node);
+		unlink(node);
+		int[] queue = this.queue;
+		int tail = 0;
+		queue[tail++] = node;
+		for(int head = 0; head < tail; head++) {
+			for(int child = firstChild[queue[head]]; child != NULL_NODE; child = nextSibling[child]) {
+				queue[tail++] = child;
+			}
+		}
+		for(int i = 0; i < tail; i++) {
+			int n = queue[i];
+			nodeAt[slotOf[n]] = NULL_NODE;
+			slotOf[n] = NULL_NODE;
+			nextSibling[n] = freeList;
+			freeList = n;
+		}
+		nodeCount -= tail;
+		orderDirty = true;
+	}
+
+	/**
+	 * Moves a node and its descendants under another parent. The local transform of the node is kept,
+	 * so its world transform changes with the parent
+	 * @param node Node to move
+	 * @param newParent The new parent, or NULL_NODE to make node a root
+	 */
+	public void setParent(int node, int newParent) {
+		int slot = checkNode(node);
+		for(int p = newParent; p != NULL_NODE; p = parent[p]) {
+			checkNode(p);
+			if(p == node) {
+				throw new IllegalArgumentException("Node " + node + " can not be moved under its own descendant " + newParent);
+			}
+		}
+		unlink(node);
+		link(node, newParent);
+		dirty[slot] = true;
+		orderDirty = true;
+	}
+
+	private void link(int node, int parentNode) {
+		parent[node] = parentNode;
+		if(parentNode == NULL_NODE) {
+			nextSibling[node] = firstRoot;
+			firstRoot = node;
+		} else {
+			nextSibling[node] = firstChild[parentNode];
+			firstChild[parentNode] = node;
+		}
+	}
+
+	private void unlink(int node) {
+		int parentNode = parent[node];
+		int first = parentNode == NULL_NODE ? firstRoot : firstChild[parentNode];
+		if(first == node) {
+			if(parentNode == NULL_NODE) {
+				firstRoot = nextSibling[node];
+			} else {
+				firstChild[parentNode] = nextSibling[node];
+			}
+			return;
+		}
+		int prev = first;
+		while(nextSibling[prev] != node) {
+			prev = nextSibling[prev];
+		}
+		nextSibling[prev] = nextSibling[node];
+	}
+
+	/**
+	 * Sorts the slot arrays into breadth-first order, closing any holes left by destroyed nodes
+	 */
+	private void rebuildOrder() {
+		int[] queue = this.queue;
+		int tail = 0;
+		for(int root = firstRoot; root != NULL_NODE; root = nextSibling[root]) {
+			queue[tail++] = root;
+		}
+		for(int head = 0; head < tail; head++) {
+			for(int child = firstChild[queue[head]]; child != NULL_NODE; child = nextSibling[child]) {
+				queue[tail++] = child;
+			}
+		}
+
+		float[] newLocal = spareLocal;
+		float[] newWorld = spareWorld;
+		boolean[] newDirty = spareDirty;
+		int[] newVersions = spareVersions;
+		for(int s = 0; s < tail; s++) {
+			int old = slotOf[queue[s]];
+			System.arraycopy(local, old * TRS_FLOATS, newLocal, s * TRS_FLOATS, TRS_FLOATS);
+			System.arraycopy(world, old * 16, newWorld, s * 16, 16);
+			newDirty[s] = dirty[old];
+			newVersions[s] = versions[old];
+		}
+		spareLocal = local;
+		spareWorld = world;
+		spareDirty = dirty;
+		spareVersions = versions;
+		local = newLocal;
+		world = newWorld;
+		dirty = newDirty;
+		versions = newVersions;
+
+		for(int s = 0; s < tail; s++) {
+			int node = queue[s];
+			slotOf[node] = s;
+			nodeAt[s] = node;
+		}
+		for(int s = 0; s < tail; s++) {
+			int p = parent[queue[s]];
+			parentSlot[s] = p == NULL_NODE ? NULL_NODE : slotOf[p];
+		}
+		slotCount = tail;
+		orderDirty = false;
+	}
+
+	/**
+	 * Recomputes the world matrix of every dirty node and its descendants, in one pass over the nodes.
+	 * <br>World matrices and versions are only current after calling this
+	 * @return The number of world matrices recomputed
+	 */
+	public int update() {
+		if(orderDirty) {
+			rebuildOrder();
+		}
+		int n = slotCount;
+		int[] parentSlot = this.parentSlot;
+		float[] local = this.local;
+		float[] world = this.world;
+		boolean[] dirty = this.dirty;
+		int[] versions = this.versions;
+		int next = version + 1;
+		int updated = 0;
+		for(int s = 0; s < n; s++) {
+			int p = parentSlot[s];
+			if(!dirty[s]) {
+				if(p == NULL_NODE || !dirty[p]) {
+					continue;
+				}
+				dirty[s] = true;
+			}
+			int l = s * TRS_FLOATS;
+			int w = s * 16;
+			Mat4.makeTRS(local[l], local[l + 1], local[l + 2],
+					local[l + 3], local[l + 4], local[l + 5], local[l + 6],
+					local[l + 7], local[l + 8], local[l + 9], world, w);
+			if(p != NULL_NODE) {
+				Mat4.mulAffine(world, p * 16, world, w, world, w);
+			}
+			versions[s] = next;
+			updated++;
+		}
+		if(updated != 0) {
+			Arrays.fill(dirty, 0, n, false);
+			version = next;
+		}
+		return updated;
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * @return The parent of node, or NULL_NODE if it is a root
+	 */
+	public int getParent(int node) {
+		checkNode(node);
+		return parent[node];
+	}
+
+	/**
+	 * @return The version of the last {@link #update()} which recomputed any world matrix
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return The version of the last {@link #update()} which recomputed the world matrix of node
+	 */
+	public int getVersion(int node) {
+		return versions[checkNode(node)];
+	}
+
+	public SceneGraph setTranslation(int node, float x, float y, float z) {
+		int slot = checkNode(node);
+		int l = slot * TRS_FLOATS;
+		local[l] = x;
+		local[l + 1] = y;
+		local[l + 2] = z;
+		dirty[slot] = true;
+		return this;
+	}
+
+	public SceneGraph setTranslation(int node, Vec3 translation) {
+		return setTranslation(node, translation.getX(), translation.getY(), translation.getZ());
+	}
+
+	/**
+	 * Sets the local rotation of a node to a normalized quaternion
+	 */
+	public SceneGraph setRotation(int node, float x, float y, float z, float w) {
+		int slot = checkNode(node);
+		int l = slot * TRS_FLOATS + 3;
+		local[l] = x;
+		local[l + 1] = y;
+		local[l + 2] = z;
+		local[l + 3] = w;
+		dirty[slot] = true;
+		return this;
+	}
+
+	public SceneGraph setRotation(int node, Quat rotation) {
+		return setRotation(node, rotation.getX(), rotation.getY(), rotation.getZ(), rotation.getW());
+	}
+
+	public SceneGraph setScale(int node, float x, float y, float z) {
+		int slot = checkNode(node);
+		int l = slot * TRS_FLOATS + 7;
+		local[l] = x;
+		local[l + 1] = y;
+		local[l + 2] = z;
+		dirty[slot] = true;
+		return this;
+	}
+
+	public SceneGraph setScale(int node, Vec3 scale) {
+		return setScale(node, scale.getX(), scale.getY(), scale.getZ());
+	}
+
+	public SceneGraph setLocal(int node, Transform transform) {
+		int slot = checkNode(node);
+		transform.storeTRS(local, slot * TRS_FLOATS);
+		dirty[slot] = true;
+		return this;
+	}
+
+	/**
+	 * @return The transform of node relative to its parent
+	 */
+	public Transform getLocal(int node) {
+		return new Transform(local, checkNode(node) * TRS_FLOATS);
+	}
+
+	/**
+	 * Loads the world matrix of a node as of the last {@link #update()}
+	 * @param node Node to get the matrix of
+	 * @param dest Matrix to store the result in
+	 * @return dest
+	 */
+	public Mat4 getWorldMatrix(int node, Mat4 dest) {
+		return Mat4.load(world, checkNode(node) * 16, dest);
+	}
+
+	/**
+	 * @return The translation part of the world matrix of node as of the last {@link #update()}
+	 */
+	public Vec3 getWorldPosition(int node) {
+		int w = checkNode(node) * 16;
+		return new Vec3(world[w + 12], world[w + 13], world[w + 14]);
+	}
+
+	/**
+	 * Stores the world matrix of a node as of the last {@link #update()} in the float buffer in column-major order
+	 * @param node Node to store the matrix of
+	 * @param dest Buffer for data storage
+	 * @return this
+	 */
+	public SceneGraph storeWorldMatrix(int node, FloatBuffer dest) {
+		dest.put(world, checkNode(node) * 16, 16);
+		return this;
+	}
+
+}
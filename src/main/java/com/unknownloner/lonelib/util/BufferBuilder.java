@@ -0,0 +1,144 @@
+package com.unknownloner.lonelib.util;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Base of the growable direct buffer builders. The builder writes into a direct buffer from the shared
+ * {@link DirectBufferPool}, and moves to one twice the size when it runs out of room, so adding n elements costs
+ * O(n) copying in total.
+ * <br>Since one very large mesh would otherwise keep its buffer forever, {@link #reset()} keeps track of the most
+ * elements used over the last {@value #SHRINK_WINDOW} resets, and swaps to a smaller buffer when the current one
+ * is more than {@value #SHRINK_FACTOR} times larger than that.
+ */
+public abstract class BufferBuilder {
+
+	/**
+	 * Smallest capacity in bytes
+	 */
+	private static final int MIN_BYTES = 256;
+	/**
+	 * Number of resets the peak size is measured over
+	 */
+	protected static final int SHRINK_WINDOW = 32;
+	/**
+	 * How many times larger than the peak size the buffer may be before it is shrunk
+	 */
+	protected static final int SHRINK_FACTOR = 4;
+
+	private final int elemSize;
+	private ByteBuffer bytes;
+	private int peakBytes;
+	private int resets;
+	/**
+	 * Number of elements when the buffer was last flipped, since it was last reset
+	 */
+	private int flipped;
+
+	/**
+	 * @param elemSize Size in bytes of the elements of the typed buffer
+	 * @param initialCapacity Initial number of elements
+	 */
+	protected BufferBuilder(int elemSize, int initialCapacity) {
+		if(initialCapacity < 0) {
+			throw new IllegalArgumentException("Capacity must not be negative: " + initialCapacity);
+		}
+		this.elemSize = elemSize;
+		allocate(Math.max(initialCapacity * elemSize, MIN_BYTES));
+	}
+
+	/**
+	 * @return The typed buffer being written to
+	 */
+	protected abstract Buffer buffer();
+
+	/**
+	 * Makes the typed buffer being written to a view of bytes
+	 */
+	protected abstract void setBuffer(ByteBuffer bytes);
+
+	private void allocate(int size) {
+		bytes = BufferUtil.acquireByteBuffer(size);
+		//Pooled buffers are rounded up to a size class, so use all of it
+		bytes.limit(bytes.capacity() - bytes.capacity() % elemSize);
+		setBuffer(bytes);
+	}
+
+	/**
+	 * Makes room for n more elements
+	 */
+	protected final void ensureRemaining(int n) {
+		Buffer buffer = buffer();
+		if(buffer.remaining() < n) {
+			grow(buffer.position() + n);
+		}
+	}
+
+	private void grow(int minElems) {
+		if(minElems > Integer.MAX_VALUE / elemSize) {
+			throw new OutOfMemoryError("Buffer builder can not hold " + minElems + " elements");
+		}
+		int used = buffer().position() * elemSize;
+		ByteBuffer old = bytes;
+		long doubled = (long)bytes.capacity() * 2;
+		allocate((int)Math.min(Math.max(doubled, (long)minElems * elemSize), Integer.MAX_VALUE - 8));
+		ByteBuffer src = old.duplicate();
+		src.position(0).limit(used);
+		bytes.put(src);
+		buffer().position(used / elemSize);
+		BufferUtil.release(old);
+	}
+
+	/**
+	 * @return Number of elements written
+	 */
+	public int size() {
+		return buffer().position();
+	}
+
+	/**
+	 * @return Number of elements the builder has room for before it grows
+	 */
+	public int capacity() {
+		return buffer().capacity();
+	}
+
+	/**
+	 * Prepares the buffer for reading, with a position of 0 and a limit of the number of elements written.
+	 * Nothing may be written after this until {@link #reset()}
+	 */
+	protected final void flipBuffer() {
+		flipped = buffer().position();
+		buffer().flip();
+	}
+
+	/**
+	 * Empties the builder to write a new set of elements, shrinking it if it has been much larger than needed
+	 */
+	public void reset() {
+		int used = Math.max(flipped, buffer().position()) * elemSize;
+		flipped = 0;
+		peakBytes = Math.max(peakBytes, used);
+		if(++resets >= SHRINK_WINDOW) {
+			int target = Math.max(peakBytes * 2, MIN_BYTES);
+			if(bytes.capacity() > Math.max((long)peakBytes * SHRINK_FACTOR, target)) {
+				BufferUtil.release(bytes);
+				allocate(target);
+			}
+			resets = 0;
+			peakBytes = 0;
+		}
+		buffer().clear();
+	}
+
+	/**
+	 * Gives the memory of the builder back to the pool. The builder must not be used afterwards
+	 */
+	public void free() {
+		if(bytes != null) {
+			BufferUtil.release(bytes);
+			bytes = null;
+		}
+	}
+
+}
@@ -1,8 +1,12 @@
 package com.unknownloner.lonelib.util;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.nio.Buffer;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.CharBuffer;
@@ -11,35 +15,80 @@ import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.nio.ShortBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class BufferUtil {
 	
+	private static volatile boolean pooling;
+	
+	/**
+	 * Sets whether {@link #createByteBuffer(int)} and {@link #wrap(byte[])} get their buffers from the shared {@link DirectBufferPool}.
+	 * Pooled buffers are not zeroed, and only go back to the pool if passed to {@link #release(ByteBuffer)}.
+	 * <br>Typed buffers are always allocated at their exact size, since a view can not be released to the pool
+	 */
+	public static void setPooling(boolean pooling) {
+		BufferUtil.pooling = pooling;
+	}
+	
+	public static boolean isPooling() {
+		return pooling;
+	}
+	
 	public static ByteBuffer createByteBuffer(int size) {
-		return ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+		if(pooling)
+			return DirectBufferPool.getShared().acquire(size);
+		return allocateByteBuffer(size);
+	}
+	
+	/**
+	 * @return A new direct buffer in native order, never from the pool
+	 */
+	private static ByteBuffer allocateByteBuffer(int size) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+		DirectBufferTracker.track(buffer);
+		return buffer;
+	}
+	
+	/**
+	 * Gets a temporary buffer from the shared {@link DirectBufferPool}, whether or not pooling is on
+	 * @param size Number of bytes needed
+	 * @return A direct buffer in native order with a limit of size. The contents are not zeroed
+	 */
+	public static ByteBuffer acquireByteBuffer(int size) {
+		return DirectBufferPool.getShared().acquire(size);
+	}
+	
+	/**
+	 * Gives a buffer from {@link #acquireByteBuffer(int)}, or from {@link #createByteBuffer(int)} while pooling, back to the shared pool
+	 * @param buffer Buffer to release. It must not be used afterwards
+	 */
+	public static void release(ByteBuffer buffer) {
+		DirectBufferPool.getShared().release(buffer);
 	}
 	
 	public static ShortBuffer createShortBuffer(int size) {
-		return createByteBuffer(size * 2).asShortBuffer();
+		return allocateByteBuffer(size * 2).asShortBuffer();
 	}
 	
 	public static CharBuffer createCharBuffer(int size) {
-		return createByteBuffer(size * 2).asCharBuffer();
+		return allocateByteBuffer(size * 2).asCharBuffer();
 	}
 	
 	public static IntBuffer createIntBuffer(int size) {
-		return createByteBuffer(size * 4).asIntBuffer();
+		return allocateByteBuffer(size * 4).asIntBuffer();
 	}
 	
 	public static FloatBuffer createFloatBuffer(int size) {
-		return createByteBuffer(size * 4).asFloatBuffer();
+		return allocateByteBuffer(size * 4).asFloatBuffer();
 	}
 	
 	public static LongBuffer createLongBuffer(int size) {
-		return createByteBuffer(size * 8).asLongBuffer();
+		return allocateByteBuffer(size * 8).asLongBuffer();
 	}
 	
 	public static DoubleBuffer createDoubleBuffer(int size) {
-		return createByteBuffer(size * 8).asDoubleBuffer();
+		return allocateByteBuffer(size * 8).asDoubleBuffer();
 	}
 	
 	public static ByteBuffer wrap(byte[] bytes) {
@@ -88,54 +137,187 @@ public class BufferUtil {
 		else return null;
 	}
 	
+	/**
+	 * Unsafe.invokeCleaner(ByteBuffer) bound to the Unsafe instance, on Java 9 and later
+	 */
+	private static MethodHandle invokeCleaner;
+	/**
+	 * DirectBuffer.cleaner() and Cleaner.clean(), on Java 8 and earlier
+	 */
 	private static Method getBufferCleaner;
 	private static Method cleanBuffer;
-	private static Class<?> directBufferClass;
+	/**
+	 * DirectBuffer.attachment(), which every direct buffer implements to return the buffer a view or slice was made from.
+	 * Only accessible where the JVM exports sun.nio.ch
+	 */
+	private static Method attachment;
+	/**
+	 * Otherwise Unsafe.objectFieldOffset(Field) and Unsafe.getObject(Object, long) bound to the Unsafe instance, to read
+	 * the att field behind attachment(), which each direct buffer class declares for itself.
+	 * Unlike reflection this does not need java.nio to be opened
+	 */
+	private static MethodHandle objectFieldOffset;
+	private static MethodHandle getObject;
+	private static final Map<Class<?>, Long> attachmentOffsets = new ConcurrentHashMap<Class<?>, Long>();
 	static {
+		ByteBuffer directBuffer = ByteBuffer.allocateDirect(1);
+		Object unsafe = null;
+		Class<?> unsafeClass = null;
+		try {
+			unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			unsafe = theUnsafe.get(null);
+		} catch (Exception e) {
+		}
+		try {
+			invokeCleaner = MethodHandles.lookup()
+					.findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+					.bindTo(unsafe);
+		} catch (Exception e) {
+			//Before Java 9, use the cleaner of the buffer directly
+			try {
+				Method getCleaner = directBuffer.getClass().getMethod("cleaner");
+				getCleaner.setAccessible(true);
+				Method clean = getCleaner.invoke(directBuffer).getClass().getMethod("clean");
+				clean.setAccessible(true);
+				getBufferCleaner = getCleaner;
+				cleanBuffer = clean;
+			} catch (Exception e2) {
+				System.err.println("Direct buffers can not be freed on this JVM, they will wait for garbage collection");
+			}
+		}
+		Buffer view = directBuffer.asIntBuffer();
 		try {
-			Buffer directBuffer = ByteBuffer.allocateDirect(1);
-			Class<?> bufferClass = directBuffer.getClass();
-			for(Class<?> clazz : bufferClass.getInterfaces()) {
-				if(clazz.getSimpleName().equals("DirectBuffer")) {
-					Method getCleaner = clazz.getMethod("cleaner");
-					if(getCleaner != null) {
-						directBufferClass = clazz;
-						getCleaner.setAccessible(true);
-						getBufferCleaner = getCleaner;
-						cleanBuffer = getCleaner.invoke(directBuffer).getClass().getMethod("clean");
-						cleanBuffer.setAccessible(true);
-						cleanBuffer.invoke(getCleaner.invoke(directBuffer));
-						break;
-					}
+			Method getAttachment = Class.forName("sun.nio.ch.DirectBuffer").getMethod("attachment");
+			if(getAttachment.invoke(view) == directBuffer) {
+				attachment = getAttachment;
+			}
+		} catch (Throwable e) {
+			//Not allowed on Java 9 and later without --add-exports java.base/sun.nio.ch=ALL-UNNAMED
+		}
+		if(attachment == null && unsafe != null) {
+			try {
+				objectFieldOffset = MethodHandles.lookup()
+						.findVirtual(unsafeClass, "objectFieldOffset", MethodType.methodType(long.class, Field.class))
+						.bindTo(unsafe);
+				getObject = MethodHandles.lookup()
+						.findVirtual(unsafeClass, "getObject", MethodType.methodType(Object.class, Object.class, long.class))
+						.bindTo(unsafe);
+				if(getAttachment(view) != directBuffer) {
+					objectFieldOffset = null;
+					getObject = null;
 				}
+			} catch (Throwable e) {
+				objectFieldOffset = null;
+				getObject = null;
 			}
-		} catch (Exception e) {
-			e.printStackTrace();
 		}
 	}
-	public static void cleanBuffer(Buffer buffer) {
-		Class<?> clazz = buffer.getClass();
-		if(directBufferClass.isAssignableFrom(clazz)) {
-			try {
-				Object cleaner = getBufferCleaner.invoke(buffer);
+	
+	/**
+	 * @return The offset of the att field of a direct buffer class
+	 */
+	private static long getAttachmentOffset(Class<?> type) throws Throwable {
+		Long offset = attachmentOffsets.get(type);
+		if(offset == null) {
+			Field field = null;
+			for(Class<?> c = type; field == null; c = c.getSuperclass()) {
+				if(c == null) {
+					throw new NoSuchFieldException("No att field in " + type.getName());
+				}
+				try {
+					field = c.getDeclaredField("att");
+				} catch (NoSuchFieldException e) {
+				}
+			}
+			offset = (Long)objectFieldOffset.invoke(field);
+			attachmentOffsets.put(type, offset);
+		}
+		return offset;
+	}
+	
+	/**
+	 * @return Whether the buffer a direct view or slice was made from can be found
+	 */
+	private static boolean canGetAttachment() {
+		return attachment != null || getObject != null;
+	}
+	
+	/**
+	 * @return The buffer a direct buffer was made from, or null if it was allocated itself
+	 */
+	private static Object getAttachment(Buffer buffer) throws Throwable {
+		if(attachment != null) {
+			return attachment.invoke(buffer);
+		}
+		return getObject.invoke((Object)buffer, getAttachmentOffset(buffer.getClass()));
+	}
+	
+	/**
+	 * Frees the memory of a direct buffer now, instead of when it is garbage collected.
+	 * <br>The buffer, and every view or slice of it, must not be used afterwards: the memory may be reused,
+	 * and accessing it can crash the JVM. Freeing a buffer more than once frees nothing the second time,
+	 * but still returns true, since the JVM does not say whether a buffer was already freed.
+	 * <br>Views and slices are traced back to the ByteBuffer they were made from, which needs sun.misc.Unsafe
+	 * or sun.nio.ch to be available
+	 * @param buffer Buffer to free. Heap buffers are ignored
+	 * @return Whether the memory was freed, or had been freed before
+	 */
+	public static boolean cleanBuffer(Buffer buffer) {
+		if(!buffer.isDirect()) {
+			return false;
+		}
+		ByteBuffer root = getRoot(buffer);
+		if(root == null) {
+			return false;
+		}
+		try {
+			if(invokeCleaner != null) {
+				invokeCleaner.invoke(root);
+			} else if(getBufferCleaner != null) {
+				Object cleaner = getBufferCleaner.invoke(root);
 				if(cleaner == null) {
-					Field byteBuffer;
-					byteBuffer = clazz.getDeclaredField("att");
-					if(!byteBuffer.isAccessible())
-						byteBuffer.setAccessible(true);
-					cleaner = getBufferCleaner.invoke(byteBuffer.get(buffer));
+					return false;
 				}
 				cleanBuffer.invoke(cleaner);
-			} catch (Exception e) {
-				e.printStackTrace();
+			} else {
+				return false;
+			}
+		} catch (IllegalArgumentException e) {
+			//A slice or duplicate, which invokeCleaner refuses when its owner could not be found
+			return false;
+		} catch (Throwable e) {
+			e.printStackTrace();
+			return false;
+		}
+		DirectBufferTracker.untrack(root);
+		return true;
+	}
+	
+	/**
+	 * @return The ByteBuffer a direct buffer was made from, or the buffer itself if it is a ByteBuffer
+	 * and attachments can not be read. null if a view can not be traced back
+	 */
+	private static ByteBuffer getRoot(Buffer buffer) {
+		Buffer owner = buffer;
+		if(canGetAttachment()) {
+			try {
+				Object att;
+				while((att = getAttachment(owner)) instanceof Buffer) {
+					owner = (Buffer)att;
+				}
+			} catch (Throwable e) {
+				return null;
 			}
 		}
+		return owner instanceof ByteBuffer ? (ByteBuffer)owner : null;
 	}
 	
 	/**
 	 * Returns the buffer's data as a ByteBuffer
 	 * @param buffer data
-	 * @return a ByteBuffer containing the data in buffer. The limit will be the capacity and the position will be 0
+	 * @return a ByteBuffer containing the data in buffer. The limit will be the capacity of buffer in bytes and the position will be 0
 	 */
 	public static ByteBuffer asByteBuffer(Buffer buffer) {
 		//Return a ByteBuffer if buffer is already a ByteBuffer
@@ -144,22 +326,21 @@ public class BufferUtil {
 		
 		//If the buffer is direct, it probably has a DirectByteBuffer holding the data
 		//This will get that buffer and return it
-		if(buffer.isDirect()) {
+		if(buffer.isDirect() && canGetAttachment()) {
 			try {
-				Method getBuffer = buffer.getClass().getMethod("attachment");
-				if(!getBuffer.isAccessible())
-					getBuffer.setAccessible(true);
-				ByteBuffer bBuffer = (ByteBuffer)getBuffer.invoke(buffer);
-				return bBuffer;
-			} catch (Exception e) {
+				Object att = getAttachment(buffer);
+				if(att instanceof ByteBuffer)
+					return (ByteBuffer)att;
+			} catch (Throwable e) {
 			}
 		}
 		
 		//If the buffer is not direct or we can't get the DirectByteBuffer holding the data
-		//We will create a new buffer and copy data into it
-		//The new buffer will be direct if the original buffer was direct
-		//This code is rather bulky, but we have to check for every type of buffer there is
-		//So that's what we do
+		//We will create a new buffer and bulk copy the data into it
+		//The new buffer will be direct if the original buffer was direct, and have the same byte order
+		ByteOrder order = getOrder(buffer);
+		if(order == null)
+			return null;
 		int oldPos = buffer.position();
 		int oldLim = buffer.limit();
 		buffer.clear();
@@ -168,38 +349,117 @@ public class BufferUtil {
 			bBuffer = createByteBuffer(buffer.capacity() * getElemByteSize(buffer));
 		else
 			bBuffer = ByteBuffer.allocate(buffer.capacity() * getElemByteSize(buffer));
-		if(buffer instanceof ShortBuffer) {
-			ShortBuffer sBuffer = (ShortBuffer)buffer;
-			for(int i = sBuffer.limit(); i > 0; i--)
-				bBuffer.putShort(sBuffer.get());
-		} else if(buffer instanceof CharBuffer) {
-			CharBuffer cBuffer = (CharBuffer)buffer;
-			for(int i = cBuffer.limit(); i > 0; i--)
-				bBuffer.putChar(cBuffer.get());
-		} else if(buffer instanceof IntBuffer) {
-			IntBuffer iBuffer = (IntBuffer)buffer;
-			for(int i = iBuffer.limit(); i > 0; i--)
-				bBuffer.putInt(iBuffer.get());
-		} else if(buffer instanceof FloatBuffer) {
-			FloatBuffer fBuffer = (FloatBuffer)buffer;
-			for(int i = fBuffer.limit(); i > 0; i--)
-				bBuffer.putFloat(fBuffer.get());
-		} else if(buffer instanceof LongBuffer) {
-			LongBuffer lBuffer = (LongBuffer)buffer;
-			for(int i = lBuffer.limit(); i > 0; i--)
-				bBuffer.putLong(lBuffer.get());
-		} else if(buffer instanceof DoubleBuffer) {
-			DoubleBuffer dBuffer = (DoubleBuffer)buffer;
-			for(int i = dBuffer.limit(); i > 0; i--)
-				bBuffer.putDouble(dBuffer.get());
-		} else {
-			bBuffer = null;
-		}
+		bBuffer.order(order);
+		copy(buffer, bBuffer);
+		//A pooled buffer may be larger than needed, so the limit is the end of the copy rather than the capacity
+		bBuffer.flip();
 		buffer.position(oldPos);
 		buffer.limit(oldLim);
 		return bBuffer;
 	}
 	
+	/**
+	 * Copies the remaining elements of src into dest at its position, in the byte order of dest.
+	 * <br>The copy is done in bulk, which for direct and array backed buffers is a memory copy rather than
+	 * a loop over the elements. The position of src is not changed, and the position of dest is moved past the copied bytes
+	 * @param src Buffer of any element type to copy from
+	 * @param dest Buffer to copy into
+	 */
+	public static void copy(Buffer src, ByteBuffer dest) {
+		int elemSize = getElemByteSize(src);
+		if(elemSize == 0)
+			throw new IllegalArgumentException("Unknown buffer type " + src.getClass().getName());
+		int bytes = src.remaining() * elemSize;
+		if(dest.remaining() < bytes)
+			throw new BufferOverflowException();
+		//Duplicates reset the byte order, so it has to be set again before making a typed view
+		ByteBuffer target = dest.duplicate().order(dest.order());
+		if(src instanceof ByteBuffer)
+			target.put(((ByteBuffer)src).duplicate());
+		else if(src instanceof ShortBuffer)
+			target.asShortBuffer().put(((ShortBuffer)src).duplicate());
+		else if(src instanceof CharBuffer)
+			target.asCharBuffer().put(((CharBuffer)src).duplicate());
+		else if(src instanceof IntBuffer)
+			target.asIntBuffer().put(((IntBuffer)src).duplicate());
+		else if(src instanceof FloatBuffer)
+			target.asFloatBuffer().put(((FloatBuffer)src).duplicate());
+		else if(src instanceof LongBuffer)
+			target.asLongBuffer().put(((LongBuffer)src).duplicate());
+		else
+			target.asDoubleBuffer().put(((DoubleBuffer)src).duplicate());
+		dest.position(dest.position() + bytes);
+	}
+	
+	/**
+	 * @return A view of the remaining bytes as shorts, sharing their memory and byte order.
+	 * Nothing is copied, and unlike asShortBuffer() on a duplicate or slice, the view is not reset to big endian
+	 */
+	public static ShortBuffer shortView(ByteBuffer bytes) {
+		return bytes.duplicate().order(bytes.order()).asShortBuffer();
+	}
+	
+	/**
+	 * @see #shortView(ByteBuffer)
+	 */
+	public static CharBuffer charView(ByteBuffer bytes) {
+		return bytes.duplicate().order(bytes.order()).asCharBuffer();
+	}
+	
+	/**
+	 * @see #shortView(ByteBuffer)
+	 */
+	public static IntBuffer intView(ByteBuffer bytes) {
+		return bytes.duplicate().order(bytes.order()).asIntBuffer();
+	}
+	
+	/**
+	 * @see #shortView(ByteBuffer)
+	 */
+	public static FloatBuffer floatView(ByteBuffer bytes) {
+		return bytes.duplicate().order(bytes.order()).asFloatBuffer();
+	}
+	
+	/**
+	 * @see #shortView(ByteBuffer)
+	 */
+	public static LongBuffer longView(ByteBuffer bytes) {
+		return bytes.duplicate().order(bytes.order()).asLongBuffer();
+	}
+	
+	/**
+	 * @see #shortView(ByteBuffer)
+	 */
+	public static DoubleBuffer doubleView(ByteBuffer bytes) {
+		return bytes.duplicate().order(bytes.order()).asDoubleBuffer();
+	}
+	
+	/**
+	 * @return The byte order of a buffer, or null if it is not a known buffer type
+	 */
+	public static ByteOrder getOrder(Buffer buffer) {
+		if(buffer instanceof ByteBuffer)
+			return ((ByteBuffer)buffer).order();
+		else if(buffer instanceof ShortBuffer)
+			return ((ShortBuffer)buffer).order();
+		else if(buffer instanceof CharBuffer)
+			return ((CharBuffer)buffer).order();
+		else if(buffer instanceof IntBuffer)
+			return ((IntBuffer)buffer).order();
+		else if(buffer instanceof FloatBuffer)
+			return ((FloatBuffer)buffer).order();
+		else if(buffer instanceof LongBuffer)
+			return ((LongBuffer)buffer).order();
+		else if(buffer instanceof DoubleBuffer)
+			return ((DoubleBuffer)buffer).order();
+		else
+			return null;
+	}
+	
+	/**
+	 * Sets the position and limit of dest to the same byte offsets as those of src, for two buffers of any element type
+	 * over the same memory, such as a ByteBuffer and a typed view of it
+	 */
 	public static void copyPosAndLimit(Buffer src, Buffer dest) {
 		int newPos = src.position() * getElemByteSize(src) / getElemByteSize(dest);
 		int newLim = src.limit() * getElemByteSize(src) / getElemByteSize(dest);
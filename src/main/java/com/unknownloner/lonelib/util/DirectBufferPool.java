@@ -0,0 +1,220 @@
+package com.unknownloner.lonelib.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct ByteBuffers, so buffers which are only needed for a moment do not have to be allocated,
+ * zeroed, and later collected each time.
+ * <br>Buffers are kept in size classes of powers of two from 64 bytes to 64 MB. {@link #acquire(int)} returns a buffer
+ * of the smallest class that fits, and {@link #release(ByteBuffer)} gives it back. Each thread keeps a few small buffers
+ * of its own so acquiring and releasing them does not touch shared state. Larger buffers are kept in a shared pool
+ * up to a limit on the number of bytes held, past which released buffers are freed with {@link BufferUtil#cleanBuffer(java.nio.Buffer)}.
+ * <br>This class is thread safe. A buffer must not be used after it is released, or released twice.
+ */
+public class DirectBufferPool {
+
+	private static final int MIN_SHIFT = 6;
+	private static final int MAX_SHIFT = 26;
+	private static final int CLASSES = MAX_SHIFT - MIN_SHIFT + 1;
+
+	/**
+	 * Largest size class cached per thread, 64 KB
+	 */
+	private static final int LOCAL_MAX_SHIFT = 16;
+	/**
+	 * Number of buffers of each size class cached per thread
+	 */
+	private static final int LOCAL_SLOTS = 4;
+
+	/**
+	 * Retained byte limit of the shared pool
+	 */
+	public static final long DEFAULT_MAX_RETAINED = 64L << 20;
+
+	private static final DirectBufferPool shared = new DirectBufferPool(DEFAULT_MAX_RETAINED);
+
+	private final long maxRetained;
+	private final AtomicLong retained = new AtomicLong();
+	private final ConcurrentLinkedQueue<ByteBuffer>[] pools;
+	private final ThreadLocal<ByteBuffer[][]> localCache = new ThreadLocal<ByteBuffer[][]>() {
+		@Override
+		protected ByteBuffer[][] initialValue() {
+			return new ByteBuffer[LOCAL_MAX_SHIFT - MIN_SHIFT + 1][LOCAL_SLOTS];
+		}
+	};
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * @param maxRetainedBytes Most bytes the shared part of the pool holds on to. Buffers cached by each thread are not counted
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public DirectBufferPool(long maxRetainedBytes) {
+		if(maxRetainedBytes < 0) {
+			throw new IllegalArgumentException("Retained byte limit must not be negative: " + maxRetainedBytes);
+		}
+		this.maxRetained = maxRetainedBytes;
+		pools = new ConcurrentLinkedQueue[CLASSES];
+		for(int i = 0; i < CLASSES; i++) {
+			pools[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+		}
+	}
+
+	/**
+	 * @return The pool used by {@link BufferUtil}
+	 */
+	public static DirectBufferPool getShared() {
+		return shared;
+	}
+
+	/**
+	 * Gets a direct buffer in native byte order with at least size bytes, and a position of 0 and a limit of size.
+	 * <br>Unlike a new buffer, the contents are not zeroed
+	 * @param size Number of bytes needed
+	 * @return A buffer to give back with {@link #release(ByteBuffer)} when done with it
+	 */
+	public ByteBuffer acquire(int size) {
+		if(size < 0) {
+			throw new IllegalArgumentException("Buffer size must not be negative: " + size);
+		}
+		int shift = shiftFor(size);
+		if(shift > MAX_SHIFT) {
+			misses.incrementAndGet();
+			ByteBuffer buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+			DirectBufferTracker.track(buffer);
+			return buffer;
+		}
+		ByteBuffer buffer = null;
+		if(shift <= LOCAL_MAX_SHIFT) {
+			ByteBuffer[] slots = localCache.get()[shift - MIN_SHIFT];
+			for(int i = LOCAL_SLOTS - 1; i >= 0; i--) {
+				if(slots[i] != null) {
+					buffer = slots[i];
+					slots[i] = null;
+					break;
+				}
+			}
+		}
+		if(buffer == null) {
+			buffer = pools[shift - MIN_SHIFT].poll();
+			if(buffer != null) {
+				retained.addAndGet(-buffer.capacity());
+			}
+		}
+		if(buffer == null) {
+			misses.incrementAndGet();
+			buffer = ByteBuffer.allocateDirect(1 << shift);
+		} else {
+			hits.incrementAndGet();
+		}
+		buffer.clear();
+		buffer.limit(size);
+		DirectBufferTracker.track(buffer);
+		return buffer.order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Gives a buffer from {@link #acquire(int)} back to the pool
+	 * @param buffer Buffer to release. It must not be used afterwards
+	 */
+	public void release(ByteBuffer buffer) {
+		if(!buffer.isDirect()) {
+			throw new IllegalArgumentException("Only direct buffers can be released to the pool");
+		}
+		DirectBufferTracker.untrack(buffer);
+		int capacity = buffer.capacity();
+		int shift = Integer.numberOfTrailingZeros(capacity);
+		if(capacity != 1 << shift || shift < MIN_SHIFT || shift > MAX_SHIFT) {
+			//Larger than any size class
+			drop(buffer);
+			return;
+		}
+		if(shift <= LOCAL_MAX_SHIFT) {
+			ByteBuffer[] slots = localCache.get()[shift - MIN_SHIFT];
+			for(int i = 0; i < LOCAL_SLOTS; i++) {
+				if(slots[i] == null) {
+					slots[i] = buffer;
+					return;
+				}
+			}
+		}
+		if(retained.addAndGet(capacity) > maxRetained) {
+			retained.addAndGet(-capacity);
+			drop(buffer);
+			return;
+		}
+		pools[shift - MIN_SHIFT].offer(buffer);
+	}
+
+	/**
+	 * Frees every buffer held by the shared part of the pool
+	 */
+	public void trim() {
+		for(ConcurrentLinkedQueue<ByteBuffer> pool : pools) {
+			ByteBuffer buffer;
+			while((buffer = pool.poll()) != null) {
+				retained.addAndGet(-buffer.capacity());
+				BufferUtil.cleanBuffer(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Frees a buffer the pool will not keep right away, rather than leaving it for the garbage collector
+	 */
+	private void drop(ByteBuffer buffer) {
+		dropped.incrementAndGet();
+		BufferUtil.cleanBuffer(buffer);
+	}
+
+	private static int shiftFor(int size) {
+		if(size <= 1 << MIN_SHIFT) {
+			return MIN_SHIFT;
+		}
+		return 32 - Integer.numberOfLeadingZeros(size - 1);
+	}
+
+	/**
+	 * @return Number of bytes held by the shared part of the pool
+	 */
+	public long getRetainedBytes() {
+		return retained.get();
+	}
+
+	public long getMaxRetainedBytes() {
+		return maxRetained;
+	}
+
+	/**
+	 * @return Number of acquires served by a pooled buffer
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return Number of acquires which had to allocate a new buffer
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return Number of released buffers which were not kept because they were too large or the pool was full
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("DirectBufferPool hits %d misses %d dropped %d retained %d/%d bytes",
+				getHits(), getMisses(), getDropped(), getRetainedBytes(), maxRetained);
+	}
+
+}
@@ -0,0 +1,211 @@
+package com.unknownloner.lonelib.util;
+
+import java.io.PrintStream;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of the direct buffers made by {@link BufferUtil} and {@link DirectBufferPool}, to find buffers which are
+ * never released.
+ * <br>Tracking is off unless turned on with {@link #setEnabled(boolean)} or the system property lonelib.trackBuffers,
+ * since it records a stack trace for every allocation. While on, every buffer which has not been freed with
+ * {@link BufferUtil#cleanBuffer(java.nio.Buffer)} or given back to a pool is live, and can be listed with
+ * {@link #report(PrintStream, long)} along with where it was allocated. Live buffers which the garbage collector
+ * frees are counted by {@link #getCollectedCount()}.
+ */
+public class DirectBufferTracker {
+
+	private static volatile boolean enabled = Boolean.getBoolean("lonelib.trackBuffers");
+
+	private static final ReferenceQueue<ByteBuffer> queue = new ReferenceQueue<ByteBuffer>();
+	/**
+	 * Live allocations by identity hash code of their buffer
+	 */
+	private static final Map<Integer, List<Allocation>> live = new HashMap<Integer, List<Allocation>>();
+	private static long liveBytes;
+	private static int liveCount;
+	private static long collectedBytes;
+	private static int collectedCount;
+
+	private static BufferPoolMXBean directPool;
+	static {
+		for(BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			if(pool.getName().equals("direct")) {
+				directPool = pool;
+			}
+		}
+	}
+
+	public static void setEnabled(boolean enabled) {
+		DirectBufferTracker.enabled = enabled;
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Starts tracking a buffer if tracking is on
+	 * @param buffer A newly allocated or acquired direct buffer
+	 */
+	public static void track(ByteBuffer buffer) {
+		if(!enabled) {
+			return;
+		}
+		Allocation allocation = new Allocation(buffer);
+		synchronized(live) {
+			expunge();
+			List<Allocation> bucket = live.get(allocation.hash);
+			if(bucket == null) {
+				bucket = new ArrayList<Allocation>(1);
+				live.put(allocation.hash, bucket);
+			}
+			bucket.add(allocation);
+			liveBytes += allocation.size;
+			liveCount++;
+		}
+	}
+
+	/**
+	 * Stops tracking a buffer, because it was freed or given back to a pool. Does nothing for untracked buffers
+	 */
+	public static void untrack(ByteBuffer buffer) {
+		Integer hash = System.identityHashCode(buffer);
+		synchronized(live) {
+			expunge();
+			List<Allocation> bucket = live.get(hash);
+			if(bucket == null) {
+				return;
+			}
+			for(int i = 0; i < bucket.size(); i++) {
+				Allocation allocation = bucket.get(i);
+				if(allocation.get() == buffer) {
+					remove(bucket, i);
+					allocation.clear();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes allocations whose buffers were collected. Must hold the lock on live
+	 */
+	private static void expunge() {
+		Allocation allocation;
+		while((allocation = (Allocation)queue.poll()) != null) {
+			List<Allocation> bucket = live.get(allocation.hash);
+			if(bucket != null) {
+				int i = bucket.indexOf(allocation);
+				if(i >= 0) {
+					remove(bucket, i);
+					collectedBytes += allocation.size;
+					collectedCount++;
+				}
+			}
+		}
+	}
+
+	private static void remove(List<Allocation> bucket, int i) {
+		Allocation allocation = bucket.remove(i);
+		if(bucket.isEmpty()) {
+			live.remove(allocation.hash);
+		}
+		liveBytes -= allocation.size;
+		liveCount--;
+	}
+
+	/**
+	 * @return Bytes in tracked buffers which have not been freed
+	 */
+	public static long getLiveBytes() {
+		synchronized(live) {
+			expunge();
+			return liveBytes;
+		}
+	}
+
+	/**
+	 * @return Number of tracked buffers which have not been freed
+	 */
+	public static int getLiveCount() {
+		synchronized(live) {
+			expunge();
+			return liveCount;
+		}
+	}
+
+	/**
+	 * @return Number of tracked buffers which were left for the garbage collector instead of being freed
+	 */
+	public static int getCollectedCount() {
+		synchronized(live) {
+			expunge();
+			return collectedCount;
+		}
+	}
+
+	public static long getCollectedBytes() {
+		synchronized(live) {
+			expunge();
+			return collectedBytes;
+		}
+	}
+
+	/**
+	 * @return Bytes used by every direct buffer in the JVM, tracked or not, or -1 if the JVM does not say
+	 */
+	public static long getJvmDirectBytes() {
+		return directPool == null ? -1 : directPool.getMemoryUsed();
+	}
+
+	/**
+	 * Prints every live tracked buffer with its size, age, and where it was allocated
+	 * @param out Stream to print to
+	 * @param minAgeMillis Buffers younger than this are left out, so buffers in use by the current frame are not reported
+	 * @return Number of buffers reported
+	 */
+	public static int report(PrintStream out, long minAgeMillis) {
+		List<Allocation> old = new ArrayList<Allocation>();
+		long now = System.nanoTime();
+		synchronized(live) {
+			expunge();
+			for(List<Allocation> bucket : live.values()) {
+				for(Allocation allocation : bucket) {
+					if((now - allocation.time) / 1000000 >= minAgeMillis) {
+						old.add(allocation);
+					}
+				}
+			}
+		}
+		for(Allocation allocation : old) {
+			out.println("Direct buffer of " + allocation.size + " bytes live for " + (now - allocation.time) / 1000000 + " ms");
+			allocation.site.printStackTrace(out);
+		}
+		return old.size();
+	}
+
+	private static class Allocation extends WeakReference<ByteBuffer> {
+
+		final int hash;
+		final int size;
+		final long time;
+		final Throwable site;
+
+		Allocation(ByteBuffer buffer) {
+			super(buffer, queue);
+			hash = System.identityHashCode(buffer);
+			size = buffer.capacity();
+			time = System.nanoTime();
+			site = new Throwable("Allocated at");
+		}
+	}
+
+}
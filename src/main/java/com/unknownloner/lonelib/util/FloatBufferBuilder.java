@@ -0,0 +1,80 @@
+package com.unknownloner.lonelib.util;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Builds a direct FloatBuffer of any length, growing as floats are added.
+ * @see BufferBuilder
+ */
+public class FloatBufferBuilder extends BufferBuilder {
+
+	private FloatBuffer buffer;
+
+	public FloatBufferBuilder() {
+		this(0);
+	}
+
+	/**
+	 * @param initialCapacity Number of floats to make room for up front
+	 */
+	public FloatBufferBuilder(int initialCapacity) {
+		super(4, initialCapacity);
+	}
+
+	@Override
+	protected Buffer buffer() {
+		return buffer;
+	}
+
+	@Override
+	protected void setBuffer(ByteBuffer bytes) {
+		buffer = bytes.asFloatBuffer();
+	}
+
+	public FloatBufferBuilder put(float a) {
+		ensureRemaining(1);
+		buffer.put(a);
+		return this;
+	}
+
+	public FloatBufferBuilder put(float a, float b) {
+		ensureRemaining(2);
+		buffer.put(a).put(b);
+		return this;
+	}
+
+	public FloatBufferBuilder put(float a, float b, float c) {
+		ensureRemaining(3);
+		buffer.put(a).put(b).put(c);
+		return this;
+	}
+
+	public FloatBufferBuilder put(float a, float b, float c, float d) {
+		ensureRemaining(4);
+		buffer.put(a).put(b).put(c).put(d);
+		return this;
+	}
+
+	public FloatBufferBuilder put(float[] src) {
+		return put(src, 0, src.length);
+	}
+
+	public FloatBufferBuilder put(float[] src, int offset, int length) {
+		ensureRemaining(length);
+		buffer.put(src, offset, length);
+		return this;
+	}
+
+	/**
+	 * Finishes the buffer for use, for example by {@link com.unknownloner.lonelib.graphics.buffers.VertexBufferObject#bufferData(FloatBuffer, int)}.
+	 * The buffer stays valid until the builder is reset or freed
+	 * @return The buffer, with a position of 0 and a limit of the number of floats added
+	 */
+	public FloatBuffer flip() {
+		flipBuffer();
+		return buffer;
+	}
+
+}
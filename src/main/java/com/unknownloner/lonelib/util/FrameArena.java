@@ -0,0 +1,196 @@
+package com.unknownloner.lonelib.util;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A bump allocator over one large direct buffer, for native buffers which only live until the end of a frame,
+ * such as uniform data, text vertices or texture updates.
+ * <br>Each allocation is a slice of the arena starting at the next aligned offset, so it costs an offset increment
+ * and a slice instead of a new direct buffer. {@link #push()} and {@link #pop()} free everything allocated since the
+ * matching push, and {@link #reset()} frees everything, usually once per frame.
+ * <br>In debug mode freed memory is filled with 0xFF bytes, which read as NaN floats and -1 ints, and every freed slice
+ * gets a limit of 0 so any later access to it throws an exception.
+ * <br>An arena must only be used by one thread. {@link #get()} returns an arena for the calling thread.
+ */
+public class FrameArena {
+
+	/**
+	 * Size of the arenas returned by {@link #get()}
+	 */
+	public static final int DEFAULT_CAPACITY = 4 << 20;
+
+	/**
+	 * Alignment of allocations in bytes, enough for any element type and for SIMD loads
+	 */
+	public static final int DEFAULT_ALIGNMENT = 16;
+
+	private static boolean defaultDebug = Boolean.getBoolean("lonelib.arenaDebug");
+
+	private static final ThreadLocal<FrameArena> arenas = new ThreadLocal<FrameArena>() {
+		@Override
+		protected FrameArena initialValue() {
+			return new FrameArena(DEFAULT_CAPACITY);
+		}
+	};
+
+	private final ByteBuffer memory;
+	private int offset;
+	private int[] marks = new int[8];
+	private int markCount;
+
+	private boolean debug = defaultDebug;
+	/**
+	 * Slices handed out since the arena was last empty, and the offset each starts at. Only kept in debug mode
+	 */
+	private final List<Buffer> slices = new ArrayList<Buffer>();
+	private int[] sliceOffsets = new int[16];
+
+	/**
+	 * @param capacity Size of the arena in bytes
+	 */
+	public FrameArena(int capacity) {
+		memory = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * @return The arena of the calling thread
+	 */
+	public static FrameArena get() {
+		return arenas.get();
+	}
+
+	/**
+	 * Sets whether arenas created from now on start in debug mode. Defaults to the system property lonelib.arenaDebug
+	 */
+	public static void setDefaultDebug(boolean debug) {
+		defaultDebug = debug;
+	}
+
+	/**
+	 * Sets whether freed memory is poisoned and freed slices are invalidated. Should be changed while the arena is empty
+	 */
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+		slices.clear();
+	}
+
+	public boolean isDebug() {
+		return debug;
+	}
+
+	/**
+	 * Allocates a slice of the arena in native byte order, with a position of 0 and a limit and capacity of size
+	 * @param size Number of bytes
+	 * @param alignment Alignment of the slice from the start of the arena, a power of two
+	 * @return The slice. The contents are whatever was last written there
+	 */
+	public ByteBuffer allocate(int size, int alignment) {
+		if(size < 0) {
+			throw new IllegalArgumentException("Allocation size must not be negative: " + size);
+		}
+		if(alignment <= 0 || (alignment & (alignment - 1)) != 0) {
+			throw new IllegalArgumentException("Alignment must be a power of two: " + alignment);
+		}
+		int start = (offset + alignment - 1) & -alignment;
+		if(start > memory.capacity() - size) {
+			throw new IllegalStateException("Frame arena out of space: " + size + " bytes requested, "
+					+ (memory.capacity() - offset) + " of " + memory.capacity() + " left");
+		}
+		offset = start + size;
+		ByteBuffer slice = memory.duplicate();
+		slice.limit(start + size).position(start);
+		return track(slice.slice().order(ByteOrder.nativeOrder()), start);
+	}
+
+	public ByteBuffer allocate(int size) {
+		return allocate(size, DEFAULT_ALIGNMENT);
+	}
+
+	public FloatBuffer allocateFloats(int count) {
+		ByteBuffer bytes = allocate(count * 4, DEFAULT_ALIGNMENT);
+		return debug ? track(bytes.asFloatBuffer(), offset - count * 4) : bytes.asFloatBuffer();
+	}
+
+	public IntBuffer allocateInts(int count) {
+		ByteBuffer bytes = allocate(count * 4, DEFAULT_ALIGNMENT);
+		return debug ? track(bytes.asIntBuffer(), offset - count * 4) : bytes.asIntBuffer();
+	}
+
+	public ShortBuffer allocateShorts(int count) {
+		ByteBuffer bytes = allocate(count * 2, DEFAULT_ALIGNMENT);
+		return debug ? track(bytes.asShortBuffer(), offset - count * 2) : bytes.asShortBuffer();
+	}
+
+	private <T extends Buffer> T track(T slice, int start) {
+		if(debug) {
+			int n = slices.size();
+			if(n == sliceOffsets.length) {
+				sliceOffsets = Arrays.copyOf(sliceOffsets, n * 2);
+			}
+			sliceOffsets[n] = start;
+			slices.add(slice);
+		}
+		return slice;
+	}
+
+	/**
+	 * Remembers the current allocation offset, to free everything allocated after it with {@link #pop()}
+	 */
+	public void push() {
+		if(markCount == marks.length) {
+			marks = Arrays.copyOf(marks, markCount * 2);
+		}
+		marks[markCount++] = offset;
+	}
+
+	/**
+	 * Frees everything allocated since the last {@link #push()}
+	 */
+	public void pop() {
+		if(markCount == 0) {
+			throw new IllegalStateException("pop without a matching push");
+		}
+		free(marks[--markCount]);
+	}
+
+	/**
+	 * Frees everything in the arena and forgets every mark. Call at the end of each frame
+	 */
+	public void reset() {
+		markCount = 0;
+		free(0);
+	}
+
+	private void free(int to) {
+		if(debug) {
+			for(int i = to; i < offset; i++) {
+				memory.put(i, (byte)0xFF);
+			}
+			int n = slices.size();
+			while(n > 0 && sliceOffsets[n - 1] >= to) {
+				slices.remove(--n).limit(0);
+			}
+		}
+		offset = to;
+	}
+
+	/**
+	 * @return Number of bytes in use
+	 */
+	public int getUsed() {
+		return offset;
+	}
+
+	public int getCapacity() {
+		return memory.capacity();
+	}
+
+}
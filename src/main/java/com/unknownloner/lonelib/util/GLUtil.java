@@ -3,6 +3,7 @@ package com.unknownloner.lonelib.util;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 
 import org.lwjgl.LWJGLException;
@@ -75,7 +76,8 @@ public class GLUtil {
 	 */
 	public static BufferedImage takeScreenshot(int x, int y, int width, int height) {
 		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-		IntBuffer rgb = BufferUtil.createIntBuffer(width * height);
+		ByteBuffer bytes = BufferUtil.acquireByteBuffer(width * height * 4);
+		IntBuffer rgb = bytes.asIntBuffer();
 		GL11.glReadPixels(x, y, width, height, GL12.GL_BGRA, GL12.GL_UNSIGNED_INT_8_8_8_8_REV, rgb); /*Format as ARGB instead of RGBA */
 		int[] imgData = ((DataBufferInt)img.getRaster().getDataBuffer()).getData();
 		
@@ -84,6 +86,7 @@ public class GLUtil {
 		for(y = height - 1; y >= 0; y--) {
 			rgb.get(imgData, y * width, width);
 		}
+		BufferUtil.release(bytes);
 		return img;
 	}
 
@@ -0,0 +1,80 @@
+package com.unknownloner.lonelib.util;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Builds a direct IntBuffer of any length, growing as ints are added.
+ * @see BufferBuilder
+ */
+public class IntBufferBuilder extends BufferBuilder {
+
+	private IntBuffer buffer;
+
+	public IntBufferBuilder() {
+		this(0);
+	}
+
+	/**
+	 * @param initialCapacity Number of ints to make room for up front
+	 */
+	public IntBufferBuilder(int initialCapacity) {
+		super(4, initialCapacity);
+	}
+
+	@Override
+	protected Buffer buffer() {
+		return buffer;
+	}
+
+	@Override
+	protected void setBuffer(ByteBuffer bytes) {
+		buffer = bytes.asIntBuffer();
+	}
+
+	public IntBufferBuilder put(int a) {
+		ensureRemaining(1);
+		buffer.put(a);
+		return this;
+	}
+
+	public IntBufferBuilder put(int a, int b) {
+		ensureRemaining(2);
+		buffer.put(a).put(b);
+		return this;
+	}
+
+	public IntBufferBuilder put(int a, int b, int c) {
+		ensureRemaining(3);
+		buffer.put(a).put(b).put(c);
+		return this;
+	}
+
+	public IntBufferBuilder put(int a, int b, int c, int d) {
+		ensureRemaining(4);
+		buffer.put(a).put(b).put(c).put(d);
+		return this;
+	}
+
+	public IntBufferBuilder put(int[] src) {
+		return put(src, 0, src.length);
+	}
+
+	public IntBufferBuilder put(int[] src, int offset, int length) {
+		ensureRemaining(length);
+		buffer.put(src, offset, length);
+		return this;
+	}
+
+	/**
+	 * Finishes the buffer for use, for example by {@link com.unknownloner.lonelib.graphics.buffers.VertexBufferObject#bufferData(IntBuffer, int)}.
+	 * The buffer stays valid until the builder is reset or freed
+	 * @return The buffer, with a position of 0 and a limit of the number of ints added
+	 */
+	public IntBuffer flip() {
+		flipBuffer();
+		return buffer;
+	}
+
+}
@@ -15,6 +15,112 @@ public class MathUtil {
 		return degrees * PI180;
 	}
 	
+	private static final float HALF_PI = (float)(Math.PI / 2);
+	//2 pi split into a part with few mantissa bits, so k * TWO_PI_HI is exact, and the rest
+	private static final float TWO_PI_HI = 6.28125F;
+	private static final float TWO_PI_LO = (float)(Math.PI * 2 - 6.28125);
+	private static final float INV_TWO_PI = (float)(1 / (Math.PI * 2));
+
+	/**
+	 * Approximates sin(radians) with a range reduction and a degree 9 polynomial.
+	 * <br>The absolute error is below 4e-6 for |radians| up to 1e5, beyond that the range reduction loses precision.
+	 * @param radians Angle in radians
+	 * @return sin(radians)
+	 */
+	public static float sinFast(float radians) {
+		//Fold [-pi, pi] into [-pi/2, pi/2] where the polynomial is accurate
+		float x = reduceAngle(radians);
+		if(x > HALF_PI) {
+			x = PI - x;
+		} else if(x < -HALF_PI) {
+			x = -PI - x;
+		}
+		return sinPoly(x);
+	}
+
+	/**
+	 * Approximates cos(radians) with the same polynomial and error bound as {@link #sinFast(float)}
+	 * @param radians Angle in radians
+	 * @return cos(radians)
+	 */
+	public static float cosFast(float radians) {
+		return sinPoly(HALF_PI - Math.abs(reduceAngle(radians)));
+	}
+
+	/**
+	 * @return radians wrapped into [-pi, pi]
+	 */
+	private static float reduceAngle(float radians) {
+		float k = (float)Math.floor(radians * INV_TWO_PI + 0.5F);
+		return (radians - k * TWO_PI_HI) - k * TWO_PI_LO;
+	}
+
+	/**
+	 * Taylor series of sin for x in [-pi/2, pi/2]
+	 */
+	private static float sinPoly(float x) {
+		float x2 = x * x;
+		return x * (1F + x2 * (-1F / 6 + x2 * (1F / 120 + x2 * (-1F / 5040 + x2 * (1F / 362880)))));
+	}
+
+	/**
+	 * Approximates atan2(y, x) with a degree 11 polynomial for atan on [0, 1].
+	 * <br>The absolute error is below 2e-6 radians. Returns 0 when both arguments are 0
+	 * @return The angle of the point (x, y) from the positive x axis, from -pi to pi
+	 */
+	public static float atan2Fast(float y, float x) {
+		float ax = Math.abs(x);
+		float ay = Math.abs(y);
+		float max = Math.max(ax, ay);
+		if(max == 0) {
+			return 0;
+		}
+		float z = Math.min(ax, ay) / max;
+		float z2 = z * z;
+		float a = z * (0.99997726F + z2 * (-0.33262347F + z2 * (0.19354346F + z2 * (-0.11643287F + z2 * (0.05265332F + z2 * -0.01172120F)))));
+		if(ay > ax) {
+			a = HALF_PI - a;
+		}
+		if(x < 0) {
+			a = PI - a;
+		}
+		return y < 0 ? -a : a;
+	}
+
+	/**
+	 * Approximates acos(x) with the polynomial from Abramowitz and Stegun 4.4.46.
+	 * <br>The absolute error is below 1e-6 radians. x is clamped to [-1, 1] so rounding errors in dot products do not produce NaN
+	 * @return The angle whose cosine is x, from 0 to pi
+	 */
+	public static float acosFast(float x) {
+		float ax = Math.min(Math.abs(x), 1F);
+		float a = (float)Math.sqrt(1F - ax) * (1.5707963050F + ax * (-0.2145988016F + ax * (0.0889789874F + ax * (-0.0501743046F
+				+ ax * (0.0308918810F + ax * (-0.0170881256F + ax * (0.0066700901F + ax * -0.0012624911F)))))));
+		return x < 0 ? PI - a : a;
+	}
+
+	/**
+	 * Approximates asin(x) as pi / 2 - {@link #acosFast(float)}, with the same error bound
+	 * @return The angle whose sine is x, from -pi / 2 to pi / 2
+	 */
+	public static float asinFast(float x) {
+		return HALF_PI - acosFast(x);
+	}
+
+	/**
+	 * Approximates 1 / sqrt(x) with the bit-level initial guess and two Newton-Raphson steps.
+	 * <br>The relative error is below 5e-6 for positive normal floats
+	 * @param x Positive value
+	 * @return 1 / sqrt(x)
+	 */
+	public static float invSqrtFast(float x) {
+		float half = 0.5F * x;
+		float y = Float.intBitsToFloat(0x5F375A86 - (Float.floatToRawIntBits(x) >> 1));
+		y *= 1.5F - half * y * y;
+		y *= 1.5F - half * y * y;
+		return y;
+	}
+
 	public static short[] quadToTri(short[] inds) {
 		short[] tri = new short[inds.length * 6 / 4];
 		for(int i = 0, j = 0; i < inds.length; i += 4, j += 6) {
@@ -0,0 +1,80 @@
+package com.unknownloner.lonelib.util;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Builds a direct ShortBuffer of any length, growing as shorts are added.
+ * @see BufferBuilder
+ */
+public class ShortBufferBuilder extends BufferBuilder {
+
+	private ShortBuffer buffer;
+
+	public ShortBufferBuilder() {
+		this(0);
+	}
+
+	/**
+	 * @param initialCapacity Number of shorts to make room for up front
+	 */
+	public ShortBufferBuilder(int initialCapacity) {
+		super(2, initialCapacity);
+	}
+
+	@Override
+	protected Buffer buffer() {
+		return buffer;
+	}
+
+	@Override
+	protected void setBuffer(ByteBuffer bytes) {
+		buffer = bytes.asShortBuffer();
+	}
+
+	public ShortBufferBuilder put(short a) {
+		ensureRemaining(1);
+		buffer.put(a);
+		return this;
+	}
+
+	public ShortBufferBuilder put(short a, short b) {
+		ensureRemaining(2);
+		buffer.put(a).put(b);
+		return this;
+	}
+
+	public ShortBufferBuilder put(short a, short b, short c) {
+		ensureRemaining(3);
+		buffer.put(a).put(b).put(c);
+		return this;
+	}
+
+	public ShortBufferBuilder put(short a, short b, short c, short d) {
+		ensureRemaining(4);
+		buffer.put(a).put(b).put(c).put(d);
+		return this;
+	}
+
+	public ShortBufferBuilder put(short[] src) {
+		return put(src, 0, src.length);
+	}
+
+	public ShortBufferBuilder put(short[] src, int offset, int length) {
+		ensureRemaining(length);
+		buffer.put(src, offset, length);
+		return this;
+	}
+
+	/**
+	 * Finishes the buffer for use, for example by {@link com.unknownloner.lonelib.graphics.buffers.VertexBufferObject#bufferData(ShortBuffer, int)}.
+	 * The buffer stays valid until the builder is reset or freed
+	 * @return The buffer, with a position of 0 and a limit of the number of shorts added
+	 */
+	public ShortBuffer flip() {
+		flipBuffer();
+		return buffer;
+	}
+
+}
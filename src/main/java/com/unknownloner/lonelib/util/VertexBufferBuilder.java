@@ -0,0 +1,153 @@
+package com.unknownloner.lonelib.util;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Builds a direct ByteBuffer of interleaved vertices of any type of attributes, growing as vertices are added.
+ * <br>Attributes are written with the put methods in the order they appear in the vertex, and each vertex
+ * is finished with {@link #endVertex()}, which checks that exactly one stride of bytes was written.
+ * @see BufferBuilder
+ */
+public class VertexBufferBuilder extends BufferBuilder {
+
+	private final int stride;
+	private ByteBuffer buffer;
+	private int vertexStart;
+	private int vertexCount;
+
+	/**
+	 * @param stride Size of a vertex in bytes
+	 */
+	public VertexBufferBuilder(int stride) {
+		this(stride, 0);
+	}
+
+	/**
+	 * @param stride Size of a vertex in bytes
+	 * @param initialVertices Number of vertices to make room for up front
+	 */
+	public VertexBufferBuilder(int stride, int initialVertices) {
+		super(1, checkStride(stride) * initialVertices);
+		this.stride = stride;
+	}
+
+	private static int checkStride(int stride) {
+		if(stride <= 0) {
+			throw new IllegalArgumentException("Stride must be positive: " + stride);
+		}
+		return stride;
+	}
+
+	@Override
+	protected Buffer buffer() {
+		return buffer;
+	}
+
+	@Override
+	protected void setBuffer(ByteBuffer bytes) {
+		buffer = bytes.duplicate().order(bytes.order());
+	}
+
+	public VertexBufferBuilder put(float x) {
+		ensureRemaining(4);
+		buffer.putFloat(x);
+		return this;
+	}
+
+	public VertexBufferBuilder put(float x, float y) {
+		ensureRemaining(8);
+		buffer.putFloat(x).putFloat(y);
+		return this;
+	}
+
+	public VertexBufferBuilder put(float x, float y, float z) {
+		ensureRemaining(12);
+		buffer.putFloat(x).putFloat(y).putFloat(z);
+		return this;
+	}
+
+	public VertexBufferBuilder put(float x, float y, float z, float w) {
+		ensureRemaining(16);
+		buffer.putFloat(x).putFloat(y).putFloat(z).putFloat(w);
+		return this;
+	}
+
+	public VertexBufferBuilder putInt(int i) {
+		ensureRemaining(4);
+		buffer.putInt(i);
+		return this;
+	}
+
+	public VertexBufferBuilder putShort(short s) {
+		ensureRemaining(2);
+		buffer.putShort(s);
+		return this;
+	}
+
+	public VertexBufferBuilder putShort(short s, short t) {
+		ensureRemaining(4);
+		buffer.putShort(s).putShort(t);
+		return this;
+	}
+
+	public VertexBufferBuilder putByte(byte b) {
+		ensureRemaining(1);
+		buffer.put(b);
+		return this;
+	}
+
+	/**
+	 * Puts 4 bytes, such as a packed color or normal
+	 */
+	public VertexBufferBuilder putBytes(byte a, byte b, byte c, byte d) {
+		ensureRemaining(4);
+		buffer.put(a).put(b).put(c).put(d);
+		return this;
+	}
+
+	/**
+	 * Finishes the current vertex
+	 * @return Index of the vertex
+	 */
+	public int endVertex() {
+		int end = buffer.position();
+		if(end - vertexStart != stride) {
+			throw new IllegalStateException("Vertex has " + (end - vertexStart) + " bytes, stride is " + stride);
+		}
+		vertexStart = end;
+		return vertexCount++;
+	}
+
+	/**
+	 * @return Number of finished vertices
+	 */
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	public int getStride() {
+		return stride;
+	}
+
+	/**
+	 * Finishes the buffer for use, for example by {@link com.unknownloner.lonelib.graphics.buffers.VertexBufferObject#bufferData(ByteBuffer, int)}.
+	 * The buffer stays valid until the builder is reset or freed
+	 * @return The buffer, with a position of 0 and a limit of the end of the last finished vertex
+	 */
+	public ByteBuffer flip() {
+		if(buffer.position() != vertexStart) {
+			throw new IllegalStateException("Last vertex was not finished");
+		}
+		flipBuffer();
+		return buffer;
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		vertexStart = 0;
+		vertexCount = 0;
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.unknownloner.lonelib.voxel;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size block of cells with one bit per cell. Cells outside the grid are empty.
+ * <br>Bits are stored x fastest, then z, then y, so the cells of a horizontal row are next to each other in memory.
+ */
+public class BitVoxelGrid implements VoxelOccupancy {
+
+	private final int sizeX;
+	private final int sizeY;
+	private final int sizeZ;
+	private final long[] bits;
+
+	/**
+	 * Creates an empty grid covering cells 0 to size - 1 on each axis. The grid may hold at most 2^31 - 1 cells
+	 */
+	public BitVoxelGrid(int sizeX, int sizeY, int sizeZ) {
+		if(sizeX <= 0 || sizeY <= 0 || sizeZ <= 0) {
+			throw new IllegalArgumentException("Grid size must be positive");
+		}
+		long cells = (long)sizeX * sizeY * sizeZ;
+		if(cells > Integer.MAX_VALUE) {
+			//Cells are addressed by an int bit index
+			throw new IllegalArgumentException("Grid of " + sizeX + " x " + sizeY + " x " + sizeZ + " cells is larger than "
+					+ Integer.MAX_VALUE + " cells");
+		}
+		this.sizeX = sizeX;
+		this.sizeY = sizeY;
+		this.sizeZ = sizeZ;
+		this.bits = new long[(int)((cells + 63) >>> 6)];
+	}
+
+	public int getSizeX() {
+		return sizeX;
+	}
+
+	public int getSizeY() {
+		return sizeY;
+	}
+
+	public int getSizeZ() {
+		return sizeZ;
+	}
+
+	@Override
+	public boolean isSolid(int x, int y, int z) {
+		if(x < 0 || y < 0 || z < 0 || x >= sizeX || y >= sizeY || z >= sizeZ) {
+			return false;
+		}
+		int index = (y * sizeZ + z) * sizeX + x;
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Marks a cell solid or empty. The cell must be inside the grid
+	 */
+	public void set(int x, int y, int z, boolean solid) {
+		if(x < 0 || y < 0 || z < 0 || x >= sizeX || y >= sizeY || z >= sizeZ) {
+			throw new IndexOutOfBoundsException("Cell " + x + ", " + y + ", " + z + " outside of grid");
+		}
+		int index = (y * sizeZ + z) * sizeX + x;
+		if(solid) {
+			bits[index >>> 6] |= 1L << index;
+		} else {
+			bits[index >>> 6] &= ~(1L << index);
+		}
+	}
+
+	/**
+	 * Empties every cell
+	 */
+	public void clear() {
+		Arrays.fill(bits, 0);
+	}
+
+}
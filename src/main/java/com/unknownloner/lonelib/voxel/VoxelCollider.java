@@ -0,0 +1,122 @@
+package com.unknownloner.lonelib.voxel;
+
+import com.unknownloner.lonelib.math.AABB;
+import com.unknownloner.lonelib.math.Vec3;
+
+/**
+ * Clips the movement of boxes against the solid cells of a voxel world.
+ * <br>The results are the same as calling {@link AABB#calcXOffset(AABB, float)}, {@link AABB#calcYOffset(AABB, float)}
+ * and {@link AABB#calcZOffset(AABB, float)} of a box for every solid cell, but only the cells in the path of the mover
+ * are looked up, one slab of cells at a time starting next to the mover, and no AABB is created for any cell.
+ * The cost of a movement depends on the volume it sweeps, not on the size of the world.
+ */
+public class VoxelCollider {
+
+	private static final int X = 0;
+	private static final int Y = 1;
+	private static final int Z = 2;
+
+	/**
+	 * Clips a movement along the x axis against the solid cells of grid
+	 * @param grid Cells to collide with
+	 * @param mover Bounds of the moving box
+	 * @param curOff The movement the box wants to make
+	 * @return The movement the box can make without entering a solid cell
+	 */
+	public static float calcXOffset(VoxelOccupancy grid, AABB mover, float curOff) {
+		return calcOffset(grid, X, mover.getMinx(), mover.getMaxx(), mover.getMiny(), mover.getMaxy(),
+				mover.getMinz(), mover.getMaxz(), curOff);
+	}
+
+	/**
+	 * @see #calcXOffset(VoxelOccupancy, AABB, float)
+	 */
+	public static float calcYOffset(VoxelOccupancy grid, AABB mover, float curOff) {
+		return calcOffset(grid, Y, mover.getMiny(), mover.getMaxy(), mover.getMinx(), mover.getMaxx(),
+				mover.getMinz(), mover.getMaxz(), curOff);
+	}
+
+	/**
+	 * @see #calcXOffset(VoxelOccupancy, AABB, float)
+	 */
+	public static float calcZOffset(VoxelOccupancy grid, AABB mover, float curOff) {
+		return calcOffset(grid, Z, mover.getMinz(), mover.getMaxz(), mover.getMinx(), mover.getMaxx(),
+				mover.getMiny(), mover.getMaxy(), curOff);
+	}
+
+	/**
+	 * Clips the movement of a box against the solid cells of grid, resolving the y axis first, then x, then z
+	 * @param grid Cells to collide with
+	 * @param mover Bounds of the moving box
+	 * @param motion The movement the box wants to make
+	 * @return The movement the box can make without entering a solid cell
+	 */
+	public static Vec3 clipMovement(VoxelOccupancy grid, AABB mover, Vec3 motion) {
+		float minx = mover.getMinx(), miny = mover.getMiny(), minz = mover.getMinz();
+		float maxx = mover.getMaxx(), maxy = mover.getMaxy(), maxz = mover.getMaxz();
+		float dy = calcOffset(grid, Y, miny, maxy, minx, maxx, minz, maxz, motion.getY());
+		miny += dy;
+		maxy += dy;
+		float dx = calcOffset(grid, X, minx, maxx, miny, maxy, minz, maxz, motion.getX());
+		minx += dx;
+		maxx += dx;
+		float dz = calcOffset(grid, Z, minz, maxz, minx, maxx, miny, maxy, motion.getZ());
+		return new Vec3(dx, dy, dz);
+	}
+
+	/**
+	 * Clips a movement along one axis. min and max are the bounds of the mover on that axis,
+	 * and min1, max1, min2, max2 its bounds on the other two axes in x, y, z order
+	 */
+	private static float calcOffset(VoxelOccupancy grid, int axis, float min, float max,
+			float min1, float max1, float min2, float max2, float curOff) {
+		if(curOff == 0) {
+			return 0;
+		}
+		//Cells whose open interior overlaps the mover on the other two axes
+		int from1 = (int)Math.floor(min1), to1 = (int)Math.ceil(max1) - 1;
+		int from2 = (int)Math.floor(min2), to2 = (int)Math.ceil(max2) - 1;
+		if(curOff > 0) {
+			//First slab of cells starting at or beyond the leading face, closer than the movement
+			for(int a = (int)Math.ceil(max); a - max < curOff; a++) {
+				if(slabSolid(grid, axis, a, from1, to1, from2, to2)) {
+					return a - max;
+				}
+			}
+		} else {
+			for(int a = (int)Math.floor(min) - 1; a + 1 - min > curOff; a--) {
+				if(slabSolid(grid, axis, a, from1, to1, from2, to2)) {
+					return a + 1 - min;
+				}
+			}
+		}
+		return curOff;
+	}
+
+	/**
+	 * @return Whether any cell of the slab at coordinate a along axis is solid
+	 */
+	private static boolean slabSolid(VoxelOccupancy grid, int axis, int a, int from1, int to1, int from2, int to2) {
+		for(int c1 = from1; c1 <= to1; c1++) {
+			for(int c2 = from2; c2 <= to2; c2++) {
+				boolean solid;
+				switch(axis) {
+				case X:
+					solid = grid.isSolid(a, c1, c2);
+					break;
+				case Y:
+					solid = grid.isSolid(c1, a, c2);
+					break;
+				default:
+					solid = grid.isSolid(c1, c2, a);
+					break;
+				}
+				if(solid) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+}
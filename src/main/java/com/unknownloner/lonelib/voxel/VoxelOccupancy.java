@@ -0,0 +1,14 @@
+package com.unknownloner.lonelib.voxel;
+
+/**
+ * Tells which cells of a voxel world are solid. Cell (x, y, z) covers the unit cube from (x, y, z) to (x + 1, y + 1, z + 1),
+ * the same as a cube added with {@link com.unknownloner.lonelib.graphics.ColorCubeMesh#addCube(float, float, float, int)}.
+ * <br>Implement this over a bitset, a block palette or chunk storage, anything that can answer quickly for a single cell.
+ */
+public interface VoxelOccupancy {
+
+	/**
+	 * @return Whether the cell at x, y, z blocks movement and rays
+	 */
+	public boolean isSolid(int x, int y, int z);
+}
@@ -0,0 +1,163 @@
+package com.unknownloner.lonelib.voxel;
+
+import com.unknownloner.lonelib.math.Vec3;
+
+/**
+ * Walks a ray through the cells of a voxel grid in order, using the 3D-DDA of Amanatides and Woo,
+ * and remembers the cell where it stopped.
+ * <br>Each step moves to the neighbouring cell whose boundary the ray crosses first, so a cast costs
+ * one step per cell passed through and never allocates. A VoxelRaycast holds the result of the last cast
+ * and can be reused for any number of casts, but not by several threads at once.
+ */
+public class VoxelRaycast {
+
+	private boolean hit;
+	private int hitX, hitY, hitZ;
+	private int normalX, normalY, normalZ;
+	private float distance;
+
+	/**
+	 * Casts a ray until it enters a solid cell
+	 * @param grid Cells to test
+	 * @param dx X component of the direction, which does not need to be normalized
+	 * @param dy Y component of the direction
+	 * @param dz Z component of the direction
+	 * @param maxDist Cells entered further than this along the ray are not tested. Must be finite
+	 * @return Whether a solid cell was hit
+	 */
+	public boolean cast(VoxelOccupancy grid, float ox, float oy, float oz, float dx, float dy, float dz, float maxDist) {
+		return cast(grid, null, ox, oy, oz, dx, dy, dz, maxDist);
+	}
+
+	public boolean cast(VoxelOccupancy grid, Vec3 origin, Vec3 dir, float maxDist) {
+		return cast(grid, null, origin.getX(), origin.getY(), origin.getZ(), dir.getX(), dir.getY(), dir.getZ(), maxDist);
+	}
+
+	/**
+	 * Casts a ray, passing every cell it enters to visitor until the visitor stops it
+	 * @param visitor Called for each cell in order along the ray
+	 * @param dx X component of the direction, which does not need to be normalized
+	 * @param dy Y component of the direction
+	 * @param dz Z component of the direction
+	 * @param maxDist Cells entered further than this along the ray are not visited. Must be finite
+	 * @return Whether the visitor stopped the ray
+	 */
+	public boolean cast(VoxelVisitor visitor, float ox, float oy, float oz, float dx, float dy, float dz, float maxDist) {
+		return cast(null, visitor, ox, oy, oz, dx, dy, dz, maxDist);
+	}
+
+	private boolean cast(VoxelOccupancy grid, VoxelVisitor visitor, float ox, float oy, float oz,
+			float dx, float dy, float dz, float maxDist) {
+		float lenSq = dx * dx + dy * dy + dz * dz;
+		if(lenSq == 0) {
+			throw new IllegalArgumentException("Ray direction must not be zero");
+		}
+		//The walk only ends by passing maxDist, which never happens if it or the distances walked are not finite
+		if(Float.isNaN(maxDist) || Float.isInfinite(maxDist)) {
+			throw new IllegalArgumentException("Ray length must be finite: " + maxDist);
+		}
+		if(Float.isNaN(ox + oy + oz) || Float.isInfinite(ox + oy + oz)) {
+			throw new IllegalArgumentException("Ray origin must be finite: " + ox + ", " + oy + ", " + oz);
+		}
+		float invLen = 1F / (float)Math.sqrt(lenSq);
+		dx *= invLen;
+		dy *= invLen;
+		dz *= invLen;
+
+		int x = (int)Math.floor(ox);
+		int y = (int)Math.floor(oy);
+		int z = (int)Math.floor(oz);
+		int stepX = dx > 0 ? 1 : (dx < 0 ? -1 : 0);
+		int stepY = dy > 0 ? 1 : (dy < 0 ? -1 : 0);
+		int stepZ = dz > 0 ? 1 : (dz < 0 ? -1 : 0);
+		//Distance along the ray to cross one whole cell on each axis
+		float deltaX = stepX == 0 ? Float.POSITIVE_INFINITY : Math.abs(1F / dx);
+		float deltaY = stepY == 0 ? Float.POSITIVE_INFINITY : Math.abs(1F / dy);
+		float deltaZ = stepZ == 0 ? Float.POSITIVE_INFINITY : Math.abs(1F / dz);
+		//Distance along the ray to the next cell boundary on each axis
+		float nextX = stepX == 0 ? Float.POSITIVE_INFINITY : (stepX > 0 ? x + 1 - ox : ox - x) * deltaX;
+		float nextY = stepY == 0 ? Float.POSITIVE_INFINITY : (stepY > 0 ? y + 1 - oy : oy - y) * deltaY;
+		float nextZ = stepZ == 0 ? Float.POSITIVE_INFINITY : (stepZ > 0 ? z + 1 - oz : oz - z) * deltaZ;
+
+		int nx = 0, ny = 0, nz = 0;
+		float dist = 0;
+		while(true) {
+			if(grid != null ? grid.isSolid(x, y, z) : visitor.visitCell(x, y, z, dist)) {
+				hit = true;
+				hitX = x;
+				hitY = y;
+				hitZ = z;
+				normalX = nx;
+				normalY = ny;
+				normalZ = nz;
+				distance = dist;
+				return true;
+			}
+			nx = ny = nz = 0;
+			if(nextX <= nextY && nextX <= nextZ) {
+				dist = nextX;
+				nextX += deltaX;
+				x += stepX;
+				nx = -stepX;
+			} else if(nextY <= nextZ) {
+				dist = nextY;
+				nextY += deltaY;
+				y += stepY;
+				ny = -stepY;
+			} else {
+				dist = nextZ;
+				nextZ += deltaZ;
+				z += stepZ;
+				nz = -stepZ;
+			}
+			if(dist > maxDist) {
+				break;
+			}
+		}
+		hit = false;
+		return false;
+	}
+
+	/**
+	 * @return Whether the last cast hit a cell
+	 */
+	public boolean isHit() {
+		return hit;
+	}
+
+	public int getHitX() {
+		return hitX;
+	}
+
+	public int getHitY() {
+		return hitY;
+	}
+
+	public int getHitZ() {
+		return hitZ;
+	}
+
+	/**
+	 * @return X component of the normal of the face the ray entered the hit cell through.
+	 * The normal is zero if the ray started inside the hit cell
+	 */
+	public int getNormalX() {
+		return normalX;
+	}
+
+	public int getNormalY() {
+		return normalY;
+	}
+
+	public int getNormalZ() {
+		return normalZ;
+	}
+
+	/**
+	 * @return Distance along the ray where it entered the hit cell
+	 */
+	public float getDistance() {
+		return distance;
+	}
+
+}
@@ -0,0 +1,14 @@
+package com.unknownloner.lonelib.voxel;
+
+public interface VoxelVisitor {
+
+	/**
+	 * Called for each cell a ray passes through, in order along the ray
+	 * @param x X coordinate of the cell
+	 * @param y Y coordinate of the cell
+	 * @param z Z coordinate of the cell
+	 * @param distance Distance along the ray where it enters the cell, 0 for the cell the ray starts in
+	 * @return true to stop the ray at this cell, false to continue
+	 */
+	public boolean visitCell(int x, int y, int z, float distance);
+}
@@ -0,0 +1,114 @@
+package com.unknownloner.lonelib.math.simd;
+
+import com.unknownloner.lonelib.math.VectorKernels;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link VectorKernels} implemented with the incubating Java Vector API.
+ * <br>Only compiled on JDK 17+ and packaged under META-INF/versions/17, use {@link VectorKernels#get()} rather than this class.
+ */
+public class VectorApiKernels extends VectorKernels {
+
+	private static final VectorSpecies<Float> COLUMN = FloatVector.SPECIES_128;
+	private static final VectorSpecies<Float> LANES = FloatVector.SPECIES_PREFERRED;
+
+	@Override
+	public boolean isAccelerated() {
+		return true;
+	}
+
+	@Override
+	public void mul(float[] l, int lo, float[] r, int ro, float[] dest, int destOffset) {
+		FloatVector c0 = FloatVector.fromArray(COLUMN, l, lo);
+		FloatVector c1 = FloatVector.fromArray(COLUMN, l, lo + 4);
+		FloatVector c2 = FloatVector.fromArray(COLUMN, l, lo + 8);
+		FloatVector c3 = FloatVector.fromArray(COLUMN, l, lo + 12);
+		FloatVector d0 = column(c0, c1, c2, c3, r, ro);
+		FloatVector d1 = column(c0, c1, c2, c3, r, ro + 4);
+		FloatVector d2 = column(c0, c1, c2, c3, r, ro + 8);
+		FloatVector d3 = column(c0, c1, c2, c3, r, ro + 12);
+		d0.intoArray(dest, destOffset);
+		d1.intoArray(dest, destOffset + 4);
+		d2.intoArray(dest, destOffset + 8);
+		d3.intoArray(dest, destOffset + 12);
+	}
+
+	@Override
+	public void mulBatch(float[] l, int lo, float[] rights, int ro, float[] dest, int destOffset, int count) {
+		FloatVector c0 = FloatVector.fromArray(COLUMN, l, lo);
+		FloatVector c1 = FloatVector.fromArray(COLUMN, l, lo + 4);
+		FloatVector c2 = FloatVector.fromArray(COLUMN, l, lo + 8);
+		FloatVector c3 = FloatVector.fromArray(COLUMN, l, lo + 12);
+		for(int i = 0; i < count; i++) {
+			int r = ro + i * 16;
+			int d = destOffset + i * 16;
+			FloatVector d0 = column(c0, c1, c2, c3, rights, r);
+			FloatVector d1 = column(c0, c1, c2, c3, rights, r + 4);
+			FloatVector d2 = column(c0, c1, c2, c3, rights, r + 8);
+			FloatVector d3 = column(c0, c1, c2, c3, rights, r + 12);
+			d0.intoArray(dest, d);
+			d1.intoArray(dest, d + 4);
+			d2.intoArray(dest, d + 8);
+			d3.intoArray(dest, d + 12);
+		}
+	}
+
+	private static FloatVector column(FloatVector c0, FloatVector c1, FloatVector c2, FloatVector c3, float[] r, int offset) {
+		return c0.mul(r[offset])
+				.add(c1.mul(r[offset + 1]))
+				.add(c2.mul(r[offset + 2]))
+				.add(c3.mul(r[offset + 3]));
+	}
+
+	@Override
+	public void transformPoints(float[] m, int mo, float[] x, float[] y, float[] z,
+			float[] destX, float[] destY, float[] destZ, int count) {
+		float m0 = m[mo], m1 = m[mo + 1], m2 = m[mo + 2];
+		float m4 = m[mo + 4], m5 = m[mo + 5], m6 = m[mo + 6];
+		float m8 = m[mo + 8], m9 = m[mo + 9], m10 = m[mo + 10];
+		float m12 = m[mo + 12], m13 = m[mo + 13], m14 = m[mo + 14];
+		int i = 0;
+		for(int bound = LANES.loopBound(count); i < bound; i += LANES.length()) {
+			FloatVector px = FloatVector.fromArray(LANES, x, i);
+			FloatVector py = FloatVector.fromArray(LANES, y, i);
+			FloatVector pz = FloatVector.fromArray(LANES, z, i);
+			px.mul(m0).add(py.mul(m4)).add(pz.mul(m8)).add(m12).intoArray(destX, i);
+			px.mul(m1).add(py.mul(m5)).add(pz.mul(m9)).add(m13).intoArray(destY, i);
+			px.mul(m2).add(py.mul(m6)).add(pz.mul(m10)).add(m14).intoArray(destZ, i);
+		}
+		for(; i < count; i++) {
+			float px = x[i];
+			float py = y[i];
+			float pz = z[i];
+			destX[i] = m0 * px + m4 * py + m8 * pz + m12;
+			destY[i] = m1 * px + m5 * py + m9 * pz + m13;
+			destZ[i] = m2 * px + m6 * py + m10 * pz + m14;
+		}
+	}
+
+	@Override
+	public void overlaps(float qMinX, float qMinY, float qMinZ, float qMaxX, float qMaxY, float qMaxZ,
+			float[] minX, float[] minY, float[] minZ, float[] maxX, float[] maxY, float[] maxZ,
+			int count, boolean[] dest) {
+		int i = 0;
+		for(int bound = LANES.loopBound(count); i < bound; i += LANES.length()) {
+			VectorMask<Float> hit = FloatVector.fromArray(LANES, maxX, i).compare(VectorOperators.GT, qMinX)
+					.and(FloatVector.fromArray(LANES, minX, i).compare(VectorOperators.LT, qMaxX))
+					.and(FloatVector.fromArray(LANES, maxY, i).compare(VectorOperators.GT, qMinY))
+					.and(FloatVector.fromArray(LANES, minY, i).compare(VectorOperators.LT, qMaxY))
+					.and(FloatVector.fromArray(LANES, maxZ, i).compare(VectorOperators.GT, qMinZ))
+					.and(FloatVector.fromArray(LANES, minZ, i).compare(VectorOperators.LT, qMaxZ));
+			hit.intoArray(dest, i);
+		}
+		for(; i < count; i++) {
+			dest[i] = maxX[i] > qMinX & minX[i] < qMaxX
+					& maxY[i] > qMinY & minY[i] < qMaxY
+					& maxZ[i] > qMinZ & minZ[i] < qMaxZ;
+		}
+	}
+
+}
@@ -0,0 +1,93 @@
+package com.unknownloner.lonelib.math;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks the kernels returned by {@link VectorKernels#get()} against the scalar kernels.
+ * The Vector API kernels are only tested when the build runs on JDK 17 or newer, where the simd profile
+ * puts them on the test class path and enables jdk.incubator.vector. Otherwise both sides are the scalar kernels
+ */
+public class VectorKernelsTest extends TestCase {
+
+	private static final int MAX_COUNT = 100;
+
+	private final VectorKernels scalar = VectorKernels.scalar();
+	private final VectorKernels kernels = VectorKernels.get();
+	private final Random random = new Random(42);
+
+	public void testAcceleratedWhereAvailable() {
+		//Set by the simd profile, which builds the Vector API kernels
+		if(Boolean.getBoolean("lonelib.test.simd")) {
+			assertTrue("Vector API kernels were not loaded", kernels.isAccelerated());
+		}
+	}
+
+	public void testCrossCheck() {
+		assertTrue(VectorKernels.crossCheck(kernels));
+	}
+
+	public void testMulBatch() {
+		for(int count = 0; count <= MAX_COUNT; count++) {
+			float[] l = randoms(16), rights = randoms(count * 16);
+			float[] expected = new float[count * 16], actual = new float[count * 16];
+			scalar.mulBatch(l, 0, rights, 0, expected, 0, count);
+			kernels.mulBatch(l, 0, rights, 0, actual, 0, count);
+			assertClose(expected, actual);
+		}
+	}
+
+	public void testTransformPoints() {
+		for(int count = 0; count <= MAX_COUNT; count++) {
+			float[] m = randoms(16), x = randoms(count), y = randoms(count), z = randoms(count);
+			float[] ex = new float[count], ey = new float[count], ez = new float[count];
+			float[] ax = new float[count], ay = new float[count], az = new float[count];
+			scalar.transformPoints(m, 0, x, y, z, ex, ey, ez, count);
+			kernels.transformPoints(m, 0, x, y, z, ax, ay, az, count);
+			assertClose(ex, ax);
+			assertClose(ey, ay);
+			assertClose(ez, az);
+		}
+	}
+
+	public void testOverlapsMatchesAABB() {
+		for(int count = 0; count <= MAX_COUNT; count++) {
+			AABBArray boxes = new AABBArray(count);
+			AABB[] expected = new AABB[count];
+			for(int i = 0; i < count; i++) {
+				float x = random.nextInt(8) - 4, y = random.nextInt(8) - 4, z = random.nextInt(8) - 4;
+				//Whole numbers, so some boxes only touch the query box
+				expected[i] = new AABB(x, y, z, x + random.nextInt(3) + 1, y + random.nextInt(3) + 1, z + random.nextInt(3) + 1);
+				boxes.set(i, expected[i]);
+			}
+			boxes.setSize(count);
+			AABB query = new AABB(-1, -1, -1, 1, 2, 1);
+			int[] found = new int[count];
+			int n = boxes.overlapping(query, found);
+			int j = 0;
+			for(int i = 0; i < count; i++) {
+				if(expected[i].intersects(query)) {
+					assertTrue("Box " + i + " was not found", j < n && found[j] == i);
+					j++;
+				}
+			}
+			assertEquals(j, n);
+		}
+	}
+
+	private float[] randoms(int count) {
+		float[] values = new float[count];
+		for(int i = 0; i < count; i++) {
+			values[i] = random.nextFloat() * 4F - 2F;
+		}
+		return values;
+	}
+
+	private static void assertClose(float[] expected, float[] actual) {
+		for(int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], actual[i], 1e-5F * Math.max(1F, Math.abs(expected[i])));
+		}
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.unknownloner.lonelib.util;
+
+import junit.framework.TestCase;
+
+public class BufferBuilderTest extends TestCase {
+
+	/**
+	 * 4096 floats, 16 KB, exactly a pool size class
+	 */
+	private static final int CAPACITY = 4096;
+
+	public void testShrinksPastFactor() {
+		//Just under a quarter of the capacity
+		FloatBufferBuilder builder = fill(CAPACITY / BufferBuilder.SHRINK_FACTOR - 24);
+		assertTrue("Builder should shrink once the buffer is more than " + BufferBuilder.SHRINK_FACTOR + " times the peak",
+				builder.capacity() < CAPACITY);
+		builder.free();
+	}
+
+	public void testKeepsWithinFactor() {
+		//Just over a quarter of the capacity
+		FloatBufferBuilder builder = fill(CAPACITY / BufferBuilder.SHRINK_FACTOR + 24);
+		assertEquals(CAPACITY, builder.capacity());
+		builder.free();
+	}
+
+	public void testKeepsSmallestSize() {
+		FloatBufferBuilder builder = fill(0);
+		int capacity = builder.capacity();
+		for(int i = 0; i < BufferBuilder.SHRINK_WINDOW; i++) {
+			builder.reset();
+		}
+		assertEquals(capacity, builder.capacity());
+		builder.free();
+	}
+
+	/**
+	 * @return A builder of CAPACITY floats after a whole shrink window of using only used floats
+	 */
+	private static FloatBufferBuilder fill(int used) {
+		FloatBufferBuilder builder = new FloatBufferBuilder(CAPACITY);
+		assertEquals(CAPACITY, builder.capacity());
+		for(int i = 0; i < BufferBuilder.SHRINK_WINDOW; i++) {
+			for(int f = 0; f < used; f++) {
+				builder.put(f);
+			}
+			builder.flip();
+			builder.reset();
+		}
+		return builder;
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.unknownloner.lonelib.util;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Compares the old per-element conversion of typed buffers to bytes with {@link BufferUtil#copy(Buffer, ByteBuffer)},
+ * and times {@link BufferUtil#asByteBuffer(Buffer)}, for buffers of each type from 1 MB to 64 MB.
+ * <br>Run the main method by hand, it is not part of the test suite. {@link BufferUtilTest} checks the results.
+ * Views of direct buffers are returned without copying, so the asByteBuffer column only measures a conversion for heap buffers
+ */
+public class BufferConversionBenchmark {
+
+	private static final String[] TYPES = { "short", "char", "int", "float", "long", "double" };
+	private static final int MIN_MB = 1;
+	private static final int MAX_MB = 64;
+	private static final int RUNS = 5;
+
+	public static void main(String[] args) {
+		System.out.printf("%-7s %-7s %5s %12s %12s %12s%n", "type", "memory", "MB", "loop ms", "copy ms", "asBytes ms");
+		for(int mb = MIN_MB; mb <= MAX_MB; mb *= 4) {
+			int bytes = mb << 20;
+			ByteBuffer dest = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+			ByteBuffer directSrc = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+			ByteBuffer heapSrc = ByteBuffer.allocate(bytes).order(ByteOrder.nativeOrder());
+			for(int i = 0; i < bytes; i++) {
+				directSrc.put(i, (byte)i);
+				heapSrc.put(i, (byte)i);
+			}
+			for(int type = 0; type < TYPES.length; type++) {
+				run(TYPES[type], "direct", mb, directSrc, type, dest);
+				run(TYPES[type], "heap", mb, heapSrc, type, dest);
+			}
+			BufferUtil.cleanBuffer(dest);
+			BufferUtil.cleanBuffer(directSrc);
+		}
+	}
+
+	private static void run(String type, String memory, int mb, ByteBuffer bytes, int viewType, ByteBuffer dest) {
+		Buffer src = view(bytes, viewType);
+		long loop = Long.MAX_VALUE;
+		long copy = Long.MAX_VALUE;
+		long asBytes = Long.MAX_VALUE;
+		for(int run = 0; run < RUNS; run++) {
+			dest.clear();
+			long start = System.nanoTime();
+			loopCopy(src, dest);
+			loop = Math.min(loop, System.nanoTime() - start);
+			src.clear();
+			int check = dest.getInt(dest.capacity() / 2);
+
+			dest.clear();
+			start = System.nanoTime();
+			BufferUtil.copy(src, dest);
+			copy = Math.min(copy, System.nanoTime() - start);
+			if(dest.getInt(dest.capacity() / 2) != check) {
+				throw new IllegalStateException("Bulk copy of " + type + " does not match the loop");
+			}
+
+			start = System.nanoTime();
+			ByteBuffer converted = BufferUtil.asByteBuffer(src);
+			asBytes = Math.min(asBytes, System.nanoTime() - start);
+			if(converted.isDirect() && converted != bytes) {
+				BufferUtil.cleanBuffer(converted);
+			}
+		}
+		System.out.printf("%-7s %-7s %5d %12.2f %12.2f %12.2f%n", type, memory, mb, loop / 1e6, copy / 1e6, asBytes / 1e6);
+	}
+
+	private static Buffer view(ByteBuffer bytes, int type) {
+		switch(type) {
+		case 0: return BufferUtil.shortView(bytes);
+		case 1: return BufferUtil.charView(bytes);
+		case 2: return BufferUtil.intView(bytes);
+		case 3: return BufferUtil.floatView(bytes);
+		case 4: return BufferUtil.longView(bytes);
+		default: return BufferUtil.doubleView(bytes);
+		}
+	}
+
+	/**
+	 * The conversion asByteBuffer used to do, one element at a time
+	 */
+	private static void loopCopy(Buffer buffer, ByteBuffer bBuffer) {
+		if(buffer instanceof ShortBuffer) {
+			ShortBuffer sBuffer = (ShortBuffer)buffer;
+			for(int i = sBuffer.limit(); i > 0; i--)
+				bBuffer.putShort(sBuffer.get());
+		} else if(buffer instanceof CharBuffer) {
+			CharBuffer cBuffer = (CharBuffer)buffer;
+			for(int i = cBuffer.limit(); i > 0; i--)
+				bBuffer.putChar(cBuffer.get());
+		} else if(buffer instanceof IntBuffer) {
+			IntBuffer iBuffer = (IntBuffer)buffer;
+			for(int i = iBuffer.limit(); i > 0; i--)
+				bBuffer.putInt(iBuffer.get());
+		} else if(buffer instanceof FloatBuffer) {
+			FloatBuffer fBuffer = (FloatBuffer)buffer;
+			for(int i = fBuffer.limit(); i > 0; i--)
+				bBuffer.putFloat(fBuffer.get());
+		} else if(buffer instanceof LongBuffer) {
+			LongBuffer lBuffer = (LongBuffer)buffer;
+			for(int i = lBuffer.limit(); i > 0; i--)
+				bBuffer.putLong(lBuffer.get());
+		} else if(buffer instanceof DoubleBuffer) {
+			DoubleBuffer dBuffer = (DoubleBuffer)buffer;
+			for(int i = dBuffer.limit(); i > 0; i--)
+				bBuffer.putDouble(dBuffer.get());
+		}
+	}
+
+}
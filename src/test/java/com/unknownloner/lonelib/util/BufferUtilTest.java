@@ -0,0 +1,119 @@
+package com.unknownloner.lonelib.util;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks the conversions of typed buffers to bytes against the old per-element conversion.
+ * {@link BufferConversionBenchmark} times them
+ */
+public class BufferUtilTest extends TestCase {
+
+	private static final int BYTES = 4096;
+
+	public void testCopyMatchesElementLoop() {
+		for(ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+			for(int type = 0; type < 6; type++) {
+				for(boolean direct : new boolean[] { true, false }) {
+					Buffer src = view(filled(direct, order), type);
+					ByteBuffer expected = ByteBuffer.allocate(BYTES).order(ByteOrder.nativeOrder());
+					loopCopy(src, expected);
+					src.clear();
+					ByteBuffer actual = ByteBuffer.allocate(BYTES + 8).order(ByteOrder.nativeOrder());
+					actual.position(8);
+					BufferUtil.copy(src, actual);
+					assertEquals(0, src.position());
+					assertEquals(BYTES + 8, actual.position());
+					actual.position(8);
+					expected.flip();
+					assertEquals("type " + type + " direct " + direct + " " + order, expected, actual);
+				}
+			}
+		}
+	}
+
+	public void testDirectViewIsNotCopied() {
+		ByteBuffer bytes = filled(true, ByteOrder.nativeOrder());
+		assertSame(bytes, BufferUtil.asByteBuffer(BufferUtil.floatView(bytes)));
+	}
+
+	public void testCopiedLimitIsDataSize() {
+		boolean pooling = BufferUtil.isPooling();
+		BufferUtil.setPooling(true);
+		try {
+			//A heap buffer is always copied, and 100 floats round up to a 512 byte pooled buffer
+			FloatBuffer floats = FloatBuffer.allocate(100);
+			ByteBuffer bytes = BufferUtil.asByteBuffer(floats);
+			assertEquals(0, bytes.position());
+			assertEquals(400, bytes.limit());
+		} finally {
+			BufferUtil.setPooling(pooling);
+		}
+	}
+
+	public void testCleanTypedBuffer() {
+		assertTrue(BufferUtil.cleanBuffer(BufferUtil.createFloatBuffer(64)));
+		assertTrue(BufferUtil.cleanBuffer(BufferUtil.createByteBuffer(64)));
+		assertFalse(BufferUtil.cleanBuffer(FloatBuffer.allocate(64)));
+	}
+
+	private static ByteBuffer filled(boolean direct, ByteOrder order) {
+		ByteBuffer bytes = (direct ? ByteBuffer.allocateDirect(BYTES) : ByteBuffer.allocate(BYTES)).order(order);
+		for(int i = 0; i < BYTES; i++) {
+			bytes.put(i, (byte)(i * 31 + 7));
+		}
+		return bytes;
+	}
+
+	private static Buffer view(ByteBuffer bytes, int type) {
+		switch(type) {
+		case 0: return BufferUtil.shortView(bytes);
+		case 1: return BufferUtil.charView(bytes);
+		case 2: return BufferUtil.intView(bytes);
+		case 3: return BufferUtil.floatView(bytes);
+		case 4: return BufferUtil.longView(bytes);
+		default: return BufferUtil.doubleView(bytes);
+		}
+	}
+
+	/**
+	 * The conversion asByteBuffer used to do, one element at a time
+	 */
+	private static void loopCopy(Buffer buffer, ByteBuffer bBuffer) {
+		if(buffer instanceof ShortBuffer) {
+			ShortBuffer sBuffer = (ShortBuffer)buffer;
+			for(int i = sBuffer.limit(); i > 0; i--)
+				bBuffer.putShort(sBuffer.get());
+		} else if(buffer instanceof CharBuffer) {
+			CharBuffer cBuffer = (CharBuffer)buffer;
+			for(int i = cBuffer.limit(); i > 0; i--)
+				bBuffer.putChar(cBuffer.get());
+		} else if(buffer instanceof IntBuffer) {
+			IntBuffer iBuffer = (IntBuffer)buffer;
+			for(int i = iBuffer.limit(); i > 0; i--)
+				bBuffer.putInt(iBuffer.get());
+		} else if(buffer instanceof FloatBuffer) {
+			FloatBuffer fBuffer = (FloatBuffer)buffer;
+			for(int i = fBuffer.limit(); i > 0; i--)
+				bBuffer.putFloat(fBuffer.get());
+		} else if(buffer instanceof LongBuffer) {
+			LongBuffer lBuffer = (LongBuffer)buffer;
+			for(int i = lBuffer.limit(); i > 0; i--)
+				bBuffer.putLong(lBuffer.get());
+		} else if(buffer instanceof DoubleBuffer) {
+			DoubleBuffer dBuffer = (DoubleBuffer)buffer;
+			for(int i = dBuffer.limit(); i > 0; i--)
+				bBuffer.putDouble(dBuffer.get());
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.unknownloner.lonelib.util;
+
+/**
+ * Times each fast approximation in {@link MathUtil} against the java.lang.Math call it replaces.
+ * <br>Run the main method by hand, it is not part of the test suite. The error bounds are checked by {@link FastMathTest}
+ */
+public class FastMathBenchmark {
+
+	private static final int OPS = 1 << 24;
+	private static final int RUNS = 5;
+	private static final int INPUTS = 1 << 12;
+	private static final String[] NAMES = { "sin", "cos", "atan2", "acos", "asin", "invSqrt" };
+
+	/**
+	 * Keeps the benchmark loops from being optimized away
+	 */
+	private static float sink;
+
+	public static void main(String[] args) {
+		float[] angles = new float[INPUTS];
+		float[] unit = new float[INPUTS];
+		float[] positive = new float[INPUTS];
+		for(int i = 0; i < INPUTS; i++) {
+			angles[i] = (float)(Math.PI * 4 * i / INPUTS - Math.PI * 2);
+			unit[i] = (float)(2.0 * i / INPUTS - 1);
+			positive[i] = 0.01F + i;
+		}
+		System.out.printf("%-8s %10s %10s%n", "function", "fast ns", "Math ns");
+		for(int f = 0; f < 6; f++) {
+			long fast = Long.MAX_VALUE;
+			long slow = Long.MAX_VALUE;
+			for(int run = 0; run < RUNS; run++) {
+				long start = System.nanoTime();
+				sink += run(f, true, angles, unit, positive);
+				fast = Math.min(fast, System.nanoTime() - start);
+				start = System.nanoTime();
+				sink += run(f, false, angles, unit, positive);
+				slow = Math.min(slow, System.nanoTime() - start);
+			}
+			System.out.printf("%-8s %10.2f %10.2f%n", NAMES[f], (double)fast / OPS, (double)slow / OPS);
+		}
+	}
+
+	private static float run(int function, boolean fast, float[] angles, float[] unit, float[] positive) {
+		int mask = INPUTS - 1;
+		float sum = 0;
+		switch(function) {
+		case 0:
+			for(int i = 0; i < OPS; i++) {
+				float x = angles[i & mask];
+				sum += fast ? MathUtil.sinFast(x) : (float)Math.sin(x);
+			}
+			break;
+		case 1:
+			for(int i = 0; i < OPS; i++) {
+				float x = angles[i & mask];
+				sum += fast ? MathUtil.cosFast(x) : (float)Math.cos(x);
+			}
+			break;
+		case 2:
+			for(int i = 0; i < OPS; i++) {
+				float y = angles[i & mask], x = angles[(i + 1) & mask];
+				sum += fast ? MathUtil.atan2Fast(y, x) : (float)Math.atan2(y, x);
+			}
+			break;
+		case 3:
+			for(int i = 0; i < OPS; i++) {
+				float x = unit[i & mask];
+				sum += fast ? MathUtil.acosFast(x) : (float)Math.acos(x);
+			}
+			break;
+		case 4:
+			for(int i = 0; i < OPS; i++) {
+				float x = unit[i & mask];
+				sum += fast ? MathUtil.asinFast(x) : (float)Math.asin(x);
+			}
+			break;
+		default:
+			for(int i = 0; i < OPS; i++) {
+				float x = positive[i & mask];
+				sum += fast ? MathUtil.invSqrtFast(x) : (float)(1 / Math.sqrt(x));
+			}
+		}
+		return sum;
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.unknownloner.lonelib.util;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks the largest error of each fast approximation in {@link MathUtil} against java.lang.Math over a dense sweep
+ * of its inputs, against the bound in its documentation. {@link FastMathBenchmark} times them
+ */
+public class FastMathTest extends TestCase {
+
+	private static final int SAMPLES = 1 << 22;
+
+	public void testSin() {
+		double max = 0;
+		for(int i = 0; i <= SAMPLES * 2; i++) {
+			float x = angle(i);
+			max = Math.max(max, Math.abs(MathUtil.sinFast(x) - Math.sin(x)));
+		}
+		assertBound("sinFast", max, 4e-6);
+	}
+
+	public void testCos() {
+		double max = 0;
+		for(int i = 0; i <= SAMPLES * 2; i++) {
+			float x = angle(i);
+			max = Math.max(max, Math.abs(MathUtil.cosFast(x) - Math.cos(x)));
+		}
+		assertBound("cosFast", max, 4e-6);
+	}
+
+	public void testAtan2() {
+		double max = 0;
+		for(int i = 0; i <= SAMPLES; i++) {
+			double a = Math.PI * 2 * i / SAMPLES - Math.PI;
+			//Radii over several orders of magnitude, so the division in the reduction is exercised too
+			double r = Math.pow(10, i % 7 - 3);
+			float y = (float)(r * Math.sin(a));
+			float x = (float)(r * Math.cos(a));
+			max = Math.max(max, Math.abs(MathUtil.atan2Fast(y, x) - Math.atan2(y, x)));
+		}
+		assertBound("atan2Fast", max, 2e-6);
+		assertEquals(0F, MathUtil.atan2Fast(0, 0));
+	}
+
+	public void testAcos() {
+		double max = 0;
+		for(int i = 0; i <= SAMPLES; i++) {
+			float x = (float)(2.0 * i / SAMPLES - 1);
+			max = Math.max(max, Math.abs(MathUtil.acosFast(x) - Math.acos(x)));
+		}
+		assertBound("acosFast", max, 1e-6);
+		//Clamped rather than NaN
+		assertEquals(0F, MathUtil.acosFast(1.0001F));
+	}
+
+	public void testAsin() {
+		double max = 0;
+		for(int i = 0; i <= SAMPLES; i++) {
+			float x = (float)(2.0 * i / SAMPLES - 1);
+			max = Math.max(max, Math.abs(MathUtil.asinFast(x) - Math.asin(x)));
+		}
+		assertBound("asinFast", max, 1e-6);
+	}
+
+	public void testInvSqrt() {
+		double max = 0;
+		//The error only depends on the mantissa and whether the exponent is even, so every float in [1, 4) covers all normal floats
+		int end = Float.floatToRawIntBits(4F);
+		for(int bits = Float.floatToRawIntBits(1F); bits < end; bits++) {
+			float x = Float.intBitsToFloat(bits);
+			double exact = 1 / Math.sqrt(x);
+			max = Math.max(max, Math.abs(MathUtil.invSqrtFast(x) - exact) / exact);
+		}
+		assertBound("invSqrtFast", max, 5e-6);
+	}
+
+	/**
+	 * @return Sample i of the sweep over angles, covering [-8 pi, 8 pi] densely up to SAMPLES,
+	 * then the whole documented range of [-1e5, 1e5] up to SAMPLES * 2
+	 */
+	private static float angle(int i) {
+		if(i <= SAMPLES) {
+			return (float)(Math.PI * 16 * i / SAMPLES - Math.PI * 8);
+		}
+		return (float)(2e5 * (i - SAMPLES) / SAMPLES - 1e5);
+	}
+
+	private static void assertBound(String name, double max, double bound) {
+		assertTrue(name + " error " + max + " exceeds its documented bound of " + bound, max < bound);
+	}
+
+}